@@ -0,0 +1,242 @@
+package by.zsp.ncst.graph;
+
+import by.zsp.ncst.exception.GraphException;
+import by.zsp.ncst.util.annotation.Immutable;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.util.*;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.atomic.AtomicIntegerArray;
+import java.util.stream.IntStream;
+
+// connected component labels of a graph at the moment of labelling, found by union-find over vertex numbers
+// the root of a component is its first vertex, the graph mustn't be modified while the labels are in use
+public final class ComponentLabels<V> {
+
+    private static final int CHUNKS_PER_THREAD = 4;
+    private static final int MIN_PARALLEL_EDGES = 10000;
+
+    private final @NotNull Graph<V> graph;
+    private final @NotNull VertexNumbering<V> numbering;
+    private final @NotNull int[] labels;
+    private final int componentsNumber;
+    private @Nullable Members<V> members;
+
+    public static <V> @NotNull ComponentLabels<V> of(final @NotNull Graph<V> graph) {
+        return new ComponentLabels<>(graph, false);
+    }
+
+    // edges are united in chunks by tasks of the common fork-join pool
+    public static <V> @NotNull ComponentLabels<V> ofInParallel(final @NotNull Graph<V> graph) {
+        return new ComponentLabels<>(graph, graph.getEdgesNumber() >= MIN_PARALLEL_EDGES);
+    }
+
+    private ComponentLabels(final @NotNull Graph<V> graph, final boolean parallel) {
+        this.graph = graph;
+        numbering = graph.numberVertices();
+        final int[] parents = parallel ? uniteInParallel(numbering) : unite(numbering);
+        labels = new int[numbering.getVerticesNumber()];
+        int label = 0;
+
+        // roots come first in their components, so labels of roots are known when other vertices are reached
+        for (int vertex = 0; vertex < labels.length; ++vertex) {
+            final int root = find(parents, vertex);
+            labels[vertex] = root == vertex ? label++ : labels[root];
+        }
+
+        componentsNumber = label;
+    }
+
+    // empty graph is connected
+    public boolean isConnected() {
+        return componentsNumber <= 1;
+    }
+
+    public int getComponentsNumber() {
+        return componentsNumber;
+    }
+
+    // vertices in order of labelling, the label of getVertices().get(i) is getLabels()[i]
+    public @NotNull @Immutable List<Vertex<V>> getVertices() {
+        return numbering.getVertices();
+    }
+
+    // labels are 0, 1, ... in order of the first vertex of the component in getVertices()
+    public @NotNull @Immutable int[] getLabels() {
+        return labels;
+    }
+
+    public int getLabel(final @NotNull Vertex<V> vertex) throws GraphException {
+        final int number = numbering.numberOf(vertex);
+
+        if (number < 0) {
+            throw new GraphException("Vertex doesn't belong to the graph");
+        }
+
+        return labels[number];
+    }
+
+    // subgraph of the vertices and edges with the label, crossings between its edges are kept
+    public @NotNull Graph<V> getComponent(final int label) throws GraphException {
+        if (label < 0 || label >= componentsNumber) {
+            throw new GraphException("No component with label " + label);
+        }
+
+        final Members<V> members = members();
+        final List<Vertex<V>> vertices = new ArrayList<>();
+        final List<Edge<V>> edges = new ArrayList<>();
+
+        for (int i = members.vertexStarts[label]; i < members.vertexStarts[label + 1]; ++i) {
+            vertices.add(numbering.getVertices().get(members.vertexNumbers[i]));
+        }
+
+        for (int i = members.edgeStarts[label]; i < members.edgeStarts[label + 1]; ++i) {
+            edges.add(members.edges.get(members.edgeNumbers[i]));
+        }
+
+        return graph.subGraph(vertices, edges);
+    }
+
+    private synchronized @NotNull Members<V> members() {
+        if (members == null) {
+            final int[] endpoints = numbering.getEndpoints();
+            final int[] edgeLabels = new int[numbering.getEdgesNumber()];
+
+            // edges are numbered in the order of getEdges() and both vertices of an edge have the same label
+            for (int edge = 0; edge < edgeLabels.length; ++edge) {
+                edgeLabels[edge] = labels[endpoints[2 * edge]];
+            }
+
+            members = new Members<>(new ArrayList<>(graph.getEdges()),
+                    startsOf(labels, componentsNumber), sortedBy(labels, componentsNumber),
+                    startsOf(edgeLabels, componentsNumber), sortedBy(edgeLabels, componentsNumber));
+        }
+
+        return members;
+    }
+
+    // positions of the first element with each label in the elements sorted by label, followed by their number
+    private static @NotNull int[] startsOf(final @NotNull int[] labels, final int labelsNumber) {
+        final int[] starts = new int[labelsNumber + 1];
+
+        for (final int label : labels) {
+            starts[label + 1]++;
+        }
+
+        for (int label = 0; label < labelsNumber; ++label) {
+            starts[label + 1] += starts[label];
+        }
+
+        return starts;
+    }
+
+    // indices of the elements sorted by label, stable counting sort
+    private static @NotNull int[] sortedBy(final @NotNull int[] labels, final int labelsNumber) {
+        final int[] positions = startsOf(labels, labelsNumber);
+        final int[] sorted = new int[labels.length];
+
+        for (int element = 0; element < labels.length; ++element) {
+            sorted[positions[labels[element]]++] = element;
+        }
+
+        return sorted;
+    }
+
+    private static int[] unite(final @NotNull VertexNumbering<?> numbering) {
+        final int[] parents = IntStream.range(0, numbering.getVerticesNumber()).toArray();
+        final int[] endpoints = numbering.getEndpoints();
+
+        for (int edge = 0; edge < numbering.getEdgesNumber(); ++edge) {
+            final int root1 = find(parents, endpoints[2 * edge]);
+            final int root2 = find(parents, endpoints[2 * edge + 1]);
+
+            if (root1 != root2) {
+                parents[Math.max(root1, root2)] = Math.min(root1, root2);
+            }
+        }
+
+        return parents;
+    }
+
+    // a root that fails to be linked by compare-and-set is retried, lost path halving updates only leave longer paths
+    private static int[] uniteInParallel(final @NotNull VertexNumbering<?> numbering) {
+        final AtomicIntegerArray parents =
+                new AtomicIntegerArray(IntStream.range(0, numbering.getVerticesNumber()).toArray());
+
+        final int[] endpoints = numbering.getEndpoints();
+        final int edgesNumber = numbering.getEdgesNumber();
+        final int chunksNumber = CHUNKS_PER_THREAD * ForkJoinPool.getCommonPoolParallelism();
+        final int chunkSize = (edgesNumber + chunksNumber - 1) / chunksNumber;
+
+        IntStream.range(0, chunksNumber).parallel().forEach(chunk -> {
+            final int end = Math.min(edgesNumber, (chunk + 1) * chunkSize);
+
+            for (int edge = chunk * chunkSize; edge < end; ++edge) {
+                int root1 = endpoints[2 * edge];
+                int root2 = endpoints[2 * edge + 1];
+
+                do {
+                    root1 = find(parents, root1);
+                    root2 = find(parents, root2);
+                } while (root1 != root2 &&
+                        !parents.compareAndSet(Math.max(root1, root2), Math.max(root1, root2), Math.min(root1, root2)));
+            }
+        });
+
+        final int[] result = new int[parents.length()];
+
+        for (int vertex = 0; vertex < result.length; ++vertex) {
+            result[vertex] = parents.get(vertex);
+        }
+
+        return result;
+    }
+
+    // path halving: every other vertex on the path is linked to its grandparent
+    private static int find(final @NotNull int[] parents, int vertex) {
+        while (parents[vertex] != vertex) {
+            parents[vertex] = parents[parents[vertex]];
+            vertex = parents[vertex];
+        }
+
+        return vertex;
+    }
+
+    private static int find(final @NotNull AtomicIntegerArray parents, int vertex) {
+        int parent = parents.get(vertex);
+
+        while (parent != vertex) {
+            final int grandparent = parents.get(parent);
+            parents.compareAndSet(vertex, parent, grandparent);
+            vertex = grandparent;
+            parent = parents.get(vertex);
+        }
+
+        return vertex;
+    }
+
+    // vertex and edge numbers grouped by label
+    private static final class Members<V> {
+
+        private final @NotNull List<Edge<V>> edges;
+        private final @NotNull int[] vertexStarts;
+        private final @NotNull int[] vertexNumbers;
+        private final @NotNull int[] edgeStarts;
+        private final @NotNull int[] edgeNumbers;
+
+        private Members(
+                final @NotNull List<Edge<V>> edges,
+                final @NotNull int[] vertexStarts,
+                final @NotNull int[] vertexNumbers,
+                final @NotNull int[] edgeStarts,
+                final @NotNull int[] edgeNumbers) {
+
+            this.edges = edges;
+            this.vertexStarts = vertexStarts;
+            this.vertexNumbers = vertexNumbers;
+            this.edgeStarts = edgeStarts;
+            this.edgeNumbers = edgeNumbers;
+        }
+    }
+}
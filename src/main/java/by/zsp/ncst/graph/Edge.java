@@ -17,6 +17,14 @@ public interface Edge<V> {
 
     @NotNull ImmutablePair<Vertex<V>, Vertex<V>> asVerticesPair();
 
+    default @NotNull Vertex<V> getVertex1() {
+        return asVerticesPair().left;
+    }
+
+    default @NotNull Vertex<V> getVertex2() {
+        return asVerticesPair().right;
+    }
+
     default @NotNull @Immutable Segment asSegment() {
         final ImmutablePair<Vertex<V>, Vertex<V>> verticesPair = asVerticesPair();
         return new Segment(verticesPair.left.getCoordinates(), verticesPair.right.getCoordinates());
@@ -38,6 +38,8 @@ public interface Graph<V> extends Cloneable {
 
     boolean addEdge(@NotNull Edge<V> edge) throws GraphException;
 
+    boolean addEdges(@NotNull Collection<Edge<V>> edges) throws GraphException;
+
     boolean removeEdge(@NotNull V from, @NotNull V to);
 
     boolean removeEdge(@NotNull Vertex<V> from, @NotNull Vertex<V> to);
@@ -56,6 +58,8 @@ public interface Graph<V> extends Cloneable {
 
     @NotNull @Immutable Collection<Vertex<V>> getNeighbours(@NotNull Vertex<V> vertex);
 
+    @NotNull @Immutable Collection<Edge<V>> getIntersecting(@NotNull Edge<V> edge);
+
     int getIntersectionIndex();
 
     @NotNull Optional<Edge<V>> getMostIntersectingEdge();
@@ -66,7 +70,27 @@ public interface Graph<V> extends Cloneable {
 
     @NotNull @Immutable List<Graph<V>> getConnectedComponents();
 
+    // the edges must join the given vertices, crossings between the edges are taken from this graph
+    @NotNull Graph<V> subGraph(@NotNull Collection<Vertex<V>> vertices, @NotNull Collection<Edge<V>> edges);
+
     @NotNull @Immutable List<Edge<V>> findBridges();
 
+    default @NotNull GraphAnalysis<V> analyze() {
+        return GraphAnalysis.of(this);
+    }
+
+    // graphs with their own dense indices override it
+    default @NotNull VertexNumbering<V> numberVertices() {
+        return VertexNumbering.of(this);
+    }
+
+    // see ComponentLabels.ofInParallel() for large graphs
+    default @NotNull ComponentLabels<V> labelComponents() {
+        return ComponentLabels.of(this);
+    }
+
+    // immutable snapshot that can be shared between threads
+    @NotNull @Immutable Graph<V> freeze();
+
     @NotNull Graph<V> copy();
 }
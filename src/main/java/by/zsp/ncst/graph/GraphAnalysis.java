@@ -0,0 +1,198 @@
+package by.zsp.ncst.graph;
+
+import by.zsp.ncst.exception.GraphException;
+import by.zsp.ncst.util.annotation.Immutable;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.util.*;
+
+// component labels, bridges and crossings of a graph at the moment of analysis, found on first request
+// the graph mustn't be modified while the analysis is in use, the analysis isn't thread-safe
+public final class GraphAnalysis<V> {
+
+    private final @NotNull Graph<V> graph;
+    private final int intersectionIndex;
+    private final @Nullable Edge<V> mostIntersectingEdge;
+
+    // labels by vertex number
+    private @Nullable VertexNumbering<V> numbering;
+    private @Nullable int[] componentLabels;
+    private @Nullable int[] twoEdgeConnectedComponentLabels;
+    private @Nullable List<Edge<V>> bridges;
+    private int componentsNumber;
+    private int twoEdgeConnectedComponentsNumber;
+
+    public static <V> @NotNull GraphAnalysis<V> of(final @NotNull Graph<V> graph) {
+        return new GraphAnalysis<>(graph);
+    }
+
+    private GraphAnalysis(final @NotNull Graph<V> graph) {
+        this.graph = graph;
+        this.intersectionIndex = graph.getIntersectionIndex();
+        this.mostIntersectingEdge = intersectionIndex > 0 ? graph.getMostIntersectingEdge().orElse(null) : null;
+    }
+
+    public int getIntersectionIndex() {
+        return intersectionIndex;
+    }
+
+    public @NotNull Optional<Edge<V>> getMostIntersectingEdge() {
+        return Optional.ofNullable(mostIntersectingEdge);
+    }
+
+    public boolean isIntersecting() {
+        return intersectionIndex > 0;
+    }
+
+    // empty graph is connected
+    public boolean isConnected() {
+        return getComponentsNumber() <= 1;
+    }
+
+    public int getComponentsNumber() {
+        traverse();
+        return componentsNumber;
+    }
+
+    // labels are 0, 1, ... in order of the first vertex of the component in graph.numberVertices()
+    public int getComponentLabel(final @NotNull Vertex<V> vertex) throws GraphException {
+        traverse();
+        return componentLabels[indexOf(vertex)];
+    }
+
+    // components left after removal of all bridges
+    public int getTwoEdgeConnectedComponentsNumber() {
+        traverse();
+        return twoEdgeConnectedComponentsNumber;
+    }
+
+    public int getTwoEdgeConnectedComponentLabel(final @NotNull Vertex<V> vertex) throws GraphException {
+        traverse();
+        return twoEdgeConnectedComponentLabels[indexOf(vertex)];
+    }
+
+    // bridges of all connected components
+    public @NotNull @Immutable List<Edge<V>> getBridges() {
+        traverse();
+        return bridges;
+    }
+
+    private int indexOf(final @NotNull Vertex<V> vertex) throws GraphException {
+        final int index = numbering.numberOf(vertex);
+
+        if (index < 0) {
+            throw new GraphException("Vertex doesn't belong to the graph");
+        }
+
+        return index;
+    }
+
+    // iterative Tarjan's bridge search, a vertex whose subtree can't reach above it heads a 2-edge-connected component
+    private void traverse() {
+        if (numbering != null) {
+            return;
+        }
+
+        final VertexNumbering<V> numbering = graph.numberVertices();
+        final List<Vertex<V>> vertices = numbering.getVertices();
+        final int[] endpoints = numbering.getEndpoints();
+        final int n = numbering.getVerticesNumber();
+        final int[] offsets = new int[n + 1];
+
+        for (final int endpoint : endpoints) {
+            offsets[endpoint + 1]++;
+        }
+
+        for (int vertex = 0; vertex < n; ++vertex) {
+            offsets[vertex + 1] += offsets[vertex];
+        }
+
+        final int[] neighbours = new int[endpoints.length];
+        final int[] filled = Arrays.copyOf(offsets, n);
+
+        for (int i = 0; i < endpoints.length; i += 2) {
+            neighbours[filled[endpoints[i]]++] = endpoints[i + 1];
+            neighbours[filled[endpoints[i + 1]]++] = endpoints[i];
+        }
+
+        // times start from 1, 0 means the vertex isn't visited
+        final int[] inTimes = new int[n];
+        final int[] upTimes = new int[n];
+        final int[] parents = new int[n];
+        final int[] positions = new int[n];
+        final int[] path = new int[n];
+        final int[] unassigned = new int[n];
+        final int[] labels = new int[n];
+        final int[] twoEdgeLabels = new int[n];
+        final List<Edge<V>> foundBridges = new ArrayList<>();
+        int time = 0;
+        int label = 0;
+        int twoEdgeLabel = 0;
+        int unassignedNumber = 0;
+
+        for (int root = 0; root < n; ++root) {
+            if (inTimes[root] > 0) {
+                continue;
+            }
+
+            int depth = 0;
+            inTimes[root] = upTimes[root] = ++time;
+            parents[root] = -1;
+            positions[root] = offsets[root];
+            labels[root] = label;
+            path[depth++] = root;
+            unassigned[unassignedNumber++] = root;
+
+            while (depth > 0) {
+                final int visiting = path[depth - 1];
+
+                if (positions[visiting] < offsets[visiting + 1]) {
+                    final int child = neighbours[positions[visiting]++];
+
+                    if (inTimes[child] == 0) {
+                        inTimes[child] = upTimes[child] = ++time;
+                        parents[child] = visiting;
+                        positions[child] = offsets[child];
+                        labels[child] = label;
+                        path[depth++] = child;
+                        unassigned[unassignedNumber++] = child;
+                    } else if (child != parents[visiting]) {
+                        upTimes[visiting] = Math.min(upTimes[visiting], inTimes[child]);
+                    }
+                } else {
+                    depth--;
+                    final int parent = parents[visiting];
+
+                    if (upTimes[visiting] == inTimes[visiting]) {
+                        int assigned;
+
+                        do {
+                            assigned = unassigned[--unassignedNumber];
+                            twoEdgeLabels[assigned] = twoEdgeLabel;
+                        } while (assigned != visiting);
+
+                        twoEdgeLabel++;
+
+                        if (parent >= 0) {
+                            foundBridges.add(graph.edgeOf(vertices.get(parent), vertices.get(visiting)));
+                        }
+                    }
+
+                    if (parent >= 0) {
+                        upTimes[parent] = Math.min(upTimes[parent], upTimes[visiting]);
+                    }
+                }
+            }
+
+            label++;
+        }
+
+        this.numbering = numbering;
+        componentLabels = labels;
+        componentsNumber = label;
+        twoEdgeConnectedComponentLabels = twoEdgeLabels;
+        twoEdgeConnectedComponentsNumber = twoEdgeLabel;
+        bridges = Collections.unmodifiableList(foundBridges);
+    }
+}
@@ -12,4 +12,12 @@ public interface Vertex<V> {
 
     // (x, y)
     @NotNull @Immutable Coordinate getCoordinates();
+
+    default double getX() {
+        return getCoordinates().x;
+    }
+
+    default double getY() {
+        return getCoordinates().y;
+    }
 }
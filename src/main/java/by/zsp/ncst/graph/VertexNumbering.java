@@ -0,0 +1,67 @@
+package by.zsp.ncst.graph;
+
+import by.zsp.ncst.util.annotation.Immutable;
+import org.jetbrains.annotations.NotNull;
+
+import java.util.*;
+import java.util.function.ToIntFunction;
+
+// dense numbers of the vertices of a graph at the moment of numbering and edges as pairs of numbers
+// the graph mustn't be modified while the numbering is in use
+public final class VertexNumbering<V> {
+
+    private final @NotNull List<Vertex<V>> vertices;
+    private final @NotNull int[] endpoints;
+    private final @NotNull ToIntFunction<Vertex<V>> numbers;
+
+    public static <V> @NotNull VertexNumbering<V> of(final @NotNull Graph<V> graph) {
+        final List<Vertex<V>> vertices = new ArrayList<>(graph.getVertices());
+        final Map<Vertex<V>, Integer> numbers = new HashMap<>();
+
+        for (int vertex = 0; vertex < vertices.size(); ++vertex) {
+            numbers.put(vertices.get(vertex), vertex);
+        }
+
+        final int[] endpoints = new int[2 * graph.getEdgesNumber()];
+        int position = 0;
+
+        for (final Edge<V> edge : graph.getEdges()) {
+            endpoints[position++] = numbers.get(edge.getVertex1());
+            endpoints[position++] = numbers.get(edge.getVertex2());
+        }
+
+        return new VertexNumbering<>(vertices, endpoints, vertex -> numbers.getOrDefault(vertex, -1));
+    }
+
+    // vertex i is vertices.get(i), the i-th edge of graph.getEdges() joins vertices endpoints[2 * i]
+    // and endpoints[2 * i + 1], numbers gives the number of a vertex equal to the given one or -1 if there's none
+    public VertexNumbering(
+            final @NotNull List<Vertex<V>> vertices,
+            final @NotNull int[] endpoints,
+            final @NotNull ToIntFunction<Vertex<V>> numbers) {
+
+        this.vertices = vertices;
+        this.endpoints = endpoints;
+        this.numbers = numbers;
+    }
+
+    public @NotNull @Immutable List<Vertex<V>> getVertices() {
+        return Collections.unmodifiableList(vertices);
+    }
+
+    public int getVerticesNumber() {
+        return vertices.size();
+    }
+
+    public int getEdgesNumber() {
+        return endpoints.length / 2;
+    }
+
+    public @NotNull @Immutable int[] getEndpoints() {
+        return endpoints;
+    }
+
+    public int numberOf(final @NotNull Vertex<V> vertex) {
+        return numbers.applyAsInt(vertex);
+    }
+}
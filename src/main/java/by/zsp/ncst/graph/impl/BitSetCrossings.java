@@ -0,0 +1,267 @@
+package by.zsp.ncst.graph.impl;
+
+import org.jetbrains.annotations.NotNull;
+
+import java.util.*;
+
+// bit matrix of crossings indexed by dense edge IDs, a row of up to m bits per edge with crossings
+final class BitSetCrossings<E> implements Crossings<E> {
+
+    private static final long[] EMPTY_ROW = new long[0];
+    // approximate size of a hash multimap entry, the matrix is used when it takes fewer bits than the entries
+    private static final int ENTRY_BITS = 256;
+    // relations of fewer edges are small in any store
+    private static final int MIN_EDGES = 256;
+
+    private final @NotNull Map<E, Integer> ids;
+    // edges by ID, null for free IDs
+    private final @NotNull List<E> edges;
+    private final @NotNull BitSet freeIds;
+    private @NotNull long[][] rows;
+    private @NotNull int[] degrees;
+    private long size;
+
+    // whether the matrix is smaller than a multimap for crossings between the given number of edges
+    static boolean pays(final int edgesNumber, final long size) {
+        return edgesNumber >= MIN_EDGES && 2 * size * ENTRY_BITS >= (long) edgesNumber * edgesNumber;
+    }
+
+    static <E> @NotNull BitSetCrossings<E> of(final @NotNull Crossings<E> crossings) {
+        final BitSetCrossings<E> bitSetCrossings = new BitSetCrossings<>();
+
+        for (final E edge : crossings.edges()) {
+            for (final E crossing : crossings.get(edge)) {
+                bitSetCrossings.add(edge, crossing);
+            }
+        }
+
+        return bitSetCrossings;
+    }
+
+    private BitSetCrossings() {
+        ids = new HashMap<>();
+        edges = new ArrayList<>();
+        freeIds = new BitSet();
+        rows = new long[16][];
+        degrees = new int[16];
+    }
+
+    private BitSetCrossings(final @NotNull BitSetCrossings<E> crossings) {
+        ids = new HashMap<>(crossings.ids);
+        edges = new ArrayList<>(crossings.edges);
+        freeIds = (BitSet) crossings.freeIds.clone();
+        rows = new long[crossings.rows.length][];
+        degrees = crossings.degrees.clone();
+        size = crossings.size;
+
+        for (int id = 0; id < edges.size(); ++id) {
+            rows[id] = crossings.rows[id].clone();
+        }
+    }
+
+    @Override
+    public boolean add(final @NotNull E edge1, final @NotNull E edge2) {
+        final int id1 = idOf(edge1);
+        final int id2 = idOf(edge2);
+
+        if (contains(id1, id2)) {
+            return false;
+        }
+
+        set(id1, id2);
+        set(id2, id1);
+        degrees[id1]++;
+        degrees[id2]++;
+        size++;
+        return true;
+    }
+
+    @Override
+    public @NotNull Collection<E> get(final @NotNull E edge) {
+        return new AbstractCollection<E>() {
+
+            @Override
+            public @NotNull Iterator<E> iterator() {
+                final Integer id = ids.get(edge);
+                return new RowIterator(id != null ? rows[id] : EMPTY_ROW);
+            }
+
+            @Override
+            public int size() {
+                return degree(edge);
+            }
+
+            @Override
+            public boolean contains(final Object o) {
+                final Integer id1 = ids.get(edge);
+                final Integer id2 = ids.get(o);
+                return id1 != null && id2 != null && BitSetCrossings.this.contains(id1, id2);
+            }
+        };
+    }
+
+    @Override
+    public int degree(final @NotNull E edge) {
+        final Integer id = ids.get(edge);
+        return id != null ? degrees[id] : 0;
+    }
+
+    // rows may be longer than the number of IDs needs, their extra words are empty
+    @Override
+    public void removeAll(final @NotNull Collection<E> edges, final @NotNull DegreeListener<E> listener) {
+        final int words = (this.edges.size() + 63) >>> 6;
+        final long[] mask = new long[words];
+        final long[] affected = new long[words];
+
+        for (final E edge : edges) {
+            final Integer id = ids.get(edge);
+
+            if (id != null) {
+                mask[id >>> 6] |= 1L << id;
+                final long[] row = rows[id];
+
+                for (int i = 0; i < Math.min(row.length, words); ++i) {
+                    affected[i] |= row[i];
+                }
+            }
+        }
+
+        long removedCrossings = 0;
+
+        for (int i = 0; i < words; ++i) {
+            for (long word = affected[i] & ~mask[i]; word != 0; word &= word - 1) {
+                final int id = (i << 6) + Long.numberOfTrailingZeros(word);
+                final long[] row = rows[id];
+                int lost = 0;
+
+                for (int j = 0; j < Math.min(row.length, words); ++j) {
+                    lost += Long.bitCount(row[j] & mask[j]);
+                    row[j] &= ~mask[j];
+                }
+
+                removedCrossings += lost;
+                listener.degreeChanged(this.edges.get(id), degrees[id], degrees[id] - lost);
+                degrees[id] -= lost;
+            }
+        }
+
+        // crossings between removed edges are seen from both of them
+        long innerCrossings = 0;
+
+        for (int i = 0; i < words; ++i) {
+            for (long word = mask[i]; word != 0; word &= word - 1) {
+                final int id = (i << 6) + Long.numberOfTrailingZeros(word);
+                final long[] row = rows[id];
+                final E edge = this.edges.get(id);
+
+                for (int j = 0; j < Math.min(row.length, words); ++j) {
+                    innerCrossings += Long.bitCount(row[j] & mask[j]);
+                }
+
+                listener.degreeChanged(edge, degrees[id], 0);
+                rows[id] = EMPTY_ROW;
+                degrees[id] = 0;
+                ids.remove(edge);
+                this.edges.set(id, null);
+                freeIds.set(id);
+            }
+        }
+
+        size -= removedCrossings + innerCrossings / 2;
+    }
+
+    @Override
+    public @NotNull Set<E> edges() {
+        return Collections.unmodifiableSet(ids.keySet());
+    }
+
+    @Override
+    public long size() {
+        return size;
+    }
+
+    @Override
+    public @NotNull Crossings<E> copy() {
+        return new BitSetCrossings<>(this);
+    }
+
+    // free IDs are reused, their rows and columns are empty
+    private int idOf(final @NotNull E edge) {
+        final Integer id = ids.get(edge);
+
+        if (id != null) {
+            return id;
+        }
+
+        int newId = freeIds.nextSetBit(0);
+
+        if (newId >= 0) {
+            freeIds.clear(newId);
+            edges.set(newId, edge);
+        } else {
+            newId = edges.size();
+            edges.add(edge);
+
+            if (newId == rows.length) {
+                rows = Arrays.copyOf(rows, 2 * newId);
+                degrees = Arrays.copyOf(degrees, 2 * newId);
+            }
+
+            rows[newId] = EMPTY_ROW;
+        }
+
+        ids.put(edge, newId);
+        return newId;
+    }
+
+    private boolean contains(final int id1, final int id2) {
+        final long[] row = rows[id1];
+        return id2 >>> 6 < row.length && (row[id2 >>> 6] & 1L << id2) != 0;
+    }
+
+    private void set(final int id1, final int id2) {
+        final long[] row = rows[id1];
+
+        if (id2 >>> 6 >= row.length) {
+            rows[id1] = Arrays.copyOf(row, Math.max((id2 >>> 6) + 1, 2 * row.length));
+        }
+
+        rows[id1][id2 >>> 6] |= 1L << id2;
+    }
+
+    private final class RowIterator implements Iterator<E> {
+
+        private final @NotNull long[] row;
+        private int word;
+        private long bits;
+
+        private RowIterator(final @NotNull long[] row) {
+            this.row = row;
+            bits = row.length > 0 ? row[0] : 0;
+            skipEmptyWords();
+        }
+
+        @Override
+        public boolean hasNext() {
+            return bits != 0;
+        }
+
+        @Override
+        public E next() {
+            if (!hasNext()) {
+                throw new NoSuchElementException();
+            }
+
+            final int id = (word << 6) + Long.numberOfTrailingZeros(bits);
+            bits &= bits - 1;
+            skipEmptyWords();
+            return edges.get(id);
+        }
+
+        private void skipEmptyWords() {
+            while (bits == 0 && word + 1 < row.length) {
+                bits = row[++word];
+            }
+        }
+    }
+}
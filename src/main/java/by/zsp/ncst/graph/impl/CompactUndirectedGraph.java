@@ -0,0 +1,1292 @@
+package by.zsp.ncst.graph.impl;
+
+import by.zsp.ncst.exception.GraphException;
+import by.zsp.ncst.graph.Edge;
+import by.zsp.ncst.graph.Graph;
+import by.zsp.ncst.graph.Vertex;
+import by.zsp.ncst.graph.VertexNumbering;
+import by.zsp.ncst.util.Geometry;
+import by.zsp.ncst.util.annotation.Immutable;
+import com.vividsolutions.jts.geom.Coordinate;
+import com.vividsolutions.jts.geom.Envelope;
+import org.apache.commons.lang3.tuple.ImmutablePair;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.DoubleBuffer;
+import java.nio.IntBuffer;
+import java.util.*;
+
+// vertices and edges are flyweights over primitive columns on the heap or, with GraphBuilder.offHeap() or wrap(),
+// outside of it, copies share the columns, adding a vertex or an edge that has never been in the graph rebuilds them
+public class CompactUndirectedGraph<V> implements Graph<V> {
+
+    private @NotNull Structure<V> structure;
+    private @NotNull BitSet removedVertices;
+    private @NotNull BitSet removedEdges;
+    // number of crossing edges that aren't removed
+    private @NotNull int[] crossingDegrees;
+    private int verticesNumber;
+    private int edgesNumber;
+    private long intersectionsNumber;
+
+    public static <V> @NotNull CompactUndirectedGraph<V> of(final @NotNull Graph<V> graph) {
+        final StructureBuilder<V> builder = new StructureBuilder<>();
+        graph.getVertices().forEach(builder::addVertex);
+
+        final Map<Edge<V>, Integer> edgeIndices = new HashMap<>();
+
+        for (final Edge<V> edge : graph.getEdges()) {
+            edgeIndices.put(edge, builder.addEdge(edge));
+        }
+
+        for (final Map.Entry<Edge<V>, Integer> edge : edgeIndices.entrySet()) {
+            for (final Edge<V> intersecting : graph.getIntersecting(edge.getKey())) {
+                final int intersectingIndex = edgeIndices.get(intersecting);
+
+                if (edge.getValue() < intersectingIndex) {
+                    builder.addIntersection(edge.getValue(), intersectingIndex);
+                }
+            }
+        }
+
+        return new CompactUndirectedGraph<>(builder.build(false));
+    }
+
+    public static <V> @NotNull CompactUndirectedGraph<V> of(final @NotNull Collection<Edge<V>> edges) {
+        final CompactUndirectedGraph<V> graph = new CompactUndirectedGraph<>();
+        graph.addEdges(edges);
+        return graph;
+    }
+
+    static <V> @NotNull CompactUndirectedGraph<V> build(final @NotNull GraphBuilder<V> builder, final boolean offHeap) {
+        final int verticesNumber = builder.getVerticesNumber();
+        final int edgesNumber = builder.getEdgesNumber();
+        final Object[] ids = new Object[verticesNumber];
+        final Map<V, Integer> indices = new HashMap<>();
+        final double[] xs = new double[verticesNumber];
+        final double[] ys = new double[verticesNumber];
+        final int[] sources = new int[edgesNumber];
+        final int[] targets = new int[edgesNumber];
+        final int[] intersections = new int[2 * builder.getIntersectionsNumber()];
+
+        for (int vertex = 0; vertex < verticesNumber; ++vertex) {
+            ids[vertex] = builder.getId(vertex);
+            indices.put(builder.getId(vertex), vertex);
+            xs[vertex] = builder.getX(vertex);
+            ys[vertex] = builder.getY(vertex);
+        }
+
+        for (int edge = 0; edge < edgesNumber; ++edge) {
+            sources[edge] = builder.getSource(edge);
+            targets[edge] = builder.getTarget(edge);
+        }
+
+        for (int intersection = 0; intersection < builder.getIntersectionsNumber(); ++intersection) {
+            intersections[2 * intersection] = builder.getIntersectingEdge1(intersection);
+            intersections[2 * intersection + 1] = builder.getIntersectingEdge2(intersection);
+        }
+
+        return new CompactUndirectedGraph<>(
+                Structure.of(ids, indices, xs, ys, sources, targets, intersections, offHeap));
+    }
+
+    // columns are trusted and used without copying, so they mustn't change while the graph is used,
+    // edge i connects vertices sources[i] and targets[i], edges crossing edge i are
+    // crossingEdges[crossingOffsets[i]], ..., crossingEdges[crossingOffsets[i + 1] - 1]
+    public static <V> @NotNull CompactUndirectedGraph<V> wrap(
+            final @NotNull List<V> ids,
+            final @NotNull DoubleBuffer xs,
+            final @NotNull DoubleBuffer ys,
+            final @NotNull IntBuffer sources,
+            final @NotNull IntBuffer targets,
+            final @NotNull IntBuffer crossingOffsets,
+            final @NotNull IntBuffer crossingEdges) throws GraphException {
+
+        if (ids.size() != xs.capacity() || ids.size() != ys.capacity()) {
+            throw new GraphException("Vertex columns have different lengths");
+        }
+
+        if (sources.capacity() != targets.capacity() || crossingOffsets.capacity() != sources.capacity() + 1) {
+            throw new GraphException("Edge columns have different lengths");
+        }
+
+        final Map<V, Integer> indices = new HashMap<>();
+
+        for (int vertex = 0; vertex < ids.size(); ++vertex) {
+            indices.put(ids.get(vertex), vertex);
+        }
+
+        return new CompactUndirectedGraph<>(new Structure<>(
+                ids.toArray(), indices, xs, ys, sources, targets, crossingOffsets, crossingEdges));
+    }
+
+    public CompactUndirectedGraph() {
+        this(new StructureBuilder<V>().build(false));
+    }
+
+    private CompactUndirectedGraph(final @NotNull Structure<V> structure) {
+        reset(structure);
+    }
+
+    private CompactUndirectedGraph(final @NotNull CompactUndirectedGraph<V> graph) {
+        structure = graph.structure;
+        removedVertices = (BitSet) graph.removedVertices.clone();
+        removedEdges = (BitSet) graph.removedEdges.clone();
+        crossingDegrees = graph.crossingDegrees.clone();
+        verticesNumber = graph.verticesNumber;
+        edgesNumber = graph.edgesNumber;
+        intersectionsNumber = graph.intersectionsNumber;
+    }
+
+    // whether coordinates, adjacency and crossings are kept outside of the heap
+    public boolean isOffHeap() {
+        return structure.offHeap;
+    }
+
+    private void reset(final @NotNull Structure<V> structure) {
+        this.structure = structure;
+        removedVertices = new BitSet(structure.ids.length);
+        removedEdges = new BitSet(structure.sources.capacity());
+        crossingDegrees = new int[structure.sources.capacity()];
+        verticesNumber = structure.ids.length;
+        edgesNumber = structure.sources.capacity();
+
+        for (int edge = 0; edge < edgesNumber; ++edge) {
+            crossingDegrees[edge] = structure.crossingOffsets.get(edge + 1) - structure.crossingOffsets.get(edge);
+        }
+
+        intersectionsNumber = structure.crossingEdges.capacity() / 2;
+    }
+
+    @Override
+    public @NotNull @Immutable Set<Vertex<V>> getVertices() {
+        return new AbstractSet<Vertex<V>>() {
+
+            @Override
+            public @NotNull Iterator<Vertex<V>> iterator() {
+                return new IndexIterator<Vertex<V>>(removedVertices, structure.ids.length) {
+
+                    @Override
+                    protected @NotNull Vertex<V> get(final int index) {
+                        return vertexAt(index);
+                    }
+                };
+            }
+
+            @Override
+            public boolean contains(final Object o) {
+                return o instanceof Vertex && isPresentVertex(indexOf((Vertex<?>) o));
+            }
+
+            @Override
+            public int size() {
+                return verticesNumber;
+            }
+        };
+    }
+
+    @Override
+    public int getVerticesNumber() {
+        return verticesNumber;
+    }
+
+    @Override
+    public @NotNull @Immutable Set<Edge<V>> getEdges() {
+        return new AbstractSet<Edge<V>>() {
+
+            @Override
+            public @NotNull Iterator<Edge<V>> iterator() {
+                return new IndexIterator<Edge<V>>(removedEdges, structure.sources.capacity()) {
+
+                    @Override
+                    protected @NotNull Edge<V> get(final int index) {
+                        return edgeAt(index);
+                    }
+                };
+            }
+
+            @Override
+            public boolean contains(final Object o) {
+                return o instanceof Edge && isPresentEdge(indexOf((Edge<?>) o));
+            }
+
+            @Override
+            public int size() {
+                return edgesNumber;
+            }
+        };
+    }
+
+    @Override
+    public int getEdgesNumber() {
+        return edgesNumber;
+    }
+
+    @Override
+    public boolean addVertex(final @NotNull V id, final double x, final double y) {
+        return addVertex(vertexOf(id, x, y));
+    }
+
+    @Override
+    public boolean addVertex(final @NotNull Vertex<V> vertex) {
+        final int index = indexOf(vertex);
+
+        if (index < 0) {
+            rebuild(Collections.singletonList(vertex), Collections.emptyList());
+            return true;
+        } else if (removedVertices.get(index)) {
+            removedVertices.clear(index);
+            verticesNumber++;
+            return true;
+        } else {
+            return false;
+        }
+    }
+
+    @Override
+    public boolean removeVertex(final @NotNull V id) {
+        return removeVertexAt(structure.indices.getOrDefault(id, -1));
+    }
+
+    @Override
+    public boolean removeVertex(final @NotNull Vertex<V> vertex) {
+        return removeVertexAt(indexOf(vertex));
+    }
+
+    private boolean removeVertexAt(final int vertex) {
+        if (isPresentVertex(vertex)) {
+            for (int i = structure.adjacencyOffsets.get(vertex); i < structure.adjacencyOffsets.get(vertex + 1); ++i) {
+                removeEdgeAt(structure.adjacentEdges.get(i));
+            }
+
+            removedVertices.set(vertex);
+            verticesNumber--;
+            return true;
+        } else {
+            return false;
+        }
+    }
+
+    @Override
+    public @NotNull Vertex<V> vertexOf(final @NotNull V id, final double x, final double y) {
+        return new SimpleVertex<>(id, x, y);
+    }
+
+    @Override
+    public boolean addEdge(
+            final @NotNull V idFrom,
+            final double xFrom,
+            final double yFrom,
+            final @NotNull V idTo,
+            final double xTo,
+            final double yTo)
+            throws GraphException {
+
+        return addEdge(edgeOf(idFrom, xFrom, yFrom, idTo, xTo, yTo));
+    }
+
+    @Override
+    public boolean addEdge(final @NotNull Vertex<V> from, final @NotNull Vertex<V> to) throws GraphException {
+        return addEdge(edgeOf(from, to));
+    }
+
+    @Override
+    public boolean addEdge(final @NotNull Edge<V> edge) throws GraphException {
+        return addEdges(Collections.singletonList(edge));
+    }
+
+    @Override
+    public boolean addEdges(final @NotNull Collection<Edge<V>> edges) throws GraphException {
+        final Set<Edge<V>> added = new LinkedHashSet<>();
+        boolean restored = false;
+
+        for (final Edge<V> edge : edges) {
+            final int index = indexOf(edge);
+
+            if (index < 0) {
+                final @NotNull ImmutablePair<Vertex<V>, Vertex<V>> vertices = edge.asVerticesPair();
+
+                if (Objects.equals(vertices.left, vertices.right)) {
+                    throw new GraphException("Loops are forbidden");
+                }
+
+                added.add(edge);
+            } else if (removedEdges.get(index)) {
+                restoreEdge(index);
+                restored = true;
+            }
+        }
+
+        if (!added.isEmpty()) {
+            rebuild(Collections.emptyList(), added);
+        }
+
+        return restored || !added.isEmpty();
+    }
+
+    private void restoreEdge(final int edge) {
+        for (final int vertex : new int[] { structure.sources.get(edge), structure.targets.get(edge) }) {
+            if (removedVertices.get(vertex)) {
+                removedVertices.clear(vertex);
+                verticesNumber++;
+            }
+        }
+
+        removedEdges.clear(edge);
+        edgesNumber++;
+
+        for (int i = structure.crossingOffsets.get(edge); i < structure.crossingOffsets.get(edge + 1); ++i) {
+            final int intersecting = structure.crossingEdges.get(i);
+
+            if (!removedEdges.get(intersecting)) {
+                crossingDegrees[intersecting]++;
+                crossingDegrees[edge]++;
+            }
+        }
+
+        intersectionsNumber += crossingDegrees[edge];
+    }
+
+    @Override
+    public boolean removeEdge(final @NotNull V from, final @NotNull V to) {
+        return removeEdgeAt(edgeIndexOf(
+                structure.indices.getOrDefault(from, -1), structure.indices.getOrDefault(to, -1)));
+    }
+
+    @Override
+    public boolean removeEdge(final @NotNull Vertex<V> from, final @NotNull Vertex<V> to) {
+        return removeEdgeAt(edgeIndexOf(indexOf(from), indexOf(to)));
+    }
+
+    @Override
+    public boolean removeEdge(final @NotNull Edge<V> edge) {
+        return removeEdgeAt(indexOf(edge));
+    }
+
+    private boolean removeEdgeAt(final int edge) {
+        if (isPresentEdge(edge)) {
+            removedEdges.set(edge);
+            edgesNumber--;
+
+            for (int i = structure.crossingOffsets.get(edge); i < structure.crossingOffsets.get(edge + 1); ++i) {
+                final int intersecting = structure.crossingEdges.get(i);
+
+                if (!removedEdges.get(intersecting)) {
+                    crossingDegrees[intersecting]--;
+                }
+            }
+
+            intersectionsNumber -= crossingDegrees[edge];
+            crossingDegrees[edge] = 0;
+            return true;
+        } else {
+            return false;
+        }
+    }
+
+    @Override
+    public boolean removeIntersecting(final @NotNull Edge<V> edge) {
+        final int index = indexOf(edge);
+
+        if (isPresentEdge(index) && crossingDegrees[index] > 0) {
+            for (int i = structure.crossingOffsets.get(index); i < structure.crossingOffsets.get(index + 1); ++i) {
+                removeEdgeAt(structure.crossingEdges.get(i));
+            }
+
+            return true;
+        } else {
+            return false;
+        }
+    }
+
+    @Override
+    public @NotNull Edge<V> edgeOf(
+            final @NotNull V idFrom,
+            final double xFrom,
+            final double yFrom,
+            final @NotNull V idTo,
+            final double xTo,
+            final double yTo) {
+
+        return edgeOf(vertexOf(idFrom, xFrom, yFrom), vertexOf(idTo, xTo, yTo));
+    }
+
+    @Override
+    public @NotNull Edge<V> edgeOf(final @NotNull Vertex<V> vertex1, final @NotNull Vertex<V> vertex2) {
+        return new SimpleUndirectedEdge<>(vertex1, vertex2);
+    }
+
+    @Override
+    public boolean isDirected() {
+        return false;
+    }
+
+    @Override
+    public @NotNull @Immutable Collection<Vertex<V>> getNeighbours(final @NotNull V id) {
+        return getNeighboursAt(structure.indices.getOrDefault(id, -1));
+    }
+
+    @Override
+    public @NotNull @Immutable Collection<Vertex<V>> getNeighbours(final @NotNull Vertex<V> vertex) {
+        return getNeighboursAt(indexOf(vertex));
+    }
+
+    private @NotNull @Immutable Collection<Vertex<V>> getNeighboursAt(final int vertex) {
+        if (isPresentVertex(vertex)) {
+            final List<Vertex<V>> neighbours = new ArrayList<>();
+
+            for (int i = structure.adjacencyOffsets.get(vertex); i < structure.adjacencyOffsets.get(vertex + 1); ++i) {
+                if (!removedEdges.get(structure.adjacentEdges.get(i))) {
+                    neighbours.add(vertexAt(structure.adjacentVertices.get(i)));
+                }
+            }
+
+            return Collections.unmodifiableList(neighbours);
+        } else {
+            return Collections.emptyList();
+        }
+    }
+
+    @Override
+    public @NotNull @Immutable Collection<Edge<V>> getIntersecting(final @NotNull Edge<V> edge) {
+        final int index = indexOf(edge);
+
+        if (isPresentEdge(index)) {
+            final List<Edge<V>> intersecting = new ArrayList<>(crossingDegrees[index]);
+
+            for (int i = structure.crossingOffsets.get(index); i < structure.crossingOffsets.get(index + 1); ++i) {
+                if (!removedEdges.get(structure.crossingEdges.get(i))) {
+                    intersecting.add(edgeAt(structure.crossingEdges.get(i)));
+                }
+            }
+
+            return Collections.unmodifiableList(intersecting);
+        } else {
+            return Collections.emptyList();
+        }
+    }
+
+    @Override
+    public int getIntersectionIndex() {
+        final int mostIntersecting = findMostIntersectingEdge();
+        return mostIntersecting < 0 ? 0 : crossingDegrees[mostIntersecting];
+    }
+
+    @Override
+    public @NotNull Optional<Edge<V>> getMostIntersectingEdge() {
+        final int mostIntersecting = findMostIntersectingEdge();
+        return mostIntersecting < 0 ? Optional.empty() : Optional.of(edgeAt(mostIntersecting));
+    }
+
+    // removed edges have zero crossing degree
+    private int findMostIntersectingEdge() {
+        int mostIntersecting = -1;
+
+        if (intersectionsNumber > 0) {
+            for (int edge = 0; edge < crossingDegrees.length; ++edge) {
+                if (crossingDegrees[edge] > 0 &&
+                        (mostIntersecting < 0 || crossingDegrees[mostIntersecting] < crossingDegrees[edge])) {
+
+                    mostIntersecting = edge;
+                }
+            }
+        }
+
+        return mostIntersecting;
+    }
+
+    @Override
+    public boolean isIntersecting() {
+        return intersectionsNumber > 0;
+    }
+
+    @Override
+    public @NotNull VertexNumbering<V> numberVertices() {
+        final Structure<V> structure = this.structure;
+        final List<Vertex<V>> numbered = new ArrayList<>(verticesNumber);
+        final int[] numbers = new int[structure.ids.length];
+        Arrays.fill(numbers, -1);
+
+        for (int vertex = removedVertices.nextClearBit(0); vertex < structure.ids.length;
+                vertex = removedVertices.nextClearBit(vertex + 1)) {
+
+            numbers[vertex] = numbered.size();
+            numbered.add(vertexAt(vertex));
+        }
+
+        final int[] endpoints = new int[2 * edgesNumber];
+        int position = 0;
+
+        for (int edge = removedEdges.nextClearBit(0); edge < structure.sources.capacity();
+                edge = removedEdges.nextClearBit(edge + 1)) {
+
+            endpoints[position++] = numbers[structure.sources.get(edge)];
+            endpoints[position++] = numbers[structure.targets.get(edge)];
+        }
+
+        return new VertexNumbering<>(numbered, endpoints, vertex -> {
+            final int index = indexOf(vertex);
+            return index >= 0 ? numbers[index] : -1;
+        });
+    }
+
+    @Override
+    public boolean isConnected() {
+        return verticesNumber == 0 || labelConnectedComponents(new int[structure.ids.length]) == 1;
+    }
+
+    // labels are 1-based, removed vertices are labelled with 0
+    private int labelConnectedComponents(final @NotNull int[] labels) {
+        final int[] queue = new int[structure.ids.length];
+        int label = 0;
+
+        for (int root = removedVertices.nextClearBit(0); root < labels.length;
+                root = removedVertices.nextClearBit(root + 1)) {
+
+            if (labels[root] == 0) {
+                label++;
+                labels[root] = label;
+                int head = 0;
+                int tail = 0;
+                queue[tail++] = root;
+
+                while (head < tail) {
+                    final int current = queue[head++];
+
+                    final IntBuffer offsets = structure.adjacencyOffsets;
+
+                    for (int i = offsets.get(current); i < offsets.get(current + 1); ++i) {
+                        final int neighbour = structure.adjacentVertices.get(i);
+
+                        if (labels[neighbour] == 0 && !removedEdges.get(structure.adjacentEdges.get(i))) {
+                            labels[neighbour] = label;
+                            queue[tail++] = neighbour;
+                        }
+                    }
+                }
+            }
+        }
+
+        return label;
+    }
+
+    @Override
+    public @NotNull @Immutable List<Graph<V>> getConnectedComponents() {
+        if (verticesNumber > 0) {
+            final int[] labels = new int[structure.ids.length];
+            final int componentsNumber = labelConnectedComponents(labels);
+            final List<StructureBuilder<V>> builders = new ArrayList<>(componentsNumber);
+            final int[] localVertices = new int[structure.ids.length];
+            final int[] localEdges = new int[structure.sources.capacity()];
+
+            for (int i = 0; i < componentsNumber; ++i) {
+                builders.add(new StructureBuilder<>());
+            }
+
+            for (int vertex = 0; vertex < labels.length; ++vertex) {
+                if (labels[vertex] > 0) {
+                    localVertices[vertex] = builders.get(labels[vertex] - 1).addVertex(
+                            idAt(vertex), structure.xs.get(vertex), structure.ys.get(vertex));
+                }
+            }
+
+            for (int edge = removedEdges.nextClearBit(0); edge < localEdges.length;
+                    edge = removedEdges.nextClearBit(edge + 1)) {
+
+                final int source = structure.sources.get(edge);
+
+                localEdges[edge] = builders.get(labels[source] - 1).addEdge(
+                        localVertices[source], localVertices[structure.targets.get(edge)]);
+            }
+
+            for (int edge = removedEdges.nextClearBit(0); edge < localEdges.length;
+                    edge = removedEdges.nextClearBit(edge + 1)) {
+
+                for (int i = structure.crossingOffsets.get(edge); i < structure.crossingOffsets.get(edge + 1); ++i) {
+                    final int intersecting = structure.crossingEdges.get(i);
+                    final int label = labels[structure.sources.get(edge)];
+
+                    if (edge < intersecting && !removedEdges.get(intersecting) &&
+                            labels[structure.sources.get(intersecting)] == label) {
+
+                        builders.get(label - 1).addIntersection(localEdges[edge], localEdges[intersecting]);
+                    }
+                }
+            }
+
+            final List<Graph<V>> connectedComponents = new ArrayList<>(componentsNumber);
+
+            for (final StructureBuilder<V> builder : builders) {
+                connectedComponents.add(new CompactUndirectedGraph<>(builder.build(structure.offHeap)));
+            }
+
+            return Collections.unmodifiableList(connectedComponents);
+        } else {
+            return Collections.singletonList(new CompactUndirectedGraph<>());
+        }
+    }
+
+    @Override
+    public @NotNull Graph<V> subGraph(
+            final @NotNull Collection<Vertex<V>> vertices, final @NotNull Collection<Edge<V>> edges) {
+
+        final StructureBuilder<V> builder = new StructureBuilder<>();
+        final Map<Integer, Integer> localEdges = new HashMap<>();
+        vertices.forEach(builder::addVertex);
+
+        for (final Edge<V> edge : edges) {
+            localEdges.put(indexOf(edge), builder.addEdge(edge));
+        }
+
+        for (final Map.Entry<Integer, Integer> localEdge : localEdges.entrySet()) {
+            final int edge = localEdge.getKey();
+
+            for (int i = structure.crossingOffsets.get(edge); i < structure.crossingOffsets.get(edge + 1); ++i) {
+                final Integer intersecting = localEdges.get(structure.crossingEdges.get(i));
+
+                if (intersecting != null && localEdge.getValue() < intersecting) {
+                    builder.addIntersection(localEdge.getValue(), intersecting);
+                }
+            }
+        }
+
+        return new CompactUndirectedGraph<>(builder.build(structure.offHeap));
+    }
+
+    // iterative Tarjan's algorithm over all connected components
+    @Override
+    public @NotNull @Immutable List<Edge<V>> findBridges() {
+        final int n = structure.ids.length;
+        final int[] inTime = new int[n];
+        final int[] upTime = new int[n];
+        final int[] parentEdges = new int[n];
+        final int[] nextNeighbours = new int[n];
+        final int[] stack = new int[n];
+        final List<Edge<V>> bridges = new ArrayList<>();
+        int time = 0;
+
+        for (int root = removedVertices.nextClearBit(0); root < n; root = removedVertices.nextClearBit(root + 1)) {
+            if (inTime[root] == 0) {
+                int top = 0;
+                stack[top] = root;
+                parentEdges[root] = -1;
+                inTime[root] = upTime[root] = ++time;
+                nextNeighbours[root] = structure.adjacencyOffsets.get(root);
+
+                while (top >= 0) {
+                    final int visiting = stack[top];
+
+                    if (nextNeighbours[visiting] < structure.adjacencyOffsets.get(visiting + 1)) {
+                        final int i = nextNeighbours[visiting]++;
+                        final int edge = structure.adjacentEdges.get(i);
+                        final int child = structure.adjacentVertices.get(i);
+
+                        if (edge != parentEdges[visiting] && !removedEdges.get(edge)) {
+                            if (inTime[child] == 0) {
+                                parentEdges[child] = edge;
+                                inTime[child] = upTime[child] = ++time;
+                                nextNeighbours[child] = structure.adjacencyOffsets.get(child);
+                                stack[++top] = child;
+                            } else {
+                                upTime[visiting] = Math.min(upTime[visiting], inTime[child]);
+                            }
+                        }
+                    } else {
+                        top--;
+                        final int edge = parentEdges[visiting];
+
+                        if (edge >= 0) {
+                            final int parent = structure.sources.get(edge) == visiting
+                                    ? structure.targets.get(edge)
+                                    : structure.sources.get(edge);
+
+                            upTime[parent] = Math.min(upTime[parent], upTime[visiting]);
+
+                            if (upTime[visiting] > inTime[parent]) {
+                                bridges.add(edgeAt(edge));
+                            }
+                        }
+                    }
+                }
+            }
+        }
+
+        return Collections.unmodifiableList(bridges);
+    }
+
+    @Override
+    public @NotNull Graph<V> freeze() {
+        return FrozenGraph.of(this);
+    }
+
+    @Override
+    public @NotNull Graph<V> copy() {
+        return new CompactUndirectedGraph<>(this);
+    }
+
+    // copy with vertices renumbered along the Hilbert curve of their coordinates and edges along the curve of their
+    // midpoints, adjacency and crossing lists are sorted by the new numbers
+    public @NotNull CompactUndirectedGraph<V> reordered() {
+        final Envelope bounds = new Envelope();
+
+        for (int vertex = removedVertices.nextClearBit(0); vertex < structure.ids.length;
+                vertex = removedVertices.nextClearBit(vertex + 1)) {
+
+            bounds.expandToInclude(structure.xs.get(vertex), structure.ys.get(vertex));
+        }
+
+        // a Hilbert index takes 30 bits, so the index of a vertex or an edge fits next to it in a sortable long
+        final long[] vertexOrder = new long[verticesNumber];
+        final long[] edgeOrder = new long[edgesNumber];
+        int position = 0;
+
+        for (int vertex = removedVertices.nextClearBit(0); vertex < structure.ids.length;
+                vertex = removedVertices.nextClearBit(vertex + 1)) {
+
+            final int index = Geometry.hilbertIndexOf(structure.xs.get(vertex), structure.ys.get(vertex), bounds);
+            vertexOrder[position++] = (long) index << 32 | vertex;
+        }
+
+        position = 0;
+
+        for (int edge = removedEdges.nextClearBit(0); edge < structure.sources.capacity();
+                edge = removedEdges.nextClearBit(edge + 1)) {
+
+            final int source = structure.sources.get(edge);
+            final int target = structure.targets.get(edge);
+            final int index = Geometry.hilbertIndexOf(
+                    (structure.xs.get(source) + structure.xs.get(target)) / 2,
+                    (structure.ys.get(source) + structure.ys.get(target)) / 2,
+                    bounds);
+
+            edgeOrder[position++] = (long) index << 32 | edge;
+        }
+
+        Arrays.sort(vertexOrder);
+        Arrays.sort(edgeOrder);
+
+        final Object[] ids = new Object[verticesNumber];
+        final Map<V, Integer> indices = new HashMap<>();
+        final double[] xs = new double[verticesNumber];
+        final double[] ys = new double[verticesNumber];
+        final int[] newVertices = new int[structure.ids.length];
+
+        for (int vertex = 0; vertex < verticesNumber; ++vertex) {
+            final int oldVertex = (int) vertexOrder[vertex];
+            newVertices[oldVertex] = vertex;
+            ids[vertex] = structure.ids[oldVertex];
+            indices.put(idAt(oldVertex), vertex);
+            xs[vertex] = structure.xs.get(oldVertex);
+            ys[vertex] = structure.ys.get(oldVertex);
+        }
+
+        final int[] sources = new int[edgesNumber];
+        final int[] targets = new int[edgesNumber];
+        final int[] newEdges = new int[structure.sources.capacity()];
+
+        for (int edge = 0; edge < edgesNumber; ++edge) {
+            final int oldEdge = (int) edgeOrder[edge];
+            newEdges[oldEdge] = edge;
+            sources[edge] = newVertices[structure.sources.get(oldEdge)];
+            targets[edge] = newVertices[structure.targets.get(oldEdge)];
+        }
+
+        // pairs go in order of their smaller edges and then of their larger ones, so every crossing list is sorted
+        final int[] intersections = new int[2 * (int) intersectionsNumber];
+        final int[] crossings = new int[getIntersectionIndex()];
+        position = 0;
+
+        for (int edge = 0; edge < edgesNumber; ++edge) {
+            final int oldEdge = (int) edgeOrder[edge];
+            int crossingsNumber = 0;
+
+            for (int i = structure.crossingOffsets.get(oldEdge); i < structure.crossingOffsets.get(oldEdge + 1); ++i) {
+                final int intersecting = structure.crossingEdges.get(i);
+
+                if (!removedEdges.get(intersecting) && newEdges[intersecting] > edge) {
+                    crossings[crossingsNumber++] = newEdges[intersecting];
+                }
+            }
+
+            Arrays.sort(crossings, 0, crossingsNumber);
+
+            for (int i = 0; i < crossingsNumber; ++i) {
+                intersections[position++] = edge;
+                intersections[position++] = crossings[i];
+            }
+        }
+
+        return new CompactUndirectedGraph<>(
+                Structure.of(ids, indices, xs, ys, sources, targets, intersections, structure.offHeap));
+    }
+
+    private void rebuild(
+            final @NotNull Collection<Vertex<V>> newVertices, final @NotNull Collection<Edge<V>> newEdges) {
+
+        final StructureBuilder<V> builder = new StructureBuilder<>();
+        final int[] edgeIndices = new int[structure.sources.capacity()];
+        final Map<Edge<V>, Integer> sweptEdges = new HashMap<>();
+
+        for (int vertex = removedVertices.nextClearBit(0); vertex < structure.ids.length;
+                vertex = removedVertices.nextClearBit(vertex + 1)) {
+
+            builder.addVertex(idAt(vertex), structure.xs.get(vertex), structure.ys.get(vertex));
+        }
+
+        newVertices.forEach(builder::addVertex);
+
+        for (int edge = removedEdges.nextClearBit(0); edge < edgeIndices.length;
+                edge = removedEdges.nextClearBit(edge + 1)) {
+
+            final Edge<V> edgeObject = edgeAt(edge);
+            edgeIndices[edge] = builder.addEdge(edgeObject);
+            sweptEdges.put(edgeObject, edgeIndices[edge]);
+
+            for (int i = structure.crossingOffsets.get(edge); i < structure.crossingOffsets.get(edge + 1); ++i) {
+                final int intersecting = structure.crossingEdges.get(i);
+
+                if (intersecting < edge && !removedEdges.get(intersecting)) {
+                    builder.addIntersection(edgeIndices[intersecting], edgeIndices[edge]);
+                }
+            }
+        }
+
+        final int firstNewEdge = sweptEdges.size();
+
+        for (final Edge<V> edge : newEdges) {
+            sweptEdges.put(edge, builder.addEdge(edge));
+        }
+
+        Geometry.findIntersections(sweptEdges.keySet(), (edge1, edge2) -> {
+            final int index1 = sweptEdges.get(edge1);
+            final int index2 = sweptEdges.get(edge2);
+
+            if (index1 >= firstNewEdge || index2 >= firstNewEdge) {
+                builder.addIntersection(index1, index2);
+            }
+        });
+
+        reset(builder.build(structure.offHeap));
+    }
+
+    private @NotNull V idAt(final int vertex) {
+        @SuppressWarnings("unchecked")
+        final V id = (V) structure.ids[vertex];
+        return id;
+    }
+
+    private @NotNull Vertex<V> vertexAt(final int vertex) {
+        return new ColumnVertex<>(structure, vertex);
+    }
+
+    private @NotNull Edge<V> edgeAt(final int edge) {
+        return new ColumnEdge<>(structure, edge);
+    }
+
+    private int indexOf(final @NotNull Vertex<?> vertex) {
+        if (vertex instanceof ColumnVertex && ((ColumnVertex<?>) vertex).structure == structure) {
+            return ((ColumnVertex<?>) vertex).index;
+        }
+
+        return structure.indices.getOrDefault(vertex.getId(), -1);
+    }
+
+    private int indexOf(final @NotNull Edge<?> edge) {
+        if (edge instanceof ColumnEdge && ((ColumnEdge<?>) edge).structure == structure) {
+            return ((ColumnEdge<?>) edge).index;
+        }
+
+        final ImmutablePair<? extends Vertex<?>, ? extends Vertex<?>> vertices = edge.asVerticesPair();
+        return edgeIndexOf(indexOf(vertices.left), indexOf(vertices.right));
+    }
+
+    private int edgeIndexOf(final int vertex1, final int vertex2) {
+        if (vertex1 < 0 || vertex2 < 0) {
+            return -1;
+        }
+
+        final IntBuffer offsets = structure.adjacencyOffsets;
+        final boolean swap =
+                offsets.get(vertex1 + 1) - offsets.get(vertex1) > offsets.get(vertex2 + 1) - offsets.get(vertex2);
+        final int from = swap ? vertex2 : vertex1;
+        final int to = swap ? vertex1 : vertex2;
+
+        for (int i = offsets.get(from); i < offsets.get(from + 1); ++i) {
+            if (structure.adjacentVertices.get(i) == to) {
+                return structure.adjacentEdges.get(i);
+            }
+        }
+
+        return -1;
+    }
+
+    private boolean isPresentVertex(final int vertex) {
+        return vertex >= 0 && !removedVertices.get(vertex);
+    }
+
+    private boolean isPresentEdge(final int edge) {
+        return edge >= 0 && !removedEdges.get(edge);
+    }
+
+    @Override
+    public String toString() {
+        return String.format(
+                "n = %d%nm = %d%nintersection index = %d%nintersections number = %d",
+                getVerticesNumber(), getEdgesNumber(), getIntersectionIndex(), intersectionsNumber);
+    }
+
+    private static abstract class IndexIterator<T> implements Iterator<T> {
+
+        private final @NotNull BitSet removed;
+        private final int size;
+        private int next;
+
+        private IndexIterator(final @NotNull BitSet removed, final int size) {
+            this.removed = removed;
+            this.size = size;
+            next = removed.nextClearBit(0);
+        }
+
+        @Override
+        public boolean hasNext() {
+            return next < size;
+        }
+
+        @Override
+        public T next() {
+            if (!hasNext()) {
+                throw new NoSuchElementException();
+            }
+
+            final int current = next;
+            next = removed.nextClearBit(next + 1);
+            return get(current);
+        }
+
+        protected abstract @NotNull T get(int index);
+    }
+
+    // equal to any vertex with the same ID
+    private static final class ColumnVertex<V> implements Vertex<V> {
+
+        private final @NotNull Structure<V> structure;
+        private final int index;
+
+        private ColumnVertex(final @NotNull Structure<V> structure, final int index) {
+            this.structure = structure;
+            this.index = index;
+        }
+
+        @Override
+        @SuppressWarnings("unchecked")
+        public @NotNull @Immutable V getId() {
+            return (V) structure.ids[index];
+        }
+
+        @Override
+        public @NotNull @Immutable Coordinate getCoordinates() {
+            return new Coordinate(getX(), getY());
+        }
+
+        @Override
+        public double getX() {
+            return structure.xs.get(index);
+        }
+
+        @Override
+        public double getY() {
+            return structure.ys.get(index);
+        }
+
+        @Override
+        public boolean equals(final Object o) {
+            if (o instanceof ColumnVertex && ((ColumnVertex<?>) o).structure == structure) {
+                return ((ColumnVertex<?>) o).index == index;
+            }
+
+            return o instanceof Vertex && getId().equals(((Vertex<?>) o).getId());
+        }
+
+        @Override
+        public int hashCode() {
+            return SimpleVertex.hashOf(getId());
+        }
+    }
+
+    // equal to any undirected edge with the same vertices, vertices are created on first request
+    // and cached without synchronization, racing threads may only create equal vertices twice
+    private static final class ColumnEdge<V> implements Edge<V> {
+
+        private final @NotNull Structure<V> structure;
+        private final int index;
+        private @Nullable ImmutablePair<Vertex<V>, Vertex<V>> vertices;
+
+        private ColumnEdge(final @NotNull Structure<V> structure, final int index) {
+            this.structure = structure;
+            this.index = index;
+        }
+
+        @Override
+        public @NotNull ImmutablePair<Vertex<V>, Vertex<V>> asVerticesPair() {
+            ImmutablePair<Vertex<V>, Vertex<V>> vertices = this.vertices;
+
+            if (vertices == null) {
+                vertices = ImmutablePair.of(
+                        new ColumnVertex<>(structure, structure.sources.get(index)),
+                        new ColumnVertex<>(structure, structure.targets.get(index)));
+
+                this.vertices = vertices;
+            }
+
+            return vertices;
+        }
+
+        @Override
+        public @NotNull Vertex<V> getVertex1() {
+            return asVerticesPair().left;
+        }
+
+        @Override
+        public @NotNull Vertex<V> getVertex2() {
+            return asVerticesPair().right;
+        }
+
+        @Override
+        public boolean equals(final Object o) {
+            if (this == o) {
+                return true;
+            } else if (o instanceof ColumnEdge && ((ColumnEdge<?>) o).structure == structure) {
+                return ((ColumnEdge<?>) o).index == index;
+            } else if (!(o instanceof Edge)) {
+                return false;
+            }
+
+            final Object id1 = structure.ids[structure.sources.get(index)];
+            final Object id2 = structure.ids[structure.targets.get(index)];
+            final Object anotherId1 = ((Edge<?>) o).getVertex1().getId();
+            final Object anotherId2 = ((Edge<?>) o).getVertex2().getId();
+            return id1.equals(anotherId1) && id2.equals(anotherId2) || id1.equals(anotherId2) && id2.equals(anotherId1);
+        }
+
+        @Override
+        public int hashCode() {
+            return SimpleUndirectedEdge.hashOf(
+                    SimpleVertex.hashOf(structure.ids[structure.sources.get(index)]),
+                    SimpleVertex.hashOf(structure.ids[structure.targets.get(index)]));
+        }
+    }
+
+    // CSR columns: neighbours of vertex v are at [adjacencyOffsets[v], adjacencyOffsets[v + 1])
+    // and edges crossing edge e are at [crossingOffsets[e], crossingOffsets[e + 1])
+    // structures derived from this one keep the same kind of storage
+    private static final class Structure<V> {
+
+        private final @NotNull Object[] ids;
+        private final @NotNull Map<V, Integer> indices;
+        private final @NotNull DoubleBuffer xs;
+        private final @NotNull DoubleBuffer ys;
+        private final @NotNull IntBuffer sources;
+        private final @NotNull IntBuffer targets;
+        private final @NotNull IntBuffer adjacencyOffsets;
+        private final @NotNull IntBuffer adjacentVertices;
+        private final @NotNull IntBuffer adjacentEdges;
+        private final @NotNull IntBuffer crossingOffsets;
+        private final @NotNull IntBuffer crossingEdges;
+        private final boolean offHeap;
+
+        private static <V> @NotNull Structure<V> of(
+                final @NotNull Object[] ids,
+                final @NotNull Map<V, Integer> indices,
+                final @NotNull double[] xs,
+                final @NotNull double[] ys,
+                final @NotNull int[] sources,
+                final @NotNull int[] targets,
+                final @NotNull int[] intersections,
+                final boolean offHeap) {
+
+            final int[] firsts = new int[intersections.length / 2];
+            final int[] seconds = new int[intersections.length / 2];
+
+            for (int i = 0; i < firsts.length; ++i) {
+                firsts[i] = intersections[2 * i];
+                seconds[i] = intersections[2 * i + 1];
+            }
+
+            final int[] crossingOffsets = new int[sources.length + 1];
+            final int[] crossingEdges = new int[intersections.length];
+            final int[] crossingPositions = countOffsets(crossingOffsets, firsts, seconds);
+
+            for (int i = 0; i < firsts.length; ++i) {
+                crossingEdges[crossingPositions[firsts[i]]++] = seconds[i];
+                crossingEdges[crossingPositions[seconds[i]]++] = firsts[i];
+            }
+
+            return new Structure<>(ids, indices, column(xs, offHeap), column(ys, offHeap), column(sources, offHeap),
+                    column(targets, offHeap), column(crossingOffsets, offHeap), column(crossingEdges, offHeap));
+        }
+
+        private Structure(
+                final @NotNull Object[] ids,
+                final @NotNull Map<V, Integer> indices,
+                final @NotNull DoubleBuffer xs,
+                final @NotNull DoubleBuffer ys,
+                final @NotNull IntBuffer sources,
+                final @NotNull IntBuffer targets,
+                final @NotNull IntBuffer crossingOffsets,
+                final @NotNull IntBuffer crossingEdges) {
+
+            this.ids = ids;
+            this.indices = indices;
+            this.xs = xs;
+            this.ys = ys;
+            this.sources = sources;
+            this.targets = targets;
+            this.crossingOffsets = crossingOffsets;
+            this.crossingEdges = crossingEdges;
+            offHeap = xs.isDirect();
+
+            final int edgesNumber = sources.capacity();
+            final int[] edgeSources = new int[edgesNumber];
+            final int[] edgeTargets = new int[edgesNumber];
+            sources.duplicate().get(edgeSources);
+            targets.duplicate().get(edgeTargets);
+
+            final int[] offsets = new int[ids.length + 1];
+            final int[] vertices = new int[2 * edgesNumber];
+            final int[] edges = new int[2 * edgesNumber];
+            final int[] adjacencyPositions = countOffsets(offsets, edgeSources, edgeTargets);
+
+            for (int edge = 0; edge < edgesNumber; ++edge) {
+                vertices[adjacencyPositions[edgeSources[edge]]] = edgeTargets[edge];
+                edges[adjacencyPositions[edgeSources[edge]]++] = edge;
+                vertices[adjacencyPositions[edgeTargets[edge]]] = edgeSources[edge];
+                edges[adjacencyPositions[edgeTargets[edge]]++] = edge;
+            }
+
+            adjacencyOffsets = column(offsets, offHeap);
+            adjacentVertices = column(vertices, offHeap);
+            adjacentEdges = column(edges, offHeap);
+        }
+
+        // returns a copy of the offsets to be used as insertion positions
+        private static @NotNull int[] countOffsets(
+                final @NotNull int[] offsets, final @NotNull int[] firsts, final @NotNull int[] seconds) {
+
+            for (int i = 0; i < firsts.length; ++i) {
+                offsets[firsts[i] + 1]++;
+                offsets[seconds[i] + 1]++;
+            }
+
+            for (int i = 1; i < offsets.length; ++i) {
+                offsets[i] += offsets[i - 1];
+            }
+
+            return Arrays.copyOf(offsets, offsets.length - 1);
+        }
+
+        private static @NotNull DoubleBuffer column(final @NotNull double[] values, final boolean offHeap) {
+            if (!offHeap) {
+                return DoubleBuffer.wrap(values);
+            }
+
+            final DoubleBuffer column = ByteBuffer.allocateDirect(Double.BYTES * values.length)
+                    .order(ByteOrder.nativeOrder())
+                    .asDoubleBuffer();
+
+            column.put(values).clear();
+            return column;
+        }
+
+        private static @NotNull IntBuffer column(final @NotNull int[] values, final boolean offHeap) {
+            if (!offHeap) {
+                return IntBuffer.wrap(values);
+            }
+
+            final IntBuffer column = ByteBuffer.allocateDirect(Integer.BYTES * values.length)
+                    .order(ByteOrder.nativeOrder())
+                    .asIntBuffer();
+
+            column.put(values).clear();
+            return column;
+        }
+    }
+
+    private static final class StructureBuilder<V> {
+
+        private final @NotNull Map<V, Integer> indices = new HashMap<>();
+        private @NotNull Object[] ids = new Object[16];
+        private @NotNull double[] xs = new double[16];
+        private @NotNull double[] ys = new double[16];
+        private @NotNull int[] sources = new int[16];
+        private @NotNull int[] targets = new int[16];
+        private @NotNull int[] intersections = new int[16];
+        private int verticesNumber;
+        private int edgesNumber;
+        private int intersectionsLength;
+
+        // a vertex that is already added keeps its coordinates
+        private int addVertex(final @NotNull V id, final double x, final double y) {
+            final @Nullable Integer index = indices.get(id);
+
+            if (index != null) {
+                return index;
+            }
+
+            if (verticesNumber == ids.length) {
+                ids = Arrays.copyOf(ids, 2 * verticesNumber);
+                xs = Arrays.copyOf(xs, 2 * verticesNumber);
+                ys = Arrays.copyOf(ys, 2 * verticesNumber);
+            }
+
+            ids[verticesNumber] = id;
+            xs[verticesNumber] = x;
+            ys[verticesNumber] = y;
+            indices.put(id, verticesNumber);
+            return verticesNumber++;
+        }
+
+        private int addVertex(final @NotNull Vertex<V> vertex) {
+            return addVertex(vertex.getId(), vertex.getX(), vertex.getY());
+        }
+
+        private int addEdge(final int source, final int target) {
+            if (edgesNumber == sources.length) {
+                sources = Arrays.copyOf(sources, 2 * edgesNumber);
+                targets = Arrays.copyOf(targets, 2 * edgesNumber);
+            }
+
+            sources[edgesNumber] = source;
+            targets[edgesNumber] = target;
+            return edgesNumber++;
+        }
+
+        private int addEdge(final @NotNull Edge<V> edge) {
+            final ImmutablePair<Vertex<V>, Vertex<V>> vertices = edge.asVerticesPair();
+            return addEdge(addVertex(vertices.left), addVertex(vertices.right));
+        }
+
+        private void addIntersection(final int edge1, final int edge2) {
+            if (intersectionsLength == intersections.length) {
+                intersections = Arrays.copyOf(intersections, 2 * intersectionsLength);
+            }
+
+            intersections[intersectionsLength++] = edge1;
+            intersections[intersectionsLength++] = edge2;
+        }
+
+        private @NotNull Structure<V> build(final boolean offHeap) {
+            return Structure.of(
+                    Arrays.copyOf(ids, verticesNumber),
+                    indices,
+                    Arrays.copyOf(xs, verticesNumber),
+                    Arrays.copyOf(ys, verticesNumber),
+                    Arrays.copyOf(sources, edgesNumber),
+                    Arrays.copyOf(targets, edgesNumber),
+                    Arrays.copyOf(intersections, intersectionsLength),
+                    offHeap);
+        }
+    }
+}
@@ -0,0 +1,568 @@
+package by.zsp.ncst.graph.impl;
+
+import by.zsp.ncst.exception.GraphException;
+import by.zsp.ncst.graph.Edge;
+import by.zsp.ncst.graph.Graph;
+import by.zsp.ncst.graph.GraphAnalysis;
+import by.zsp.ncst.graph.Vertex;
+import by.zsp.ncst.util.Geometry;
+import by.zsp.ncst.util.annotation.Immutable;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.function.Function;
+
+// graph that several threads can add edges to at once, edges are indexed by a grid of cells with a lock per cell
+// a new edge is put into its cells before they're scanned, so of two crossing edges added at once at least one
+// finds the other, additions run concurrently, removals, copies and splitting into components block them
+public class ConcurrentUndirectedGraph<V> implements Graph<V> {
+
+    // edges covering more cells aren't put into cells, they're kept in a single list and scan all edges
+    private static final int MAX_CELLS_PER_EDGE = 64;
+
+    private final double cellSize;
+    // canonical vertices by ID
+    private final @NotNull ConcurrentMap<V, Vertex<V>> vertices = new ConcurrentHashMap<>();
+    private final @NotNull ConcurrentMap<Vertex<V>, Set<Vertex<V>>> adjacency = new ConcurrentHashMap<>();
+    private final @NotNull ConcurrentMap<Edge<V>, EdgeEntry<V>> edges = new ConcurrentHashMap<>();
+    private final @NotNull ConcurrentMap<Long, List<EdgeEntry<V>>> cells = new ConcurrentHashMap<>();
+    private final @NotNull List<EdgeEntry<V>> longEdges = new ArrayList<>();
+    private final @NotNull AtomicLong serials = new AtomicLong();
+    private final @NotNull LongAdder intersectionsNumber = new LongAdder();
+    private final @NotNull ReadWriteLock lock = new ReentrantReadWriteLock();
+
+    // cells should be about the length of a typical edge
+    public ConcurrentUndirectedGraph(final double cellSize) {
+        if (!(cellSize > 0) || Double.isInfinite(cellSize)) {
+            throw new GraphException("Cell size must be positive");
+        }
+
+        this.cellSize = cellSize;
+    }
+
+    @Override
+    public @NotNull @Immutable Set<Vertex<V>> getVertices() {
+        return Collections.unmodifiableSet(adjacency.keySet());
+    }
+
+    @Override
+    public int getVerticesNumber() {
+        return adjacency.size();
+    }
+
+    @Override
+    public @NotNull @Immutable Set<Edge<V>> getEdges() {
+        return Collections.unmodifiableSet(edges.keySet());
+    }
+
+    @Override
+    public int getEdgesNumber() {
+        return edges.size();
+    }
+
+    @Override
+    public boolean addVertex(final @NotNull V id, final double x, final double y) {
+        return addVertex(vertexOf(id, x, y));
+    }
+
+    @Override
+    public boolean addVertex(final @NotNull Vertex<V> vertex) {
+        lock.readLock().lock();
+
+        try {
+            if (vertices.putIfAbsent(vertex.getId(), vertex) == null) {
+                adjacency.computeIfAbsent(vertex, key -> ConcurrentHashMap.newKeySet());
+                return true;
+            } else {
+                return false;
+            }
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    @Override
+    public boolean removeVertex(final @NotNull V id) {
+        final Vertex<V> vertex = vertices.get(id);
+        return vertex != null && removeVertex(vertex);
+    }
+
+    @Override
+    public boolean removeVertex(final @NotNull Vertex<V> vertex) {
+        lock.writeLock().lock();
+
+        try {
+            final Set<Vertex<V>> neighbours = adjacency.get(vertex);
+
+            if (neighbours == null) {
+                return false;
+            }
+
+            for (final Vertex<V> neighbour : new ArrayList<>(neighbours)) {
+                removeEdge(edgeOf(vertex, neighbour));
+            }
+
+            adjacency.remove(vertex);
+            vertices.remove(vertex.getId());
+            return true;
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    @Override
+    public @NotNull Vertex<V> vertexOf(final @NotNull V id, final double x, final double y) {
+        final Vertex<V> stored = vertices.get(id);
+        return stored != null && stored.getX() == x && stored.getY() == y ? stored : new SimpleVertex<>(id, x, y);
+    }
+
+    @Override
+    public boolean addEdge(
+            final @NotNull V idFrom,
+            final double xFrom,
+            final double yFrom,
+            final @NotNull V idTo,
+            final double xTo,
+            final double yTo)
+            throws GraphException {
+
+        return addEdge(edgeOf(idFrom, xFrom, yFrom, idTo, xTo, yTo));
+    }
+
+    @Override
+    public boolean addEdge(final @NotNull Vertex<V> from, final @NotNull Vertex<V> to) throws GraphException {
+        return addEdge(edgeOf(from, to));
+    }
+
+    @Override
+    public boolean addEdge(final @NotNull Edge<V> newEdge) throws GraphException {
+        if (Objects.equals(newEdge.getVertex1(), newEdge.getVertex2())) {
+            throw new GraphException("Loops are forbidden");
+        }
+
+        if (edges.containsKey(newEdge)) {
+            return false;
+        }
+
+        lock.readLock().lock();
+
+        try {
+            final Vertex<V> vertex1 = storedVertexOf(newEdge.getVertex1());
+            final Vertex<V> vertex2 = storedVertexOf(newEdge.getVertex2());
+            final Edge<V> edge = new SimpleUndirectedEdge<>(vertex1, vertex2);
+            final EdgeEntry<V> entry = new EdgeEntry<>(edge, serials.incrementAndGet());
+
+            if (edges.putIfAbsent(edge, entry) != null) {
+                return false;
+            }
+
+            adjacency.computeIfAbsent(vertex1, key -> ConcurrentHashMap.newKeySet()).add(vertex2);
+            adjacency.computeIfAbsent(vertex2, key -> ConcurrentHashMap.newKeySet()).add(vertex1);
+
+            if (index(entry)) {
+                for (final EdgeEntry<V> candidate : candidatesOf(entry)) {
+                    if (Geometry.isIntersecting(candidate.edge, edge)) {
+                        addIntersection(candidate, entry);
+                    }
+                }
+            } else {
+                for (final EdgeEntry<V> candidate : edges.values()) {
+                    if (candidate != entry && Geometry.isIntersecting(candidate.edge, edge)) {
+                        addIntersection(candidate, entry);
+                    }
+                }
+            }
+
+            return true;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    @Override
+    public boolean addEdges(final @NotNull Collection<Edge<V>> newEdges) throws GraphException {
+        boolean added = false;
+
+        for (final Edge<V> newEdge : newEdges) {
+            added |= addEdge(newEdge);
+        }
+
+        return added;
+    }
+
+    @Override
+    public boolean removeEdge(final @NotNull V from, final @NotNull V to) {
+        final Vertex<V> vertex1 = vertices.get(from);
+        final Vertex<V> vertex2 = vertices.get(to);
+        return vertex1 != null && vertex2 != null && removeEdge(edgeOf(vertex1, vertex2));
+    }
+
+    @Override
+    public boolean removeEdge(final @NotNull Vertex<V> from, final @NotNull Vertex<V> to) {
+        return removeEdge(edgeOf(from, to));
+    }
+
+    @Override
+    public boolean removeEdge(final @NotNull Edge<V> edge) {
+        lock.writeLock().lock();
+
+        try {
+            final EdgeEntry<V> entry = edges.remove(edge);
+
+            if (entry == null) {
+                return false;
+            }
+
+            final Vertex<V> vertex1 = entry.edge.getVertex1();
+            final Vertex<V> vertex2 = entry.edge.getVertex2();
+            adjacency.get(vertex1).remove(vertex2);
+            adjacency.get(vertex2).remove(vertex1);
+
+            for (final Edge<V> intersecting : entry.crossings) {
+                edges.get(intersecting).crossings.remove(entry.edge);
+            }
+
+            intersectionsNumber.add(-entry.crossings.size());
+            final long[] cellKeys = cellsOf(entry.edge);
+
+            if (cellKeys != null) {
+                for (final long cellKey : cellKeys) {
+                    cells.get(cellKey).remove(entry);
+                }
+            } else {
+                longEdges.remove(entry);
+            }
+
+            return true;
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    @Override
+    public boolean removeIntersecting(final @NotNull Edge<V> edge) {
+        lock.writeLock().lock();
+
+        try {
+            final EdgeEntry<V> entry = edges.get(edge);
+
+            if (entry == null || entry.crossings.isEmpty()) {
+                return false;
+            }
+
+            for (final Edge<V> intersecting : new ArrayList<>(entry.crossings)) {
+                removeEdge(intersecting);
+            }
+
+            return true;
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    @Override
+    public @NotNull Edge<V> edgeOf(
+            final @NotNull V idFrom,
+            final double xFrom,
+            final double yFrom,
+            final @NotNull V idTo,
+            final double xTo,
+            final double yTo) {
+
+        return edgeOf(vertexOf(idFrom, xFrom, yFrom), vertexOf(idTo, xTo, yTo));
+    }
+
+    @Override
+    public @NotNull Edge<V> edgeOf(final @NotNull Vertex<V> vertex1, final @NotNull Vertex<V> vertex2) {
+        final Edge<V> edge = new SimpleUndirectedEdge<>(vertex1, vertex2);
+        final EdgeEntry<V> entry = edges.get(edge);
+        return entry != null ? entry.edge : edge;
+    }
+
+    @Override
+    public boolean isDirected() {
+        return false;
+    }
+
+    @Override
+    public @NotNull @Immutable Collection<Vertex<V>> getNeighbours(final @NotNull V id) {
+        final Vertex<V> vertex = vertices.get(id);
+        return vertex != null ? getNeighbours(vertex) : Collections.emptySet();
+    }
+
+    @Override
+    public @NotNull @Immutable Collection<Vertex<V>> getNeighbours(final @NotNull Vertex<V> vertex) {
+        return Collections.unmodifiableSet(adjacency.getOrDefault(vertex, Collections.emptySet()));
+    }
+
+    @Override
+    public @NotNull @Immutable Collection<Edge<V>> getIntersecting(final @NotNull Edge<V> edge) {
+        final EdgeEntry<V> entry = edges.get(edge);
+        return entry != null ? Collections.unmodifiableSet(entry.crossings) : Collections.emptySet();
+    }
+
+    @Override
+    public int getIntersectionIndex() {
+        return findMostIntersectingEdge().map(entry -> entry.crossings.size()).orElse(0);
+    }
+
+    @Override
+    public @NotNull Optional<Edge<V>> getMostIntersectingEdge() {
+        return findMostIntersectingEdge().map(entry -> entry.edge);
+    }
+
+    private @NotNull Optional<EdgeEntry<V>> findMostIntersectingEdge() {
+        EdgeEntry<V> mostIntersecting = null;
+
+        if (isIntersecting()) {
+            for (final EdgeEntry<V> entry : edges.values()) {
+                if (!entry.crossings.isEmpty() &&
+                        (mostIntersecting == null || mostIntersecting.crossings.size() < entry.crossings.size())) {
+
+                    mostIntersecting = entry;
+                }
+            }
+        }
+
+        return Optional.ofNullable(mostIntersecting);
+    }
+
+    @Override
+    public boolean isIntersecting() {
+        return intersectionsNumber.sum() > 0;
+    }
+
+    @Override
+    public boolean isConnected() {
+        return analyze().isConnected();
+    }
+
+    @Override
+    public @NotNull @Immutable List<Graph<V>> getConnectedComponents() {
+        lock.writeLock().lock();
+
+        try {
+            if (adjacency.isEmpty()) {
+                return Collections.singletonList(new ConcurrentUndirectedGraph<>(cellSize));
+            }
+
+            final GraphAnalysis<V> analysis = analyze();
+            final List<List<Vertex<V>>> componentVertices = new ArrayList<>();
+            final List<List<Edge<V>>> componentEdges = new ArrayList<>();
+
+            for (int i = 0; i < analysis.getComponentsNumber(); ++i) {
+                componentVertices.add(new ArrayList<>());
+                componentEdges.add(new ArrayList<>());
+            }
+
+            for (final Vertex<V> vertex : adjacency.keySet()) {
+                componentVertices.get(analysis.getComponentLabel(vertex)).add(vertex);
+            }
+
+            for (final Edge<V> edge : edges.keySet()) {
+                componentEdges.get(analysis.getComponentLabel(edge.getVertex1())).add(edge);
+            }
+
+            final List<Graph<V>> components = new ArrayList<>(componentVertices.size());
+
+            for (int i = 0; i < componentVertices.size(); ++i) {
+                final ConcurrentUndirectedGraph<V> component = new ConcurrentUndirectedGraph<>(cellSize);
+                component.addAll(componentVertices.get(i), componentEdges.get(i), this::getIntersecting);
+                components.add(component);
+            }
+
+            return Collections.unmodifiableList(components);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    @Override
+    public @NotNull Graph<V> subGraph(
+            final @NotNull Collection<Vertex<V>> vertices, final @NotNull Collection<Edge<V>> edges) {
+
+        lock.writeLock().lock();
+
+        try {
+            final ConcurrentUndirectedGraph<V> subGraph = new ConcurrentUndirectedGraph<>(cellSize);
+            subGraph.addAll(vertices, edges, this::getIntersecting);
+            return subGraph;
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    @Override
+    public @NotNull @Immutable List<Edge<V>> findBridges() {
+        return analyze().getBridges();
+    }
+
+    // consistent snapshot, concurrent insertions wait for it
+    @Override
+    public @NotNull Graph<V> freeze() {
+        lock.writeLock().lock();
+
+        try {
+            return FrozenGraph.of(this);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    @Override
+    public @NotNull Graph<V> copy() {
+        lock.writeLock().lock();
+
+        try {
+            final ConcurrentUndirectedGraph<V> copy = new ConcurrentUndirectedGraph<>(cellSize);
+            copy.addAll(adjacency.keySet(), edges.keySet(), this::getIntersecting);
+            return copy;
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    // single-threaded filling of a new graph, crossings with edges that aren't given are skipped
+    private void addAll(
+            final @NotNull Collection<Vertex<V>> newVertices,
+            final @NotNull Collection<Edge<V>> newEdges,
+            final @NotNull Function<Edge<V>, Collection<Edge<V>>> intersecting) {
+
+        newVertices.forEach(this::storedVertexOf);
+
+        for (final Edge<V> edge : newEdges) {
+            final EdgeEntry<V> entry = new EdgeEntry<>(edge, serials.incrementAndGet());
+            edges.put(edge, entry);
+            adjacency.get(edge.getVertex1()).add(edge.getVertex2());
+            adjacency.get(edge.getVertex2()).add(edge.getVertex1());
+            index(entry);
+        }
+
+        for (final EdgeEntry<V> entry : edges.values()) {
+            for (final Edge<V> intersectingEdge : intersecting.apply(entry.edge)) {
+                final EdgeEntry<V> intersectingEntry = edges.get(intersectingEdge);
+
+                if (intersectingEntry != null) {
+                    addIntersection(entry, intersectingEntry);
+                }
+            }
+        }
+    }
+
+    // the stored vertex with the same ID, the given one is stored if there's none
+    private @NotNull Vertex<V> storedVertexOf(final @NotNull Vertex<V> vertex) {
+        final Vertex<V> stored = vertices.putIfAbsent(vertex.getId(), vertex);
+        adjacency.computeIfAbsent(stored != null ? stored : vertex, key -> ConcurrentHashMap.newKeySet());
+        return stored != null ? stored : vertex;
+    }
+
+    // exactly one of the concurrent calls for the same pair succeeds
+    private void addIntersection(final @NotNull EdgeEntry<V> entry1, final @NotNull EdgeEntry<V> entry2) {
+        final EdgeEntry<V> older = entry1.serial < entry2.serial ? entry1 : entry2;
+        final EdgeEntry<V> newer = entry1.serial < entry2.serial ? entry2 : entry1;
+
+        if (older.crossings.add(newer.edge)) {
+            newer.crossings.add(older.edge);
+            intersectionsNumber.increment();
+        }
+    }
+
+    // returns false if the edge is too long to be put into cells
+    private boolean index(final @NotNull EdgeEntry<V> entry) {
+        final long[] cellKeys = cellsOf(entry.edge);
+
+        if (cellKeys == null) {
+            synchronized (longEdges) {
+                longEdges.add(entry);
+            }
+
+            return false;
+        }
+
+        for (final long cellKey : cellKeys) {
+            final List<EdgeEntry<V>> cell = cells.computeIfAbsent(cellKey, key -> new ArrayList<>());
+
+            synchronized (cell) {
+                cell.add(entry);
+            }
+        }
+
+        return true;
+    }
+
+    // edges sharing a cell with the given one and long edges
+    private @NotNull Set<EdgeEntry<V>> candidatesOf(final @NotNull EdgeEntry<V> entry) {
+        final Set<EdgeEntry<V>> candidates = new HashSet<>();
+
+        for (final long cellKey : cellsOf(entry.edge)) {
+            final List<EdgeEntry<V>> cell = cells.get(cellKey);
+
+            synchronized (cell) {
+                candidates.addAll(cell);
+            }
+        }
+
+        synchronized (longEdges) {
+            candidates.addAll(longEdges);
+        }
+
+        candidates.remove(entry);
+        return candidates;
+    }
+
+    // keys of the cells covered by the envelope of the edge or null if there are too many of them
+    private @Nullable long[] cellsOf(final @NotNull Edge<V> edge) {
+        final Vertex<V> vertex1 = edge.getVertex1();
+        final Vertex<V> vertex2 = edge.getVertex2();
+        final long minColumn = (long) Math.floor(Math.min(vertex1.getX(), vertex2.getX()) / cellSize);
+        final long maxColumn = (long) Math.floor(Math.max(vertex1.getX(), vertex2.getX()) / cellSize);
+        final long minRow = (long) Math.floor(Math.min(vertex1.getY(), vertex2.getY()) / cellSize);
+        final long maxRow = (long) Math.floor(Math.max(vertex1.getY(), vertex2.getY()) / cellSize);
+
+        if (maxColumn - minColumn >= MAX_CELLS_PER_EDGE || maxRow - minRow >= MAX_CELLS_PER_EDGE ||
+                (maxColumn - minColumn + 1) * (maxRow - minRow + 1) > MAX_CELLS_PER_EDGE ||
+                minColumn < Integer.MIN_VALUE || maxColumn > Integer.MAX_VALUE ||
+                minRow < Integer.MIN_VALUE || maxRow > Integer.MAX_VALUE) {
+
+            return null;
+        }
+
+        final long[] cellKeys = new long[(int) ((maxColumn - minColumn + 1) * (maxRow - minRow + 1))];
+        int i = 0;
+
+        for (long column = minColumn; column <= maxColumn; ++column) {
+            for (long row = minRow; row <= maxRow; ++row) {
+                cellKeys[i++] = column << 32 | (row & 0xFFFFFFFFL);
+            }
+        }
+
+        return cellKeys;
+    }
+
+    @Override
+    public String toString() {
+        return String.format(
+                "n = %d%nm = %d%nintersection index = %d%nintersections number = %d",
+                getVerticesNumber(), getEdgesNumber(), getIntersectionIndex(), intersectionsNumber.sum());
+    }
+
+    // the serial number orders edges by addition
+    private static final class EdgeEntry<V> {
+
+        private final @NotNull Edge<V> edge;
+        private final long serial;
+        private final @NotNull Set<Edge<V>> crossings = ConcurrentHashMap.newKeySet();
+
+        private EdgeEntry(final @NotNull Edge<V> edge, final long serial) {
+            this.edge = edge;
+            this.serial = serial;
+        }
+    }
+}
@@ -0,0 +1,39 @@
+package by.zsp.ncst.graph.impl;
+
+import org.jetbrains.annotations.NotNull;
+
+import java.util.Collection;
+import java.util.Set;
+
+// symmetric crossing relation between edges, each crossing is listed for both of its edges
+interface Crossings<E> {
+
+    // false if the crossing is already stored
+    boolean add(@NotNull E edge1, @NotNull E edge2);
+
+    // live view, empty for edges without crossings
+    @NotNull Collection<E> get(@NotNull E edge);
+
+    int degree(@NotNull E edge);
+
+    // removes all crossings of the given edges, the listener is told about every changed degree
+    void removeAll(@NotNull Collection<E> edges, @NotNull DegreeListener<E> listener);
+
+    // edges with at least one crossing
+    @NotNull Set<E> edges();
+
+    // number of crossings, each counted once
+    long size();
+
+    default boolean isEmpty() {
+        return size() == 0;
+    }
+
+    @NotNull Crossings<E> copy();
+
+    @FunctionalInterface
+    interface DegreeListener<E> {
+
+        void degreeChanged(@NotNull E edge, int fromDegree, int toDegree);
+    }
+}
@@ -0,0 +1,61 @@
+package by.zsp.ncst.graph.impl;
+
+import org.jetbrains.annotations.NotNull;
+
+import java.util.*;
+
+// bucket queue of elements by degree, elements with zero degree aren't stored
+final class DegreeBuckets<E> {
+
+    private final @NotNull List<Set<E>> buckets;
+    private int maxDegree;
+
+    DegreeBuckets() {
+        buckets = new ArrayList<>();
+        buckets.add(Collections.emptySet());
+        maxDegree = 0;
+    }
+
+    private DegreeBuckets(final @NotNull DegreeBuckets<E> degreeBuckets) {
+        buckets = new ArrayList<>(degreeBuckets.buckets.size());
+        buckets.add(Collections.emptySet());
+        maxDegree = degreeBuckets.maxDegree;
+
+        for (int degree = 1; degree < degreeBuckets.buckets.size(); ++degree) {
+            buckets.add(new LinkedHashSet<>(degreeBuckets.buckets.get(degree)));
+        }
+    }
+
+    void move(final @NotNull E element, final int fromDegree, final int toDegree) {
+        if (fromDegree > 0) {
+            buckets.get(fromDegree).remove(element);
+        }
+
+        if (toDegree > 0) {
+            while (buckets.size() <= toDegree) {
+                buckets.add(new LinkedHashSet<>());
+            }
+
+            buckets.get(toDegree).add(element);
+            maxDegree = Math.max(maxDegree, toDegree);
+        }
+    }
+
+    int getMaxDegree() {
+        while (maxDegree > 0 && buckets.get(maxDegree).isEmpty()) {
+            maxDegree--;
+        }
+
+        return maxDegree;
+    }
+
+    // the element that reached the maximum degree first
+    @NotNull Optional<E> getMaxDegreeElement() {
+        final int degree = getMaxDegree();
+        return degree > 0 ? Optional.of(buckets.get(degree).iterator().next()) : Optional.empty();
+    }
+
+    @NotNull DegreeBuckets<E> copy() {
+        return new DegreeBuckets<>(this);
+    }
+}
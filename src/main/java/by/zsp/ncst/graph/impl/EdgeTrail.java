@@ -0,0 +1,69 @@
+package by.zsp.ncst.graph.impl;
+
+import by.zsp.ncst.exception.GraphException;
+import by.zsp.ncst.graph.Edge;
+import by.zsp.ncst.graph.Graph;
+import org.jetbrains.annotations.NotNull;
+
+import java.util.ArrayList;
+import java.util.List;
+
+// edges removed from a graph with the edges they crossed at removal, so rollback doesn't compute crossings again
+public final class EdgeTrail<V> {
+
+    private final @NotNull Graph<V> graph;
+    private final @NotNull List<Edge<V>> removed;
+    private final @NotNull List<List<Edge<V>>> crossings;
+
+    public EdgeTrail(final @NotNull Graph<V> graph) {
+        this.graph = graph;
+        removed = new ArrayList<>();
+        crossings = new ArrayList<>();
+    }
+
+    public @NotNull Graph<V> getGraph() {
+        return graph;
+    }
+
+    public boolean removeEdge(final @NotNull Edge<V> edge) {
+        final List<Edge<V>> edgeCrossings = new ArrayList<>(graph.getIntersecting(edge));
+
+        if (graph.removeEdge(edge)) {
+            removed.add(edge);
+            crossings.add(edgeCrossings);
+            return true;
+        } else {
+            return false;
+        }
+    }
+
+    // edges are removed one by one, so an edge keeps crossings with the intersecting edges removed after it
+    public boolean removeIntersecting(final @NotNull Edge<V> edge) {
+        final List<Edge<V>> intersecting = new ArrayList<>(graph.getIntersecting(edge));
+        intersecting.forEach(this::removeEdge);
+        return intersecting.size() > 0;
+    }
+
+    // position to roll back to
+    public int mark() {
+        return removed.size();
+    }
+
+    // puts back edges removed since the mark in reverse order, so each of them finds the edges it crossed
+    public void rollback(final int mark) throws GraphException {
+        if (mark > removed.size()) {
+            throw new GraphException("Unknown mark");
+        }
+
+        for (int i = removed.size() - 1; i >= mark; --i) {
+            final Edge<V> edge = removed.remove(i);
+            final List<Edge<V>> edgeCrossings = crossings.remove(i);
+
+            if (graph instanceof UndirectedGraphWithIntersections) {
+                ((UndirectedGraphWithIntersections<V>) graph).restoreEdge(edge, edgeCrossings);
+            } else {
+                graph.addEdge(edge);
+            }
+        }
+    }
+}
@@ -0,0 +1,505 @@
+package by.zsp.ncst.graph.impl;
+
+import by.zsp.ncst.exception.GraphException;
+import by.zsp.ncst.graph.Edge;
+import by.zsp.ncst.graph.Graph;
+import by.zsp.ncst.graph.GraphAnalysis;
+import by.zsp.ncst.graph.Vertex;
+import by.zsp.ncst.graph.VertexNumbering;
+import by.zsp.ncst.util.annotation.Immutable;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.util.*;
+import java.util.function.Function;
+import java.util.function.Predicate;
+
+// immutable snapshot that can be shared between threads, mutating methods throw GraphException,
+// copy() returns a mutable graph
+public final class FrozenGraph<V> implements Graph<V> {
+
+    private final @NotNull List<Vertex<V>> vertices;
+    private final @NotNull List<Edge<V>> edges;
+    private final @NotNull Map<V, Integer> vertexIndices;
+    private final @NotNull Map<Edge<V>, Integer> edgeIndices;
+    // vertex indices of edge i are at 2 * i and 2 * i + 1
+    private final @NotNull int[] endpoints;
+    private final @NotNull int[] adjacencyOffsets;
+    private final @NotNull int[] adjacentVertices;
+    private final @NotNull int[] crossingOffsets;
+    private final @NotNull int[] crossingEdges;
+    // number of edges by crossing degree
+    private final @NotNull int[] degreeHistogram;
+    private final int mostIntersectingEdge;
+    private final @NotNull Set<Vertex<V>> vertexSet;
+    private final @NotNull Set<Edge<V>> edgeSet;
+    private volatile @Nullable GraphAnalysis<V> analysis;
+    private volatile @Nullable List<Graph<V>> connectedComponents;
+
+    public static <V> @NotNull FrozenGraph<V> of(final @NotNull Graph<V> graph) {
+        return graph instanceof FrozenGraph
+                ? (FrozenGraph<V>) graph
+                : new FrozenGraph<>(graph.getVertices(), graph.getEdges(), graph::getIntersecting);
+    }
+
+    // crossings with edges that aren't given are skipped
+    private FrozenGraph(
+            final @NotNull Collection<Vertex<V>> vertices,
+            final @NotNull Collection<Edge<V>> edges,
+            final @NotNull Function<Edge<V>, Collection<Edge<V>>> intersecting) {
+
+        this.vertices = Collections.unmodifiableList(new ArrayList<>(vertices));
+        this.edges = Collections.unmodifiableList(new ArrayList<>(edges));
+        vertexIndices = new HashMap<>();
+        edgeIndices = new HashMap<>();
+
+        for (int vertex = 0; vertex < this.vertices.size(); ++vertex) {
+            vertexIndices.put(this.vertices.get(vertex).getId(), vertex);
+        }
+
+        for (int edge = 0; edge < this.edges.size(); ++edge) {
+            edgeIndices.put(this.edges.get(edge), edge);
+        }
+
+        endpoints = new int[2 * this.edges.size()];
+        adjacencyOffsets = new int[this.vertices.size() + 1];
+
+        for (int edge = 0; edge < this.edges.size(); ++edge) {
+            endpoints[2 * edge] = vertexIndices.get(this.edges.get(edge).getVertex1().getId());
+            endpoints[2 * edge + 1] = vertexIndices.get(this.edges.get(edge).getVertex2().getId());
+            adjacencyOffsets[endpoints[2 * edge] + 1]++;
+            adjacencyOffsets[endpoints[2 * edge + 1] + 1]++;
+        }
+
+        for (int vertex = 0; vertex < this.vertices.size(); ++vertex) {
+            adjacencyOffsets[vertex + 1] += adjacencyOffsets[vertex];
+        }
+
+        adjacentVertices = new int[endpoints.length];
+        final int[] positions = Arrays.copyOf(adjacencyOffsets, this.vertices.size());
+
+        for (int edge = 0; edge < this.edges.size(); ++edge) {
+            adjacentVertices[positions[endpoints[2 * edge]]++] = endpoints[2 * edge + 1];
+            adjacentVertices[positions[endpoints[2 * edge + 1]]++] = endpoints[2 * edge];
+        }
+
+        int[] crossings = new int[16];
+        crossingOffsets = new int[this.edges.size() + 1];
+
+        for (int edge = 0; edge < this.edges.size(); ++edge) {
+            int position = crossingOffsets[edge];
+
+            for (final Edge<V> intersectingEdge : intersecting.apply(this.edges.get(edge))) {
+                final Integer index = edgeIndices.get(intersectingEdge);
+
+                if (index != null) {
+                    if (position == crossings.length) {
+                        crossings = Arrays.copyOf(crossings, 2 * position);
+                    }
+
+                    crossings[position++] = index;
+                }
+            }
+
+            crossingOffsets[edge + 1] = position;
+        }
+
+        crossingEdges = Arrays.copyOf(crossings, crossingOffsets[this.edges.size()]);
+        int mostIntersecting = -1;
+        int maxDegree = 0;
+
+        for (int edge = 0; edge < this.edges.size(); ++edge) {
+            if (crossingDegreeOf(edge) > maxDegree) {
+                mostIntersecting = edge;
+                maxDegree = crossingDegreeOf(edge);
+            }
+        }
+
+        mostIntersectingEdge = mostIntersecting;
+        degreeHistogram = new int[maxDegree + 1];
+
+        for (int edge = 0; edge < this.edges.size(); ++edge) {
+            degreeHistogram[crossingDegreeOf(edge)]++;
+        }
+
+        vertexSet = new IndexedSet<>(this.vertices, o -> o instanceof Vertex && findVertex((Vertex<?>) o) != null);
+        edgeSet = new IndexedSet<>(this.edges, edgeIndices::containsKey);
+    }
+
+    @Override
+    public @NotNull @Immutable Set<Vertex<V>> getVertices() {
+        return vertexSet;
+    }
+
+    @Override
+    public int getVerticesNumber() {
+        return vertices.size();
+    }
+
+    @Override
+    public @NotNull @Immutable Set<Edge<V>> getEdges() {
+        return edgeSet;
+    }
+
+    @Override
+    public int getEdgesNumber() {
+        return edges.size();
+    }
+
+    @Override
+    public boolean addVertex(final @NotNull V id, final double x, final double y) throws GraphException {
+        throw frozen();
+    }
+
+    @Override
+    public boolean addVertex(final @NotNull Vertex<V> vertex) throws GraphException {
+        throw frozen();
+    }
+
+    @Override
+    public boolean removeVertex(final @NotNull V id) throws GraphException {
+        throw frozen();
+    }
+
+    @Override
+    public boolean removeVertex(final @NotNull Vertex<V> vertex) throws GraphException {
+        throw frozen();
+    }
+
+    @Override
+    public @NotNull Vertex<V> vertexOf(final @NotNull V id, final double x, final double y) {
+        final Integer index = vertexIndices.get(id);
+
+        if (index != null && vertices.get(index).getX() == x && vertices.get(index).getY() == y) {
+            return vertices.get(index);
+        } else {
+            return new SimpleVertex<>(id, x, y);
+        }
+    }
+
+    @Override
+    public boolean addEdge(
+            final @NotNull V idFrom,
+            final double xFrom,
+            final double yFrom,
+            final @NotNull V idTo,
+            final double xTo,
+            final double yTo)
+            throws GraphException {
+
+        throw frozen();
+    }
+
+    @Override
+    public boolean addEdge(final @NotNull Vertex<V> from, final @NotNull Vertex<V> to) throws GraphException {
+        throw frozen();
+    }
+
+    @Override
+    public boolean addEdge(final @NotNull Edge<V> edge) throws GraphException {
+        throw frozen();
+    }
+
+    @Override
+    public boolean addEdges(final @NotNull Collection<Edge<V>> edges) throws GraphException {
+        throw frozen();
+    }
+
+    @Override
+    public boolean removeEdge(final @NotNull V from, final @NotNull V to) throws GraphException {
+        throw frozen();
+    }
+
+    @Override
+    public boolean removeEdge(final @NotNull Vertex<V> from, final @NotNull Vertex<V> to) throws GraphException {
+        throw frozen();
+    }
+
+    @Override
+    public boolean removeEdge(final @NotNull Edge<V> edge) throws GraphException {
+        throw frozen();
+    }
+
+    @Override
+    public boolean removeIntersecting(final @NotNull Edge<V> edge) throws GraphException {
+        throw frozen();
+    }
+
+    @Override
+    public @NotNull Edge<V> edgeOf(
+            final @NotNull V idFrom,
+            final double xFrom,
+            final double yFrom,
+            final @NotNull V idTo,
+            final double xTo,
+            final double yTo) {
+
+        return edgeOf(vertexOf(idFrom, xFrom, yFrom), vertexOf(idTo, xTo, yTo));
+    }
+
+    @Override
+    public @NotNull Edge<V> edgeOf(final @NotNull Vertex<V> vertex1, final @NotNull Vertex<V> vertex2) {
+        final Edge<V> edge = new SimpleUndirectedEdge<>(vertex1, vertex2);
+        final Integer index = edgeIndices.get(edge);
+        return index != null ? edges.get(index) : edge;
+    }
+
+    @Override
+    public boolean isDirected() {
+        return false;
+    }
+
+    @Override
+    public @NotNull @Immutable Collection<Vertex<V>> getNeighbours(final @NotNull V id) {
+        final Integer index = vertexIndices.get(id);
+        return index != null ? neighboursAt(index) : Collections.emptyList();
+    }
+
+    @Override
+    public @NotNull @Immutable Collection<Vertex<V>> getNeighbours(final @NotNull Vertex<V> vertex) {
+        final Integer index = findVertex(vertex);
+        return index != null ? neighboursAt(index) : Collections.emptyList();
+    }
+
+    @Override
+    public @NotNull @Immutable Collection<Edge<V>> getIntersecting(final @NotNull Edge<V> edge) {
+        final Integer index = edgeIndices.get(edge);
+
+        return index != null
+                ? new IndexList<>(edges, crossingEdges, crossingOffsets[index], crossingOffsets[index + 1])
+                : Collections.emptyList();
+    }
+
+    @Override
+    public int getIntersectionIndex() {
+        return degreeHistogram.length - 1;
+    }
+
+    @Override
+    public @NotNull Optional<Edge<V>> getMostIntersectingEdge() {
+        return mostIntersectingEdge < 0 ? Optional.empty() : Optional.of(edges.get(mostIntersectingEdge));
+    }
+
+    // number of edges crossing exactly the given number of other edges
+    public int getIntersectionDegreeCount(final int degree) {
+        return degree >= 0 && degree < degreeHistogram.length ? degreeHistogram[degree] : 0;
+    }
+
+    @Override
+    public boolean isIntersecting() {
+        return mostIntersectingEdge >= 0;
+    }
+
+    @Override
+    public @NotNull VertexNumbering<V> numberVertices() {
+        return new VertexNumbering<>(vertices, endpoints, vertex -> {
+            final Integer index = findVertex(vertex);
+            return index != null ? index : -1;
+        });
+    }
+
+    @Override
+    public boolean isConnected() {
+        return analyze().isConnected();
+    }
+
+    @Override
+    public @NotNull @Immutable List<Graph<V>> getConnectedComponents() {
+        List<Graph<V>> components = connectedComponents;
+
+        if (components == null) {
+            components = findConnectedComponents();
+            connectedComponents = components;
+        }
+
+        return components;
+    }
+
+    private @NotNull @Immutable List<Graph<V>> findConnectedComponents() {
+        if (vertices.isEmpty()) {
+            return Collections.singletonList(this);
+        }
+
+        final GraphAnalysis<V> analysis = analyze();
+        final List<List<Vertex<V>>> componentVertices = new ArrayList<>();
+        final List<List<Edge<V>>> componentEdges = new ArrayList<>();
+
+        for (int i = 0; i < analysis.getComponentsNumber(); ++i) {
+            componentVertices.add(new ArrayList<>());
+            componentEdges.add(new ArrayList<>());
+        }
+
+        for (final Vertex<V> vertex : vertices) {
+            componentVertices.get(analysis.getComponentLabel(vertex)).add(vertex);
+        }
+
+        for (final Edge<V> edge : edges) {
+            componentEdges.get(analysis.getComponentLabel(edge.getVertex1())).add(edge);
+        }
+
+        final List<Graph<V>> components = new ArrayList<>(componentVertices.size());
+
+        for (int i = 0; i < componentVertices.size(); ++i) {
+            components.add(new FrozenGraph<>(componentVertices.get(i), componentEdges.get(i), this::getIntersecting));
+        }
+
+        return Collections.unmodifiableList(components);
+    }
+
+    @Override
+    public @NotNull Graph<V> subGraph(
+            final @NotNull Collection<Vertex<V>> vertices, final @NotNull Collection<Edge<V>> edges) {
+
+        return new FrozenGraph<>(vertices, edges, this::getIntersecting);
+    }
+
+    @Override
+    public @NotNull @Immutable List<Edge<V>> findBridges() {
+        return analyze().getBridges();
+    }
+
+    // the analysis is complete before it's shared, so it's never modified afterwards
+    @Override
+    public @NotNull GraphAnalysis<V> analyze() {
+        GraphAnalysis<V> result = analysis;
+
+        if (result == null) {
+            synchronized (this) {
+                result = analysis;
+
+                if (result == null) {
+                    result = GraphAnalysis.of(this);
+                    result.getComponentsNumber();
+                    analysis = result;
+                }
+            }
+        }
+
+        return result;
+    }
+
+    @Override
+    public @NotNull Graph<V> freeze() {
+        return this;
+    }
+
+    // mutable graph with the same crossings
+    @Override
+    public @NotNull Graph<V> copy() {
+        final List<V> ids = new ArrayList<>(vertices.size());
+        final double[] xs = new double[vertices.size()];
+        final double[] ys = new double[vertices.size()];
+        final int[] endpoints = new int[2 * edges.size()];
+        final int[] crossings = new int[crossingEdges.length];
+
+        for (int vertex = 0; vertex < vertices.size(); ++vertex) {
+            ids.add(vertices.get(vertex).getId());
+            xs[vertex] = vertices.get(vertex).getX();
+            ys[vertex] = vertices.get(vertex).getY();
+        }
+
+        for (int edge = 0; edge < edges.size(); ++edge) {
+            endpoints[2 * edge] = vertexIndices.get(edges.get(edge).getVertex1().getId());
+            endpoints[2 * edge + 1] = vertexIndices.get(edges.get(edge).getVertex2().getId());
+        }
+
+        int crossingsLength = 0;
+
+        for (int edge = 0; edge < edges.size(); ++edge) {
+            for (int i = crossingOffsets[edge]; i < crossingOffsets[edge + 1]; ++i) {
+                if (edge < crossingEdges[i]) {
+                    crossings[crossingsLength++] = edge;
+                    crossings[crossingsLength++] = crossingEdges[i];
+                }
+            }
+        }
+
+        return new GraphBuilder<V>()
+                .trusted(true)
+                .vertices(ids, xs, ys)
+                .edges(endpoints)
+                .intersections(Arrays.copyOf(crossings, crossingsLength))
+                .build();
+    }
+
+    private int crossingDegreeOf(final int edge) {
+        return crossingOffsets[edge + 1] - crossingOffsets[edge];
+    }
+
+    private @NotNull @Immutable List<Vertex<V>> neighboursAt(final int vertex) {
+        return new IndexList<>(vertices, adjacentVertices, adjacencyOffsets[vertex], adjacencyOffsets[vertex + 1]);
+    }
+
+    // vertices are equal by ID
+    private @Nullable Integer findVertex(final @NotNull Vertex<?> vertex) {
+        final Integer index = vertexIndices.get(vertex.getId());
+        return index != null && vertices.get(index).equals(vertex) ? index : null;
+    }
+
+    private static @NotNull GraphException frozen() {
+        return new GraphException("Frozen graph can't be modified");
+    }
+
+    @Override
+    public String toString() {
+        return String.format(
+                "n = %d%nm = %d%nintersection index = %d%nintersections number = %d",
+                getVerticesNumber(), getEdgesNumber(), getIntersectionIndex(), crossingEdges.length / 2);
+    }
+
+    // elements at the indices from the given range of an index array
+    private static final class IndexList<T> extends AbstractList<T> implements RandomAccess {
+
+        private final @NotNull List<T> elements;
+        private final @NotNull int[] indices;
+        private final int from;
+        private final int to;
+
+        private IndexList(final @NotNull List<T> elements, final @NotNull int[] indices, final int from, final int to) {
+            this.elements = elements;
+            this.indices = indices;
+            this.from = from;
+            this.to = to;
+        }
+
+        @Override
+        public T get(final int index) {
+            if (index < 0 || index >= to - from) {
+                throw new IndexOutOfBoundsException();
+            }
+
+            return elements.get(indices[from + index]);
+        }
+
+        @Override
+        public int size() {
+            return to - from;
+        }
+    }
+
+    private static final class IndexedSet<T> extends AbstractSet<T> {
+
+        private final @NotNull List<T> elements;
+        private final @NotNull Predicate<Object> contains;
+
+        private IndexedSet(final @NotNull List<T> elements, final @NotNull Predicate<Object> contains) {
+            this.elements = elements;
+            this.contains = contains;
+        }
+
+        @Override
+        public @NotNull Iterator<T> iterator() {
+            return elements.iterator();
+        }
+
+        @Override
+        public boolean contains(final Object o) {
+            return contains.test(o);
+        }
+
+        @Override
+        public int size() {
+            return elements.size();
+        }
+    }
+}
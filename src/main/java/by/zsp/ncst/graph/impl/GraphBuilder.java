@@ -0,0 +1,276 @@
+package by.zsp.ncst.graph.impl;
+
+import by.zsp.ncst.exception.GraphException;
+import by.zsp.ncst.graph.Edge;
+import by.zsp.ncst.graph.Vertex;
+import by.zsp.ncst.util.Geometry;
+import by.zsp.ncst.util.annotation.Fluent;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.util.*;
+
+// builds a graph in one pass from columns of vertices, edges by vertex indices and crossings by edge indices
+// by default loops are rejected, duplicates are merged and crossings are found by a sweep,
+// trusted input must have no loops or duplicates and its crossings are taken as given
+public final class GraphBuilder<V> {
+
+    private @NotNull Object[] ids = new Object[16];
+    private @NotNull double[] xs = new double[16];
+    private @NotNull double[] ys = new double[16];
+    // two vertex indices per edge
+    private @NotNull int[] endpoints = new int[32];
+    // two edge indices per crossing
+    private @NotNull int[] crossings = new int[16];
+    private int verticesNumber;
+    private int edgesNumber;
+    private int crossingsNumber;
+    private boolean trusted;
+    private boolean offHeap;
+    // built on the first addition of edges by vertex IDs
+    private @Nullable Map<V, Integer> indices;
+
+    @Fluent
+    public @NotNull GraphBuilder<V> trusted(final boolean trusted) {
+        this.trusted = trusted;
+        return this;
+    }
+
+    // columns of a compact graph are kept in direct buffers outside of the heap
+    @Fluent
+    public @NotNull GraphBuilder<V> offHeap(final boolean offHeap) {
+        this.offHeap = offHeap;
+        return this;
+    }
+
+    // vertices get indices in order of addition starting from the number of vertices added before
+    @Fluent
+    public @NotNull GraphBuilder<V> vertices(
+            final @NotNull List<V> ids, final @NotNull double[] xs, final @NotNull double[] ys)
+            throws GraphException {
+
+        if (ids.size() != xs.length || ids.size() != ys.length) {
+            throw new GraphException("Vertex columns have different lengths");
+        }
+
+        for (int i = 0; i < xs.length; ++i) {
+            addVertex(ids.get(i), xs[i], ys[i]);
+        }
+
+        return this;
+    }
+
+    // edge i connects vertices endpoints[2 * i] and endpoints[2 * i + 1]
+    @Fluent
+    public @NotNull GraphBuilder<V> edges(final @NotNull int[] endpoints) throws GraphException {
+        if (endpoints.length % 2 != 0) {
+            throw new GraphException("Edge column has odd length");
+        }
+
+        for (int i = 0; i < endpoints.length; i += 2) {
+            addEdge(endpoints[i], endpoints[i + 1]);
+        }
+
+        return this;
+    }
+
+    // edges edgePairs[2 * i] and edgePairs[2 * i + 1] cross, untrusted builders find crossings themselves
+    @Fluent
+    public @NotNull GraphBuilder<V> intersections(final @NotNull int[] edgePairs) throws GraphException {
+        if (!trusted) {
+            throw new GraphException("Intersections are accepted in trusted mode only");
+        } else if (edgePairs.length % 2 != 0) {
+            throw new GraphException("Intersection column has odd length");
+        }
+
+        for (int i = 0; i < edgePairs.length; i += 2) {
+            addIntersection(edgePairs[i], edgePairs[i + 1]);
+        }
+
+        return this;
+    }
+
+    // vertices are identified by IDs, a vertex that is already added keeps its coordinates
+    @Fluent
+    public @NotNull GraphBuilder<V> addEdges(final @NotNull Collection<Edge<V>> edges) {
+        for (final Edge<V> edge : edges) {
+            final Vertex<V> vertex1 = edge.getVertex1();
+            final Vertex<V> vertex2 = edge.getVertex2();
+            addEdge(indexOf(vertex1.getId(), vertex1.getX(), vertex1.getY()),
+                    indexOf(vertex2.getId(), vertex2.getX(), vertex2.getY()));
+        }
+
+        return this;
+    }
+
+    // same as addEdges() for a single edge without creating objects
+    @Fluent
+    public @NotNull GraphBuilder<V> addEdge(
+            final @NotNull V id1, final double x1, final double y1, final @NotNull V id2, final double x2,
+            final double y2) {
+
+        addEdge(indexOf(id1, x1, y1), indexOf(id2, x2, y2));
+        return this;
+    }
+
+    public @NotNull UndirectedGraphWithIntersections<V> build() throws GraphException {
+        return UndirectedGraphWithIntersections.build(prepared());
+    }
+
+    public @NotNull CompactUndirectedGraph<V> buildCompact() throws GraphException {
+        return CompactUndirectedGraph.build(prepared(), offHeap);
+    }
+
+    int getVerticesNumber() {
+        return verticesNumber;
+    }
+
+    @SuppressWarnings("unchecked")
+    @NotNull V getId(final int vertex) {
+        return (V) ids[vertex];
+    }
+
+    double getX(final int vertex) {
+        return xs[vertex];
+    }
+
+    double getY(final int vertex) {
+        return ys[vertex];
+    }
+
+    int getEdgesNumber() {
+        return edgesNumber;
+    }
+
+    int getSource(final int edge) {
+        return endpoints[2 * edge];
+    }
+
+    int getTarget(final int edge) {
+        return endpoints[2 * edge + 1];
+    }
+
+    int getIntersectionsNumber() {
+        return crossingsNumber;
+    }
+
+    int getIntersectingEdge1(final int intersection) {
+        return crossings[2 * intersection];
+    }
+
+    int getIntersectingEdge2(final int intersection) {
+        return crossings[2 * intersection + 1];
+    }
+
+    // builds the index of IDs on the first call
+    private int indexOf(final @NotNull V id, final double x, final double y) {
+        if (indices == null) {
+            indices = new HashMap<>();
+
+            for (int vertex = verticesNumber - 1; vertex >= 0; --vertex) {
+                indices.put(getId(vertex), vertex);
+            }
+        }
+
+        final Integer index = indices.get(id);
+        return index != null ? index : addVertex(id, x, y);
+    }
+
+    private int addVertex(final @NotNull V id, final double x, final double y) {
+        if (verticesNumber == ids.length) {
+            ids = Arrays.copyOf(ids, 2 * verticesNumber);
+            xs = Arrays.copyOf(xs, 2 * verticesNumber);
+            ys = Arrays.copyOf(ys, 2 * verticesNumber);
+        }
+
+        ids[verticesNumber] = id;
+        xs[verticesNumber] = x;
+        ys[verticesNumber] = y;
+
+        if (indices != null) {
+            indices.putIfAbsent(id, verticesNumber);
+        }
+
+        return verticesNumber++;
+    }
+
+    private void addEdge(final int source, final int target) {
+        if (2 * edgesNumber == endpoints.length) {
+            endpoints = Arrays.copyOf(endpoints, 4 * edgesNumber);
+        }
+
+        endpoints[2 * edgesNumber] = source;
+        endpoints[2 * edgesNumber + 1] = target;
+        edgesNumber++;
+    }
+
+    private void addIntersection(final int edge1, final int edge2) {
+        if (2 * crossingsNumber == crossings.length) {
+            crossings = Arrays.copyOf(crossings, 4 * crossingsNumber);
+        }
+
+        crossings[2 * crossingsNumber] = edge1;
+        crossings[2 * crossingsNumber + 1] = edge2;
+        crossingsNumber++;
+    }
+
+    // trusted columns that can be turned into a graph as they are
+    private @NotNull GraphBuilder<V> prepared() throws GraphException {
+        if (trusted) {
+            return this;
+        }
+
+        final GraphBuilder<V> prepared = new GraphBuilder<V>().trusted(true);
+        final Map<V, Integer> preparedIndices = new HashMap<>();
+        final int[] vertexIndices = new int[verticesNumber];
+        final List<Vertex<V>> vertices = new ArrayList<>();
+
+        for (int vertex = 0; vertex < verticesNumber; ++vertex) {
+            final Integer index = preparedIndices.get(getId(vertex));
+
+            if (index != null) {
+                vertexIndices[vertex] = index;
+            } else {
+                vertexIndices[vertex] = prepared.addVertex(getId(vertex), xs[vertex], ys[vertex]);
+                preparedIndices.put(getId(vertex), vertexIndices[vertex]);
+                vertices.add(new SimpleVertex<>(getId(vertex), xs[vertex], ys[vertex]));
+            }
+        }
+
+        final Set<Long> keys = new HashSet<>();
+        final List<IndexedEdge<V>> edges = new ArrayList<>();
+
+        for (int edge = 0; edge < edgesNumber; ++edge) {
+            if (getSource(edge) < 0 || getSource(edge) >= verticesNumber ||
+                    getTarget(edge) < 0 || getTarget(edge) >= verticesNumber) {
+
+                throw new GraphException("Edge refers to a missing vertex");
+            }
+
+            final int source = vertexIndices[getSource(edge)];
+            final int target = vertexIndices[getTarget(edge)];
+
+            if (source == target) {
+                throw new GraphException("Loops are forbidden");
+            }
+
+            if (keys.add(Interner.keyOf(source, target))) {
+                edges.add(new IndexedEdge<>(vertices.get(source), vertices.get(target), edges.size()));
+                prepared.addEdge(source, target);
+            }
+        }
+
+        Geometry.findIntersections(edges, (edge1, edge2) -> prepared.addIntersection(edge1.index, edge2.index));
+        return prepared;
+    }
+
+    private static final class IndexedEdge<V> extends SimpleUndirectedEdge<V> {
+
+        private final int index;
+
+        private IndexedEdge(final @NotNull Vertex<V> vertex1, final @NotNull Vertex<V> vertex2, final int index) {
+            super(vertex1, vertex2);
+            this.index = index;
+        }
+    }
+}
@@ -0,0 +1,162 @@
+package by.zsp.ncst.graph.impl;
+
+import by.zsp.ncst.graph.Edge;
+import by.zsp.ncst.graph.Vertex;
+import by.zsp.ncst.util.LongObjectHashMap;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+// canonical vertices and edges with dense indices and cached hash codes
+// the table only grows, elements with the same ID but other coordinates aren't interned
+final class Interner<V> {
+
+    private final @NotNull Map<V, InternedVertex<V>> vertices;
+    private final @NotNull List<InternedVertex<V>> verticesByIndex;
+    private final @NotNull LongObjectHashMap<Edge<V>> edges;
+
+    Interner() {
+        vertices = new HashMap<>();
+        verticesByIndex = new ArrayList<>();
+        edges = new LongObjectHashMap<>();
+    }
+
+    private Interner(final @NotNull Interner<V> interner) {
+        vertices = new HashMap<>(interner.vertices);
+        verticesByIndex = new ArrayList<>(interner.verticesByIndex);
+        edges = interner.edges.copy();
+    }
+
+    static long keyOf(final int index1, final int index2) {
+        return index1 < index2
+                ? (long) index1 << 32 | index2
+                : (long) index2 << 32 | index1;
+    }
+
+    // canonical vertex with the given ID regardless of coordinates
+    @Nullable Vertex<V> findVertex(final @NotNull V id) {
+        return vertices.get(id);
+    }
+
+    @Nullable Vertex<V> findVertex(final @NotNull V id, final double x, final double y) {
+        final InternedVertex<V> interned = vertices.get(id);
+        return interned != null && interned.getX() == x && interned.getY() == y ? interned : null;
+    }
+
+    @Nullable Edge<V> findEdge(final @NotNull Vertex<V> vertex1, final @NotNull Vertex<V> vertex2) {
+        final InternedVertex<V> interned1 = find(vertex1);
+        final InternedVertex<V> interned2 = find(vertex2);
+        return interned1 != null && interned2 != null ? edges.get(keyOf(interned1.index, interned2.index)) : null;
+    }
+
+    // dense index of the canonical vertex with the ID of the given one, -1 if there's none
+    int indexOf(final @NotNull Vertex<V> vertex) {
+        if (vertex instanceof InternedVertex) {
+            final int index = ((InternedVertex<V>) vertex).index;
+
+            if (index < verticesByIndex.size() && verticesByIndex.get(index) == vertex) {
+                return index;
+            }
+        }
+
+        final InternedVertex<V> interned = vertices.get(vertex.getId());
+        return interned != null ? interned.index : -1;
+    }
+
+    // indices are 0, 1, ..., getIndicesNumber() - 1
+    int getIndicesNumber() {
+        return verticesByIndex.size();
+    }
+
+    // returns the canonical instance or the given vertex if it can't be interned
+    @NotNull Vertex<V> intern(final @NotNull Vertex<V> vertex) {
+        final InternedVertex<V> interned = internVertex(vertex.getId(), vertex.getX(), vertex.getY());
+        return interned != null ? interned : vertex;
+    }
+
+    @NotNull Vertex<V> intern(final @NotNull V id, final double x, final double y) {
+        final InternedVertex<V> interned = internVertex(id, x, y);
+        return interned != null ? interned : new SimpleVertex<>(id, x, y);
+    }
+
+    // returns the canonical instance or the given edge if it can't be interned
+    @NotNull Edge<V> intern(final @NotNull Edge<V> edge) {
+        final Vertex<V> vertex1 = edge.getVertex1();
+        final Vertex<V> vertex2 = edge.getVertex2();
+        final InternedVertex<V> interned1 = internVertex(vertex1.getId(), vertex1.getX(), vertex1.getY());
+        final InternedVertex<V> interned2 = internVertex(vertex2.getId(), vertex2.getX(), vertex2.getY());
+        return interned1 != null && interned2 != null ? internEdge(interned1, interned2) : edge;
+    }
+
+    @NotNull Edge<V> intern(final @NotNull Vertex<V> vertex1, final @NotNull Vertex<V> vertex2) {
+        final InternedVertex<V> interned1 = internVertex(vertex1.getId(), vertex1.getX(), vertex1.getY());
+        final InternedVertex<V> interned2 = internVertex(vertex2.getId(), vertex2.getX(), vertex2.getY());
+
+        return interned1 != null && interned2 != null
+                ? internEdge(interned1, interned2)
+                : new SimpleUndirectedEdge<>(vertex1, vertex2);
+    }
+
+    private @Nullable InternedVertex<V> internVertex(final @NotNull V id, final double x, final double y) {
+        final InternedVertex<V> interned = vertices.get(id);
+
+        if (interned == null) {
+            final InternedVertex<V> newVertex = new InternedVertex<>(id, x, y, verticesByIndex.size());
+            vertices.put(id, newVertex);
+            verticesByIndex.add(newVertex);
+            return newVertex;
+        } else {
+            return interned.getX() == x && interned.getY() == y ? interned : null;
+        }
+    }
+
+    private @NotNull Edge<V> internEdge(
+            final @NotNull InternedVertex<V> vertex1, final @NotNull InternedVertex<V> vertex2) {
+
+        final long key = keyOf(vertex1.index, vertex2.index);
+        Edge<V> interned = edges.get(key);
+
+        if (interned == null) {
+            interned = new SimpleUndirectedEdge<>(vertex1, vertex2);
+            edges.put(key, interned);
+        }
+
+        return interned;
+    }
+
+    @NotNull Interner<V> copy() {
+        return new Interner<>(this);
+    }
+
+    // vertices interned by another table are looked up by ID
+    private @Nullable InternedVertex<V> find(final @NotNull Vertex<V> vertex) {
+        if (vertex instanceof InternedVertex) {
+            final int index = ((InternedVertex<V>) vertex).index;
+
+            if (index < verticesByIndex.size() && verticesByIndex.get(index) == vertex) {
+                return (InternedVertex<V>) vertex;
+            }
+        }
+
+        final InternedVertex<V> interned = vertices.get(vertex.getId());
+        return interned != null && isSamePoint(interned, vertex) ? interned : null;
+    }
+
+    private static boolean isSamePoint(final @NotNull Vertex<?> vertex1, final @NotNull Vertex<?> vertex2) {
+        return vertex1.getX() == vertex2.getX() && vertex1.getY() == vertex2.getY();
+    }
+
+    private static final class InternedVertex<V> extends SimpleVertex<V> {
+
+        private final int index;
+
+        private InternedVertex(final @NotNull V id, final double x, final double y, final int index) {
+            super(id, x, y);
+            this.index = index;
+        }
+    }
+}
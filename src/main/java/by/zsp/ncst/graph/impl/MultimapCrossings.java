@@ -0,0 +1,71 @@
+package by.zsp.ncst.graph.impl;
+
+import com.google.common.collect.HashMultimap;
+import com.google.common.collect.Multimap;
+import org.jetbrains.annotations.NotNull;
+
+import java.util.Collection;
+import java.util.Set;
+
+// hash multimap of crossings
+final class MultimapCrossings<E> implements Crossings<E> {
+
+    private final @NotNull Multimap<E, E> crossings;
+
+    MultimapCrossings() {
+        crossings = HashMultimap.create();
+    }
+
+    private MultimapCrossings(final @NotNull MultimapCrossings<E> crossings) {
+        this.crossings = HashMultimap.create(crossings.crossings);
+    }
+
+    @Override
+    public boolean add(final @NotNull E edge1, final @NotNull E edge2) {
+        return crossings.put(edge1, edge2) && crossings.put(edge2, edge1);
+    }
+
+    @Override
+    public @NotNull Collection<E> get(final @NotNull E edge) {
+        return crossings.get(edge);
+    }
+
+    @Override
+    public int degree(final @NotNull E edge) {
+        return crossings.get(edge).size();
+    }
+
+    // degrees of neighbours drop one by one
+    @Override
+    public void removeAll(final @NotNull Collection<E> edges, final @NotNull DegreeListener<E> listener) {
+        for (final E edge : edges) {
+            for (final E crossing : crossings.get(edge)) {
+                crossings.remove(crossing, edge);
+                final int degree = crossings.get(crossing).size();
+                listener.degreeChanged(crossing, degree + 1, degree);
+            }
+
+            final int degree = crossings.get(edge).size();
+
+            if (degree > 0) {
+                listener.degreeChanged(edge, degree, 0);
+                crossings.removeAll(edge);
+            }
+        }
+    }
+
+    @Override
+    public @NotNull Set<E> edges() {
+        return crossings.keySet();
+    }
+
+    @Override
+    public long size() {
+        return crossings.size() / 2;
+    }
+
+    @Override
+    public @NotNull Crossings<E> copy() {
+        return new MultimapCrossings<>(this);
+    }
+}
@@ -0,0 +1,433 @@
+package by.zsp.ncst.graph.impl;
+
+import by.zsp.ncst.exception.GraphException;
+import by.zsp.ncst.graph.Edge;
+import by.zsp.ncst.graph.Graph;
+import by.zsp.ncst.graph.Vertex;
+import by.zsp.ncst.util.Geometry;
+import by.zsp.ncst.util.PersistentHashMap;
+import by.zsp.ncst.util.PersistentHashSet;
+import by.zsp.ncst.util.annotation.Immutable;
+import org.apache.commons.lang3.tuple.ImmutablePair;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.util.*;
+
+// copy() shares all collections and takes constant time, returned sets are snapshots
+public class PersistentUndirectedGraph<V> implements Graph<V> {
+
+    private @NotNull PersistentHashMap<Vertex<V>, PersistentHashSet<Vertex<V>>> adjacency;
+    private @NotNull PersistentHashSet<Edge<V>> edges;
+    // edges without crossings aren't stored
+    private @NotNull PersistentHashMap<Edge<V>, PersistentHashSet<Edge<V>>> intersections;
+    private int intersectionsNumber;
+
+    public static <V> @NotNull PersistentUndirectedGraph<V> of(final @NotNull Graph<V> graph) {
+        final PersistentUndirectedGraph<V> persistentGraph = new PersistentUndirectedGraph<>();
+        graph.getVertices().forEach(persistentGraph::addVertex);
+
+        for (final Edge<V> edge : graph.getEdges()) {
+            persistentGraph.connect(edge);
+
+            for (final Edge<V> intersecting : graph.getIntersecting(edge)) {
+                persistentGraph.addIntersection(edge, intersecting);
+            }
+        }
+
+        return persistentGraph;
+    }
+
+    public static <V> @NotNull PersistentUndirectedGraph<V> of(final @NotNull Collection<Edge<V>> edges) {
+        final PersistentUndirectedGraph<V> graph = new PersistentUndirectedGraph<>();
+        graph.addEdges(edges);
+        return graph;
+    }
+
+    public PersistentUndirectedGraph() {
+        adjacency = PersistentHashMap.empty();
+        edges = PersistentHashSet.empty();
+        intersections = PersistentHashMap.empty();
+    }
+
+    private PersistentUndirectedGraph(final @NotNull PersistentUndirectedGraph<V> graph) {
+        adjacency = graph.adjacency;
+        edges = graph.edges;
+        intersections = graph.intersections;
+        intersectionsNumber = graph.intersectionsNumber;
+    }
+
+    @Override
+    public @NotNull @Immutable Set<Vertex<V>> getVertices() {
+        return adjacency.keySet();
+    }
+
+    @Override
+    public int getVerticesNumber() {
+        return adjacency.size();
+    }
+
+    @Override
+    public @NotNull @Immutable Set<Edge<V>> getEdges() {
+        return edges;
+    }
+
+    @Override
+    public int getEdgesNumber() {
+        return edges.size();
+    }
+
+    @Override
+    public boolean addVertex(final @NotNull V id, final double x, final double y) {
+        return addVertex(vertexOf(id, x, y));
+    }
+
+    @Override
+    public boolean addVertex(final @NotNull Vertex<V> vertex) {
+        if (adjacency.containsKey(vertex)) {
+            return false;
+        } else {
+            adjacency = adjacency.put(vertex, PersistentHashSet.empty());
+            return true;
+        }
+    }
+
+    @Override
+    public boolean removeVertex(final @NotNull V id) {
+        return removeVertex(vertexOf(id, 0, 0));
+    }
+
+    @Override
+    public boolean removeVertex(final @NotNull Vertex<V> vertex) {
+        for (final Vertex<V> neighbour : getNeighbours(vertex)) {
+            removeEdge(vertex, neighbour);
+        }
+
+        final PersistentHashMap<Vertex<V>, PersistentHashSet<Vertex<V>>> newAdjacency = adjacency.remove(vertex);
+        final boolean removed = newAdjacency != adjacency;
+        adjacency = newAdjacency;
+        return removed;
+    }
+
+    @Override
+    public @NotNull Vertex<V> vertexOf(final @NotNull V id, final double x, final double y) {
+        return new SimpleVertex<>(id, x, y);
+    }
+
+    @Override
+    public boolean addEdge(
+            final @NotNull V idFrom,
+            final double xFrom,
+            final double yFrom,
+            final @NotNull V idTo,
+            final double xTo,
+            final double yTo)
+            throws GraphException {
+
+        return addEdge(edgeOf(idFrom, xFrom, yFrom, idTo, xTo, yTo));
+    }
+
+    @Override
+    public boolean addEdge(final @NotNull Vertex<V> from, final @NotNull Vertex<V> to) throws GraphException {
+        return addEdge(edgeOf(from, to));
+    }
+
+    @Override
+    public boolean addEdge(final @NotNull Edge<V> newEdge) throws GraphException {
+        if (!edges.contains(newEdge)) {
+            checkLoop(newEdge);
+
+            for (final Edge<V> edge : edges) {
+                if (Geometry.isIntersecting(edge, newEdge)) {
+                    addIntersection(edge, newEdge);
+                    addIntersection(newEdge, edge);
+                }
+            }
+
+            connect(newEdge);
+            return true;
+        } else {
+            return false;
+        }
+    }
+
+    @Override
+    public boolean addEdges(final @NotNull Collection<Edge<V>> newEdges) throws GraphException {
+        final Set<Edge<V>> added = new LinkedHashSet<>();
+
+        for (final Edge<V> newEdge : newEdges) {
+            if (!edges.contains(newEdge)) {
+                checkLoop(newEdge);
+                added.add(newEdge);
+            }
+        }
+
+        final List<Edge<V>> sweptEdges = new ArrayList<>(edges.size() + added.size());
+        sweptEdges.addAll(edges);
+        sweptEdges.addAll(added);
+
+        Geometry.findIntersections(sweptEdges, (edge1, edge2) -> {
+            if (added.contains(edge1) || added.contains(edge2)) {
+                addIntersection(edge1, edge2);
+                addIntersection(edge2, edge1);
+            }
+        });
+
+        added.forEach(this::connect);
+        return !added.isEmpty();
+    }
+
+    private static void checkLoop(final @NotNull Edge<?> edge) throws GraphException {
+        final ImmutablePair<? extends Vertex<?>, ? extends Vertex<?>> vertices = edge.asVerticesPair();
+
+        if (Objects.equals(vertices.left, vertices.right)) {
+            throw new GraphException("Loops are forbidden");
+        }
+    }
+
+    private void connect(final @NotNull Edge<V> edge) {
+        final ImmutablePair<Vertex<V>, Vertex<V>> vertices = edge.asVerticesPair();
+        addVertex(vertices.left);
+        addVertex(vertices.right);
+        adjacency = adjacency.put(vertices.left, neighboursOf(vertices.left).plus(vertices.right));
+        adjacency = adjacency.put(vertices.right, neighboursOf(vertices.right).plus(vertices.left));
+        edges = edges.plus(edge);
+    }
+
+    private void addIntersection(final @NotNull Edge<V> edge, final @NotNull Edge<V> intersecting) {
+        final PersistentHashSet<Edge<V>> intersectingEdges = intersectingOf(edge);
+        final PersistentHashSet<Edge<V>> newIntersectingEdges = intersectingEdges.plus(intersecting);
+
+        if (newIntersectingEdges != intersectingEdges) {
+            intersections = intersections.put(edge, newIntersectingEdges);
+            intersectionsNumber++;
+        }
+    }
+
+    private void removeIntersection(final @NotNull Edge<V> edge, final @NotNull Edge<V> intersecting) {
+        final PersistentHashSet<Edge<V>> intersectingEdges = intersectingOf(edge).minus(intersecting);
+
+        intersections = intersectingEdges.isEmpty()
+                ? intersections.remove(edge)
+                : intersections.put(edge, intersectingEdges);
+
+        intersectionsNumber--;
+    }
+
+    @Override
+    public boolean removeEdge(final @NotNull V from, final @NotNull V to) {
+        return removeEdge(vertexOf(from, 0, 0), vertexOf(to, 0, 0));
+    }
+
+    @Override
+    public boolean removeEdge(final @NotNull Vertex<V> from, final @NotNull Vertex<V> to) {
+        return removeEdge(edgeOf(from, to));
+    }
+
+    @Override
+    public boolean removeEdge(final @NotNull Edge<V> edge) {
+        if (edges.contains(edge)) {
+            final ImmutablePair<Vertex<V>, Vertex<V>> vertices = edge.asVerticesPair();
+            adjacency = adjacency.put(vertices.left, neighboursOf(vertices.left).minus(vertices.right));
+            adjacency = adjacency.put(vertices.right, neighboursOf(vertices.right).minus(vertices.left));
+
+            for (final Edge<V> intersecting : intersectingOf(edge)) {
+                removeIntersection(intersecting, edge);
+            }
+
+            intersectionsNumber -= intersectingOf(edge).size();
+            intersections = intersections.remove(edge);
+            edges = edges.minus(edge);
+            return true;
+        } else {
+            return false;
+        }
+    }
+
+    @Override
+    public boolean removeIntersecting(final @NotNull Edge<V> edge) {
+        final PersistentHashSet<Edge<V>> intersectingEdges = intersectingOf(edge);
+        intersectingEdges.forEach(this::removeEdge);
+        return !intersectingEdges.isEmpty();
+    }
+
+    @Override
+    public @NotNull Edge<V> edgeOf(
+            final @NotNull V idFrom,
+            final double xFrom,
+            final double yFrom,
+            final @NotNull V idTo,
+            final double xTo,
+            final double yTo) {
+
+        return edgeOf(vertexOf(idFrom, xFrom, yFrom), vertexOf(idTo, xTo, yTo));
+    }
+
+    @Override
+    public @NotNull Edge<V> edgeOf(final @NotNull Vertex<V> vertex1, final @NotNull Vertex<V> vertex2) {
+        return new SimpleUndirectedEdge<>(vertex1, vertex2);
+    }
+
+    @Override
+    public boolean isDirected() {
+        return false;
+    }
+
+    @Override
+    public @NotNull @Immutable Collection<Vertex<V>> getNeighbours(final @NotNull V id) {
+        return getNeighbours(vertexOf(id, 0, 0));
+    }
+
+    @Override
+    public @NotNull @Immutable Collection<Vertex<V>> getNeighbours(final @NotNull Vertex<V> vertex) {
+        return neighboursOf(vertex);
+    }
+
+    private @NotNull PersistentHashSet<Vertex<V>> neighboursOf(final @NotNull Vertex<V> vertex) {
+        final @Nullable PersistentHashSet<Vertex<V>> neighbours = adjacency.get(vertex);
+        return neighbours == null ? PersistentHashSet.empty() : neighbours;
+    }
+
+    @Override
+    public @NotNull @Immutable Collection<Edge<V>> getIntersecting(final @NotNull Edge<V> edge) {
+        return intersectingOf(edge);
+    }
+
+    private @NotNull PersistentHashSet<Edge<V>> intersectingOf(final @NotNull Edge<V> edge) {
+        final @Nullable PersistentHashSet<Edge<V>> intersectingEdges = intersections.get(edge);
+        return intersectingEdges == null ? PersistentHashSet.empty() : intersectingEdges;
+    }
+
+    @Override
+    public int getIntersectionIndex() {
+        return getMostIntersectingEdge()
+                .map(this::intersectingOf)
+                .map(Collection::size)
+                .orElse(0);
+    }
+
+    @Override
+    public @NotNull Optional<Edge<V>> getMostIntersectingEdge() {
+        Map.Entry<Edge<V>, PersistentHashSet<Edge<V>>> mostIntersecting = null;
+
+        for (final Map.Entry<Edge<V>, PersistentHashSet<Edge<V>>> entry : intersections) {
+            if (mostIntersecting == null || mostIntersecting.getValue().size() < entry.getValue().size()) {
+                mostIntersecting = entry;
+            }
+        }
+
+        return Optional.ofNullable(mostIntersecting).map(Map.Entry::getKey);
+    }
+
+    @Override
+    public boolean isIntersecting() {
+        return intersectionsNumber > 0;
+    }
+
+    @Override
+    public boolean isConnected() {
+        return adjacency.isEmpty() || reachableFrom(adjacency.keySet().iterator().next()).size() == adjacency.size();
+    }
+
+    private @NotNull Set<Vertex<V>> reachableFrom(final @NotNull Vertex<V> vertex) {
+        final Set<Vertex<V>> visited = new HashSet<>();
+        final Deque<Vertex<V>> verticesToVisit = new ArrayDeque<>();
+        visited.add(vertex);
+        verticesToVisit.add(vertex);
+
+        while (!verticesToVisit.isEmpty()) {
+            for (final Vertex<V> neighbour : neighboursOf(verticesToVisit.remove())) {
+                if (visited.add(neighbour)) {
+                    verticesToVisit.add(neighbour);
+                }
+            }
+        }
+
+        return visited;
+    }
+
+    @Override
+    public @NotNull @Immutable List<Graph<V>> getConnectedComponents() {
+        if (!adjacency.isEmpty()) {
+            final Set<Vertex<V>> visited = new HashSet<>();
+            final List<Graph<V>> connectedComponents = new ArrayList<>();
+
+            for (final Vertex<V> vertex : adjacency.keySet()) {
+                if (!visited.contains(vertex)) {
+                    final Set<Vertex<V>> componentVertices = reachableFrom(vertex);
+                    visited.addAll(componentVertices);
+                    connectedComponents.add(subGraph(componentVertices));
+                }
+            }
+
+            return Collections.unmodifiableList(connectedComponents);
+        } else {
+            return Collections.singletonList(new PersistentUndirectedGraph<>());
+        }
+    }
+
+    private @NotNull PersistentUndirectedGraph<V> subGraph(final @NotNull Set<Vertex<V>> vertices) {
+        final PersistentUndirectedGraph<V> subGraph = new PersistentUndirectedGraph<>();
+
+        for (final Vertex<V> vertex : vertices) {
+            subGraph.adjacency = subGraph.adjacency.put(vertex, neighboursOf(vertex));
+        }
+
+        for (final Edge<V> edge : edges) {
+            if (vertices.contains(edge.asVerticesPair().left)) {
+                subGraph.edges = subGraph.edges.plus(edge);
+            }
+        }
+
+        for (final Edge<V> edge : subGraph.edges) {
+            for (final Edge<V> intersecting : intersectingOf(edge)) {
+                if (subGraph.edges.contains(intersecting)) {
+                    subGraph.addIntersection(edge, intersecting);
+                }
+            }
+        }
+
+        return subGraph;
+    }
+
+    @Override
+    public @NotNull Graph<V> subGraph(
+            final @NotNull Collection<Vertex<V>> vertices, final @NotNull Collection<Edge<V>> edges) {
+
+        final PersistentUndirectedGraph<V> subGraph = new PersistentUndirectedGraph<>();
+        vertices.forEach(subGraph::addVertex);
+        edges.forEach(subGraph::connect);
+
+        for (final Edge<V> edge : subGraph.edges) {
+            for (final Edge<V> intersecting : intersectingOf(edge)) {
+                if (subGraph.edges.contains(intersecting)) {
+                    subGraph.addIntersection(edge, intersecting);
+                }
+            }
+        }
+
+        return subGraph;
+    }
+
+    @Override
+    public @NotNull @Immutable List<Edge<V>> findBridges() {
+        return analyze().getBridges();
+    }
+
+    @Override
+    public @NotNull Graph<V> freeze() {
+        return FrozenGraph.of(this);
+    }
+
+    @Override
+    public @NotNull Graph<V> copy() {
+        return new PersistentUndirectedGraph<>(this);
+    }
+
+    @Override
+    public String toString() {
+        return String.format(
+                "n = %d%nm = %d%nintersection index = %d%nintersections number = %d",
+                getVerticesNumber(), getEdgesNumber(), getIntersectionIndex(), intersectionsNumber / 2);
+    }
+}
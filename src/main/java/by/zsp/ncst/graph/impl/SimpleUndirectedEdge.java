@@ -13,15 +13,31 @@ class SimpleUndirectedEdge<V> implements Edge<V> {
     private final Vertex<V> vertex1;
     @NotNull
     private final Vertex<V> vertex2;
+    @NotNull
+    private final ImmutablePair<Vertex<V>, Vertex<V>> verticesPair;
+    // see hashOf()
+    private final int hash;
 
     SimpleUndirectedEdge(final @NotNull Vertex<V> vertex1, final @NotNull Vertex<V> vertex2) {
         this.vertex1 = vertex1;
         this.vertex2 = vertex2;
+        this.verticesPair = ImmutablePair.of(vertex1, vertex2);
+        this.hash = hashOf(vertex1.hashCode(), vertex2.hashCode());
     }
 
     @Override
     public @NotNull ImmutablePair<Vertex<V>, Vertex<V>> asVerticesPair() {
-        return ImmutablePair.of(vertex1, vertex2);
+        return verticesPair;
+    }
+
+    @Override
+    public @NotNull Vertex<V> getVertex1() {
+        return vertex1;
+    }
+
+    @Override
+    public @NotNull Vertex<V> getVertex2() {
+        return vertex2;
     }
 
     @Override
@@ -30,18 +46,27 @@ class SimpleUndirectedEdge<V> implements Edge<V> {
             return true;
         }
 
-        if (o == null || getClass() != o.getClass()) {
-            return false;
-        }
-
-        @NotNull SimpleUndirectedEdge<?> anotherEdge = (SimpleUndirectedEdge<?>) o;
-
-        return Objects.equals(vertex1, anotherEdge.vertex1) && Objects.equals(vertex2, anotherEdge.vertex2) ||
-                Objects.equals(vertex1, anotherEdge.vertex2) && Objects.equals(vertex2, anotherEdge.vertex1);
+        return o instanceof Edge && haveSameVertices(this, (Edge<?>) o);
     }
 
     @Override
     public int hashCode() {
-        return Objects.hash(vertex1, vertex2) * Objects.hash(vertex2, vertex1);
+        return hash;
+    }
+
+    // undirected edges of any class are equal if they have the same vertices in any order
+    static boolean haveSameVertices(final @NotNull Edge<?> edge1, final @NotNull Edge<?> edge2) {
+        final Vertex<?> vertex1 = edge1.getVertex1();
+        final Vertex<?> vertex2 = edge1.getVertex2();
+        final Vertex<?> anotherVertex1 = edge2.getVertex1();
+        final Vertex<?> anotherVertex2 = edge2.getVertex2();
+
+        return Objects.equals(vertex1, anotherVertex1) && Objects.equals(vertex2, anotherVertex2) ||
+                Objects.equals(vertex1, anotherVertex2) && Objects.equals(vertex2, anotherVertex1);
+    }
+
+    // same as Objects.hash(vertex1, vertex2) * Objects.hash(vertex2, vertex1) for vertices with the given hashes
+    static int hashOf(final int hash1, final int hash2) {
+        return (31 * (31 + hash1) + hash2) * (31 * (31 + hash2) + hash1);
     }
 }
@@ -13,6 +13,7 @@ class SimpleVertex<V> implements Vertex<V> {
     private final V id;
     @NotNull
     private final Coordinate coordinates;
+    private final int hash;
 
     SimpleVertex(@NotNull V id, double x, double y) {
         this(id, new Coordinate(x, y));
@@ -21,6 +22,7 @@ class SimpleVertex<V> implements Vertex<V> {
     SimpleVertex(@NotNull V id, @NotNull Coordinate coordinates) {
         this.id = id;
         this.coordinates = (Coordinate) coordinates.clone();
+        this.hash = hashOf(id);
     }
 
     @Override
@@ -33,16 +35,31 @@ class SimpleVertex<V> implements Vertex<V> {
         return (Coordinate) coordinates.clone();
     }
 
+    @Override
+    public double getX() {
+        return coordinates.x;
+    }
+
+    @Override
+    public double getY() {
+        return coordinates.y;
+    }
+
     @Override
     public boolean equals(Object o) {
         if (this == o) return true;
-        if (o == null || getClass() != o.getClass()) return false;
-        SimpleVertex<?> that = (SimpleVertex<?>) o;
-        return Objects.equals(id, that.id);
+        if (!(o instanceof Vertex)) return false;
+        Vertex<?> that = (Vertex<?>) o;
+        return Objects.equals(id, that.getId());
     }
 
     @Override
     public int hashCode() {
-        return Objects.hash(id);
+        return hash;
+    }
+
+    // same as Objects.hash(id), shared with vertices of other classes that are equal to this one
+    static int hashOf(@NotNull Object id) {
+        return 31 + id.hashCode();
     }
 }
@@ -1,30 +1,81 @@
 package by.zsp.ncst.graph.impl;
 
 import by.zsp.ncst.exception.GraphException;
+import by.zsp.ncst.graph.ComponentLabels;
 import by.zsp.ncst.graph.Edge;
 import by.zsp.ncst.graph.Graph;
 import by.zsp.ncst.graph.Vertex;
+import by.zsp.ncst.graph.VertexNumbering;
 import by.zsp.ncst.util.Geometry;
 import by.zsp.ncst.util.annotation.Immutable;
 import com.google.common.collect.HashMultimap;
 import com.google.common.collect.Multimap;
-import org.apache.commons.lang3.mutable.MutableInt;
+import com.vividsolutions.jts.geom.Envelope;
+import com.vividsolutions.jts.index.quadtree.Quadtree;
 import org.apache.commons.lang3.tuple.ImmutablePair;
 import org.jetbrains.annotations.NotNull;
 import org.jetbrains.annotations.Nullable;
 
 import java.util.*;
+import java.util.function.BiConsumer;
 
 public class UndirectedGraphWithIntersections<V> implements Graph<V> {
 
     private final @NotNull Set<Vertex<V>> vertices;
     private final @NotNull Set<Edge<V>> edges;
     private final @NotNull Multimap<Vertex<V>, Vertex<V>> adjacency;
-    private final @NotNull Multimap<Edge<V>, Edge<V>> intersections;
+    // a multimap that is replaced by a bit matrix once crossings are dense enough
+    private @NotNull Crossings<Edge<V>> intersections;
+    // edges by the number of intersecting edges, kept in sync with intersections
+    private final @NotNull DegreeBuckets<Edge<V>> intersectionDegrees;
+
+    // built on the first single edge insertion
+    private @Nullable Quadtree index;
+    // canonical vertices and edges, shared by copies until one of them adds a new element
+    private @NotNull Interner<V> interner;
+    private boolean internerShared;
 
     public static <V> @NotNull UndirectedGraphWithIntersections<V> of(final @NotNull Collection<Edge<V>> edges) {
         final UndirectedGraphWithIntersections<V> graph = new UndirectedGraphWithIntersections<>();
-        edges.forEach(graph::addEdge);
+        graph.addEdges(edges);
+        return graph;
+    }
+
+    // crossings are found by spatial tiles in parallel
+    public static <V> @NotNull UndirectedGraphWithIntersections<V> parallelOf(
+            final @NotNull Collection<Edge<V>> edges) {
+
+        final UndirectedGraphWithIntersections<V> graph = new UndirectedGraphWithIntersections<>();
+        graph.addEdges(edges, true);
+        return graph;
+    }
+
+    static <V> @NotNull UndirectedGraphWithIntersections<V> build(final @NotNull GraphBuilder<V> builder) {
+        final UndirectedGraphWithIntersections<V> graph = new UndirectedGraphWithIntersections<>();
+        final List<Vertex<V>> vertices = new ArrayList<>(builder.getVerticesNumber());
+        final List<Edge<V>> edges = new ArrayList<>(builder.getEdgesNumber());
+
+        for (int vertex = 0; vertex < builder.getVerticesNumber(); ++vertex) {
+            vertices.add(graph.interner.intern(builder.getId(vertex), builder.getX(vertex), builder.getY(vertex)));
+            graph.vertices.add(vertices.get(vertex));
+        }
+
+        for (int edge = 0; edge < builder.getEdgesNumber(); ++edge) {
+            final Vertex<V> source = vertices.get(builder.getSource(edge));
+            final Vertex<V> target = vertices.get(builder.getTarget(edge));
+            edges.add(graph.interner.intern(source, target));
+            graph.edges.add(edges.get(edge));
+            graph.adjacency.put(source, target);
+            graph.adjacency.put(target, source);
+        }
+
+        for (int intersection = 0; intersection < builder.getIntersectionsNumber(); ++intersection) {
+            graph.addIntersection(
+                    edges.get(builder.getIntersectingEdge1(intersection)),
+                    edges.get(builder.getIntersectingEdge2(intersection)));
+        }
+
+        graph.switchIntersections();
         return graph;
     }
 
@@ -32,19 +83,26 @@ public class UndirectedGraphWithIntersections<V> implements Graph<V> {
         vertices = new HashSet<>();
         edges = new HashSet<>();
         adjacency = HashMultimap.create();
-        intersections = HashMultimap.create();
+        intersections = new MultimapCrossings<>();
+        intersectionDegrees = new DegreeBuckets<>();
+        interner = new Interner<>();
     }
 
     private UndirectedGraphWithIntersections(
             final @NotNull Set<Vertex<V>> vertices,
             final @NotNull Set<Edge<V>> edges,
             final @NotNull Multimap<Vertex<V>, Vertex<V>> adjacency,
-            final @NotNull Multimap<Edge<V>, Edge<V>> intersections) {
+            final @NotNull Crossings<Edge<V>> intersections,
+            final @NotNull DegreeBuckets<Edge<V>> intersectionDegrees,
+            final @NotNull Interner<V> interner) {
 
         this.vertices = new HashSet<>(vertices);
         this.edges = new HashSet<>(edges);
         this.adjacency = HashMultimap.create(adjacency);
-        this.intersections = HashMultimap.create(intersections);
+        this.intersections = intersections.copy();
+        this.intersectionDegrees = intersectionDegrees.copy();
+        this.interner = interner;
+        this.internerShared = true;
     }
 
     @Override
@@ -74,7 +132,7 @@ public class UndirectedGraphWithIntersections<V> implements Graph<V> {
 
     @Override
     public boolean addVertex(final @NotNull Vertex<V> vertex) throws GraphException {
-        return vertices.add(vertex);
+        return !vertices.contains(vertex) && vertices.add(interned(vertex));
     }
 
     @Override
@@ -84,20 +142,24 @@ public class UndirectedGraphWithIntersections<V> implements Graph<V> {
 
     @Override
     public boolean removeVertex(final @NotNull Vertex<V> vertex) {
-        for (final Vertex<V> neighbour : adjacency.get(vertex)) {
+        // removed edges drop their neighbours from the live view
+        for (final Vertex<V> neighbour : new ArrayList<>(adjacency.get(vertex))) {
             removeEdge(vertex, neighbour);
         }
 
         return vertices.remove(vertex);
     }
 
+    // for lookups by ID, coordinates of a stored vertex don't matter
     private @NotNull Vertex<V> vertexOf(final @NotNull V id) {
-        return vertexOf(id, 0, 0);
+        final Vertex<V> interned = interner.findVertex(id);
+        return interned != null ? interned : new SimpleVertex<>(id, 0, 0);
     }
 
     @Override
     public @NotNull Vertex<V> vertexOf(final @NotNull V id, final double x, final double y) {
-        return new SimpleVertex<>(id, x, y);
+        final Vertex<V> interned = interner.findVertex(id, x, y);
+        return interned != null ? interned : new SimpleVertex<>(id, x, y);
     }
 
     @Override
@@ -121,30 +183,100 @@ public class UndirectedGraphWithIntersections<V> implements Graph<V> {
     @Override
     public boolean addEdge(final @NotNull Edge<V> newEdge) throws GraphException {
         if (!edges.contains(newEdge)) {
-            final @NotNull ImmutablePair<Vertex<V>, Vertex<V>> vertices = newEdge.asVerticesPair();
-
-            if (Objects.equals(vertices.left, vertices.right)) {
+            if (Objects.equals(newEdge.getVertex1(), newEdge.getVertex2())) {
                 throw new GraphException("Loops are forbidden");
             }
 
+            final Edge<V> interned = interned(newEdge);
+            final @NotNull ImmutablePair<Vertex<V>, Vertex<V>> vertices = interned.asVerticesPair();
+
             addVertex(vertices.left);
             addVertex(vertices.right);
             adjacency.put(vertices.left, vertices.right);
             adjacency.put(vertices.right, vertices.left);
 
-            for (final Edge<V> edge : edges) {
-                if (Geometry.isIntersecting(edge, newEdge)) {
-                    intersections.put(edge, newEdge);
-                    intersections.put(newEdge, edge);
+            final Quadtree index = index();
+            final Envelope envelope = envelopeOf(interned);
+
+            index.query(envelope, candidate -> {
+                @SuppressWarnings("unchecked")
+                final Edge<V> edge = (Edge<V>) candidate;
+
+                if (Geometry.isIntersecting(edge, interned)) {
+                    addIntersection(edge, interned);
                 }
-            }
+            });
 
-            return edges.add(newEdge);
+            index.insert(envelope, interned);
+            edges.add(interned);
+            switchIntersections();
+            return true;
         } else {
             return false;
         }
     }
 
+    @Override
+    public boolean addEdges(final @NotNull Collection<Edge<V>> newEdges) throws GraphException {
+        return addEdges(newEdges, false);
+    }
+
+    private boolean addEdges(final @NotNull Collection<Edge<V>> newEdges, final boolean parallel)
+            throws GraphException {
+
+        final Set<Edge<V>> added = new LinkedHashSet<>();
+
+        for (final Edge<V> newEdge : newEdges) {
+            if (!edges.contains(newEdge)) {
+                final @NotNull ImmutablePair<Vertex<V>, Vertex<V>> vertices = newEdge.asVerticesPair();
+
+                if (Objects.equals(vertices.left, vertices.right)) {
+                    throw new GraphException("Loops are forbidden");
+                }
+
+                added.add(interned(newEdge));
+            }
+        }
+
+        if (added.isEmpty()) {
+            return false;
+        } else if (added.size() == 1) {
+            return addEdge(added.iterator().next());
+        }
+
+        for (final Edge<V> newEdge : added) {
+            final @NotNull ImmutablePair<Vertex<V>, Vertex<V>> vertices = newEdge.asVerticesPair();
+            addVertex(vertices.left);
+            addVertex(vertices.right);
+            adjacency.put(vertices.left, vertices.right);
+            adjacency.put(vertices.right, vertices.left);
+        }
+
+        final List<Edge<V>> sweptEdges = new ArrayList<>(edges.size() + added.size());
+        sweptEdges.addAll(edges);
+        sweptEdges.addAll(added);
+
+        final BiConsumer<Edge<V>, Edge<V>> consumer = (edge1, edge2) -> {
+            if (added.contains(edge1) || added.contains(edge2)) {
+                addIntersection(edge1, edge2);
+            }
+        };
+
+        if (parallel) {
+            Geometry.findIntersectionsInParallel(sweptEdges, consumer);
+        } else {
+            Geometry.findIntersections(sweptEdges, consumer);
+        }
+
+        if (index != null) {
+            added.forEach(edge -> index.insert(envelopeOf(edge), edge));
+        }
+
+        edges.addAll(added);
+        switchIntersections();
+        return true;
+    }
+
     @Override
     public boolean removeEdge(final @NotNull V from, final @NotNull V to) {
         return removeEdge(vertexOf(from), vertexOf(to));
@@ -158,20 +290,69 @@ public class UndirectedGraphWithIntersections<V> implements Graph<V> {
     @Override
     public boolean removeEdge(final @NotNull Edge<V> edge) {
         final @NotNull ImmutablePair<Vertex<V>, Vertex<V>> vertices = edge.asVerticesPair();
+
+        if (index != null && edges.contains(edge)) {
+            index.remove(envelopeOf(storedEdgeOf(vertices.left, vertices.right)), edge);
+        }
+
         adjacency.remove(vertices.left, vertices.right);
         adjacency.remove(vertices.right, vertices.left);
 
-        for (final Edge<V> intersecting : intersections.get(edge)) {
-            intersections.remove(intersecting, edge);
+        intersections.removeAll(Collections.singleton(edge), intersectionDegrees::move);
+        return edges.remove(edge);
+    }
+
+    private void addIntersection(final @NotNull Edge<V> edge1, final @NotNull Edge<V> edge2) {
+        if (intersections.add(edge1, edge2)) {
+            final int degree1 = intersections.degree(edge1);
+            final int degree2 = intersections.degree(edge2);
+            intersectionDegrees.move(edge1, degree1 - 1, degree1);
+            intersectionDegrees.move(edge2, degree2 - 1, degree2);
         }
+    }
 
-        intersections.removeAll(edge);
-        return edges.remove(edge);
+    // called once edges are added, so density is measured against all of them
+    private void switchIntersections() {
+        if (intersections instanceof MultimapCrossings && BitSetCrossings.pays(edges.size(), intersections.size())) {
+            intersections = BitSetCrossings.of(intersections);
+        }
     }
 
+    private @NotNull Quadtree index() {
+        if (index == null) {
+            index = new Quadtree();
+            edges.forEach(edge -> index.insert(envelopeOf(edge), edge));
+        }
+
+        return index;
+    }
+
+    private static @NotNull Envelope envelopeOf(final @NotNull Edge<?> edge) {
+        final Vertex<?> vertex1 = edge.getVertex1();
+        final Vertex<?> vertex2 = edge.getVertex2();
+        return new Envelope(vertex1.getX(), vertex2.getX(), vertex1.getY(), vertex2.getY());
+    }
+
+    // the given vertices may be built from IDs only
+    private @NotNull Edge<V> storedEdgeOf(final @NotNull Vertex<V> vertex1, final @NotNull Vertex<V> vertex2) {
+        return edgeOf(storedVertexOf(vertex1, vertex2), storedVertexOf(vertex2, vertex1));
+    }
+
+    private @NotNull Vertex<V> storedVertexOf(final @NotNull Vertex<V> vertex, final @NotNull Vertex<V> neighbour) {
+        for (final Vertex<V> stored : adjacency.get(neighbour)) {
+            if (Objects.equals(stored, vertex)) {
+                return stored;
+            }
+        }
+
+        return vertex;
+    }
+
+    // crossings of all removed edges are dropped at once, so they are gone before the edges themselves
     @Override
     public boolean removeIntersecting(final @NotNull Edge<V> edge) {
         final List<Edge<V>> intersectingEdges = new ArrayList<>(intersections.get(edge));
+        intersections.removeAll(intersectingEdges, intersectionDegrees::move);
 
         for (final Edge<V> intersectingEdge : intersectingEdges) {
             removeEdge(intersectingEdge);
@@ -180,6 +361,31 @@ public class UndirectedGraphWithIntersections<V> implements Graph<V> {
         return intersectingEdges.size() > 0;
     }
 
+    // puts back an edge removed from this graph with the crossings that are still in the graph, see EdgeTrail
+    boolean restoreEdge(final @NotNull Edge<V> edge, final @NotNull Collection<Edge<V>> crossings) {
+        if (edges.contains(edge)) {
+            return false;
+        }
+
+        final @NotNull ImmutablePair<Vertex<V>, Vertex<V>> vertices = edge.asVerticesPair();
+        adjacency.put(vertices.left, vertices.right);
+        adjacency.put(vertices.right, vertices.left);
+
+        for (final Edge<V> crossing : crossings) {
+            if (edges.contains(crossing)) {
+                addIntersection(edge, crossing);
+            }
+        }
+
+        if (index != null) {
+            index.insert(envelopeOf(edge), edge);
+        }
+
+        edges.add(edge);
+        switchIntersections();
+        return true;
+    }
+
     @Override
     public @NotNull Edge<V> edgeOf(
             final @NotNull V idFrom,
@@ -194,7 +400,28 @@ public class UndirectedGraphWithIntersections<V> implements Graph<V> {
 
     @Override
     public @NotNull Edge<V> edgeOf(final @NotNull Vertex<V> vertex1, final @NotNull Vertex<V> vertex2) {
-        return new SimpleUndirectedEdge<>(vertex1, vertex2);
+        final Edge<V> interned = interner.findEdge(vertex1, vertex2);
+        return interned != null ? interned : new SimpleUndirectedEdge<>(vertex1, vertex2);
+    }
+
+    // a shared table is copied only for elements that have never been interned
+    private @NotNull Vertex<V> interned(final @NotNull Vertex<V> vertex) {
+        final Vertex<V> interned = interner.findVertex(vertex.getId(), vertex.getX(), vertex.getY());
+        return interned != null ? interned : mutableInterner().intern(vertex);
+    }
+
+    private @NotNull Edge<V> interned(final @NotNull Edge<V> edge) {
+        final Edge<V> interned = interner.findEdge(edge.getVertex1(), edge.getVertex2());
+        return interned != null ? interned : mutableInterner().intern(edge);
+    }
+
+    private @NotNull Interner<V> mutableInterner() {
+        if (internerShared) {
+            interner = interner.copy();
+            internerShared = false;
+        }
+
+        return interner;
     }
 
     @Override
@@ -213,81 +440,63 @@ public class UndirectedGraphWithIntersections<V> implements Graph<V> {
     }
 
     @Override
-    public @NotNull Optional<Edge<V>> getMostIntersectingEdge() {
-        Edge<V> mostIntersecting = null;
-
-        for (final Edge<V> edge : intersections.keySet()) {
-            if (mostIntersecting == null ||
-                    intersections.get(mostIntersecting).size() < intersections.get(edge).size()) {
-
-                mostIntersecting = edge;
-            }
-        }
+    public @NotNull @Immutable Collection<Edge<V>> getIntersecting(final @NotNull Edge<V> edge) {
+        return Collections.unmodifiableCollection(intersections.get(edge));
+    }
 
-        return Optional.ofNullable(mostIntersecting);
+    @Override
+    public @NotNull Optional<Edge<V>> getMostIntersectingEdge() {
+        return intersectionDegrees.getMaxDegreeElement();
     }
 
     @Override
     public int getIntersectionIndex() {
-        return getMostIntersectingEdge()
-                .map(intersections::get)
-                .map(Collection::size)
-                .orElse(0);
+        return intersectionDegrees.getMaxDegree();
     }
 
     @Override
     public boolean isIntersecting() {
-        return getIntersectionIndex() > 0;
+        return !intersections.isEmpty();
     }
 
     @Override
-    public boolean isConnected() {
-        final Set<Vertex<V>> visited = new HashSet<>();
-        final Queue<Vertex<V>> verticesToVisit = new ArrayDeque<>();
+    public @NotNull VertexNumbering<V> numberVertices() {
+        final Interner<V> interner = this.interner;
+        final List<Vertex<V>> numbered = new ArrayList<>(vertices);
+        final int[] numbers = new int[interner.getIndicesNumber()];
+        Arrays.fill(numbers, -1);
+
+        for (int vertex = 0; vertex < numbered.size(); ++vertex) {
+            numbers[interner.indexOf(numbered.get(vertex))] = vertex;
+        }
 
-        if (!vertices.isEmpty()) {
-            final Vertex<V> first = vertices.iterator().next();
-            verticesToVisit.add(first);
+        final int[] endpoints = new int[2 * edges.size()];
+        int position = 0;
 
-            while (!verticesToVisit.isEmpty()) {
-                final Vertex<V> current = verticesToVisit.remove();
+        for (final Edge<V> edge : edges) {
+            endpoints[position++] = numbers[interner.indexOf(edge.getVertex1())];
+            endpoints[position++] = numbers[interner.indexOf(edge.getVertex2())];
+        }
 
-                if (!visited.contains(current)) {
-                    visited.add(current);
-                    verticesToVisit.addAll(getNeighbours(current));
-                }
-            }
+        return new VertexNumbering<>(numbered, endpoints, vertex -> {
+            final int index = interner.indexOf(vertex);
+            return index >= 0 ? numbers[index] : -1;
+        });
+    }
 
-            return vertices.size() == visited.size();
-        } else {
-            return true;
-        }
+    @Override
+    public boolean isConnected() {
+        return labelComponents().isConnected();
     }
 
     @Override
     public @NotNull @Immutable List<Graph<V>> getConnectedComponents() {
         if (!vertices.isEmpty()) {
-            final Set<Vertex<V>> visited = new HashSet<>();
-            final List<Graph<V>> connectedComponents = new ArrayList<>();
-
-            for (final Vertex<V> vertex : vertices) {
-                if (!visited.contains(vertex)) {
-                    final Set<Vertex<V>> connectedComponentVertices = new HashSet<>();
-                    final Queue<Vertex<V>> verticesToVisit = new ArrayDeque<>();
-                    verticesToVisit.add(vertex);
-
-                    while (!verticesToVisit.isEmpty()) {
-                        final Vertex<V> current = verticesToVisit.remove();
-
-                        if (!visited.contains(current)) {
-                            visited.add(current);
-                            connectedComponentVertices.add(current);
-                            verticesToVisit.addAll(getNeighbours(current));
-                        }
-                    }
-
-                    connectedComponents.add(subGraph(connectedComponentVertices));
-                }
+            final ComponentLabels<V> labels = labelComponents();
+            final List<Graph<V>> connectedComponents = new ArrayList<>(labels.getComponentsNumber());
+
+            for (int label = 0; label < labels.getComponentsNumber(); ++label) {
+                connectedComponents.add(labels.getComponent(label));
             }
 
             return Collections.unmodifiableList(connectedComponents);
@@ -296,80 +505,56 @@ public class UndirectedGraphWithIntersections<V> implements Graph<V> {
         }
     }
 
-    private @NotNull UndirectedGraphWithIntersections<V> subGraph(final @NotNull Set<Vertex<V>> vertices) {
+    @Override
+    public @NotNull Graph<V> subGraph(
+            final @NotNull Collection<Vertex<V>> vertices, final @NotNull Collection<Edge<V>> edges) {
+
         final UndirectedGraphWithIntersections<V> subGraph = new UndirectedGraphWithIntersections<>();
-        vertices.forEach(subGraph::addVertex);
+        internerShared = true;
+        subGraph.interner = interner;
+        subGraph.internerShared = true;
+        subGraph.vertices.addAll(vertices);
+
+        for (final Edge<V> edge : edges) {
+            subGraph.adjacency.put(edge.getVertex1(), edge.getVertex2());
+            subGraph.adjacency.put(edge.getVertex2(), edge.getVertex1());
+            subGraph.edges.add(edge);
+        }
 
-        for (final Vertex<V> vertex : vertices) {
-            for (final Vertex<V> neighbour : getNeighbours(vertex)) {
-                if (vertices.contains(neighbour)) {
-                    subGraph.addEdge(edgeOf(vertex, neighbour));
+        for (final Edge<V> edge : subGraph.edges) {
+            for (final Edge<V> intersecting : intersections.get(edge)) {
+                if (subGraph.edges.contains(intersecting)) {
+                    subGraph.addIntersection(edge, intersecting);
                 }
             }
         }
 
+        subGraph.switchIntersections();
         return subGraph;
     }
 
     @Override
     public @NotNull @Immutable List<Edge<V>> findBridges() {
-        if (!vertices.isEmpty()) {
-            final List<Edge<V>> bridges = new ArrayList<>();
-
-            bridgeDfs(
-                    bridges,
-                    new MutableInt(0),
-                    vertices.iterator().next(),
-                    null,
-                    new HashSet<>(),
-                    new HashMap<>(),
-                    new HashMap<>());
-
-            return Collections.unmodifiableList(bridges);
-        } else {
-            return Collections.emptyList();
-        }
+        return analyze().getBridges();
     }
 
-    private void bridgeDfs(
-            final @NotNull List<Edge<V>> bridges,
-            final @NotNull MutableInt time,
-            final @NotNull Vertex<V> visiting,
-            final @Nullable Vertex<V> parent,
-            final @NotNull Set<Vertex<V>> visited,
-            final @NotNull Map<Vertex<V>, Integer> inTime,
-            final @NotNull Map<Vertex<V>, Integer> upTime) {
-
-        visited.add(visiting);
-        time.increment();
-        inTime.put(visiting, time.getValue());
-        upTime.put(visiting, time.getValue());
-
-        for (final Vertex<V> child : getNeighbours(visiting)) {
-            if (!Objects.equals(child, parent)) {
-                if (visited.contains(child)) {
-                    upTime.put(visiting, Math.min(upTime.get(visiting), inTime.get(child)));
-                } else {
-                    bridgeDfs(bridges, time, child, visiting, visited, inTime, upTime);
-                    upTime.put(visiting, Math.min(upTime.get(visiting), upTime.get(child)));
-
-                    if (upTime.get(child) > inTime.get(visiting)) {
-                        bridges.add(edgeOf(visiting, child));
-                    }
-                }
-            }
-        }
+    @Override
+    public @NotNull Graph<V> freeze() {
+        return FrozenGraph.of(this);
     }
 
     @Override
     public @NotNull Graph<V> copy() {
-        return new UndirectedGraphWithIntersections<>(vertices, edges, adjacency, intersections);
+        internerShared = true;
+
+        return new UndirectedGraphWithIntersections<>(
+                vertices, edges, adjacency, intersections, intersectionDegrees, interner);
     }
 
     @Override
     public String toString() {
         return String.format(
                 "n = %d%nm = %d%nintersection index = %d%nintersections number = %d",
-                getVerticesNumber(), getEdgesNumber(), getIntersectionIndex(), intersections.size() / 2);
+                getVerticesNumber(), getEdgesNumber(), getIntersectionIndex(), intersections.size());
     }
 }
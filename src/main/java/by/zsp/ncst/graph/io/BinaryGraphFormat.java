@@ -0,0 +1,347 @@
+package by.zsp.ncst.graph.io;
+
+import by.zsp.ncst.exception.GraphException;
+import by.zsp.ncst.graph.Edge;
+import by.zsp.ncst.graph.Graph;
+import by.zsp.ncst.graph.Vertex;
+import by.zsp.ncst.graph.impl.CompactUndirectedGraph;
+import org.jetbrains.annotations.NotNull;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.DoubleBuffer;
+import java.nio.IntBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.*;
+
+// little-endian file with a fixed header followed by columns, vertices and edges are numbered densely:
+//   header: magic, version, ID type, vertices number, edges number, crossing list entries number, ID column size
+//   x column, y column (double per vertex)
+//   ID column: int or long per vertex, or string offsets (int per vertex + 1) followed by UTF-8 bytes
+//   source column and target column (vertex index per edge)
+//   crossing lists: offsets (int per edge + 1) and indices of crossing edges, each crossing is listed twice
+// files are mapped as a single buffer, so they're limited to Integer.MAX_VALUE bytes, i.e. 2 GB
+public final class BinaryGraphFormat {
+
+    private static final int MAGIC = 0x4E435347;
+    private static final int VERSION = 2;
+    private static final int HEADER_SIZE = 32;
+
+    private static final int INTEGER_IDS = 0;
+    private static final int LONG_IDS = 1;
+    private static final int STRING_IDS = 2;
+
+    private BinaryGraphFormat() {
+    }
+
+    // vertex IDs must be all integers, all longs or all strings
+    public static <V> void write(final @NotNull Graph<V> graph, final @NotNull Path path)
+            throws IOException, GraphException {
+
+        final List<Vertex<V>> vertices = new ArrayList<>(graph.getVertices());
+        final List<Edge<V>> edges = new ArrayList<>(graph.getEdges());
+        final Map<Vertex<V>, Integer> vertexIndices = new HashMap<>();
+        final Map<Edge<V>, Integer> edgeIndices = new HashMap<>();
+        final int idType = idTypeOf(vertices);
+        final byte[][] stringIds = idType == STRING_IDS ? new byte[vertices.size()][] : null;
+        long idsSize = (long) vertices.size() * (idType == LONG_IDS ? Long.BYTES : Integer.BYTES);
+
+        for (int vertex = 0; vertex < vertices.size(); ++vertex) {
+            vertexIndices.put(vertices.get(vertex), vertex);
+
+            if (stringIds != null) {
+                stringIds[vertex] = ((String) vertices.get(vertex).getId()).getBytes(StandardCharsets.UTF_8);
+                idsSize += stringIds[vertex].length;
+            }
+        }
+
+        if (stringIds != null) {
+            idsSize += Integer.BYTES;
+        }
+
+        for (int edge = 0; edge < edges.size(); ++edge) {
+            edgeIndices.put(edges.get(edge), edge);
+        }
+
+        final int[] crossingOffsets = new int[edges.size() + 1];
+
+        for (int edge = 0; edge < edges.size(); ++edge) {
+            crossingOffsets[edge + 1] = crossingOffsets[edge] + graph.getIntersecting(edges.get(edge)).size();
+        }
+
+        final int[] crossingEdges = new int[crossingOffsets[edges.size()]];
+
+        for (int edge = 0; edge < edges.size(); ++edge) {
+            int position = crossingOffsets[edge];
+
+            for (final Edge<V> intersecting : graph.getIntersecting(edges.get(edge))) {
+                crossingEdges[position++] = edgeIndices.get(intersecting);
+            }
+        }
+
+        final long size = HEADER_SIZE + 2L * Double.BYTES * vertices.size() + idsSize + 2L * Integer.BYTES *
+                edges.size() + (long) Integer.BYTES * (crossingOffsets.length + crossingEdges.length);
+
+        try (final FileChannel channel = FileChannel.open(path, StandardOpenOption.CREATE,
+                StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+
+            final ByteBuffer buffer = map(channel, FileChannel.MapMode.READ_WRITE, size);
+            buffer.putInt(MAGIC).putInt(VERSION).putInt(idType)
+                    .putInt(vertices.size()).putInt(edges.size()).putInt(crossingEdges.length).putLong(idsSize);
+
+            for (final Vertex<V> vertex : vertices) {
+                buffer.putDouble(vertex.getX());
+            }
+
+            for (final Vertex<V> vertex : vertices) {
+                buffer.putDouble(vertex.getY());
+            }
+
+            if (stringIds != null) {
+                int offset = 0;
+                buffer.putInt(offset);
+
+                for (final byte[] id : stringIds) {
+                    buffer.putInt(offset += id.length);
+                }
+
+                for (final byte[] id : stringIds) {
+                    buffer.put(id);
+                }
+            } else {
+                for (final Vertex<V> vertex : vertices) {
+                    if (idType == LONG_IDS) {
+                        buffer.putLong((Long) vertex.getId());
+                    } else {
+                        buffer.putInt((Integer) vertex.getId());
+                    }
+                }
+            }
+
+            for (final Edge<V> edge : edges) {
+                buffer.putInt(vertexIndices.get(edge.getVertex1()));
+            }
+
+            for (final Edge<V> edge : edges) {
+                buffer.putInt(vertexIndices.get(edge.getVertex2()));
+            }
+
+            buffer.asIntBuffer().put(crossingOffsets);
+            buffer.position(buffer.position() + Integer.BYTES * crossingOffsets.length);
+            buffer.asIntBuffer().put(crossingEdges);
+            ((MappedByteBuffer) buffer).force();
+        }
+    }
+
+    // the file is mapped into memory and its columns are copied into the graph as they are
+    public static <V> @NotNull CompactUndirectedGraph<V> read(final @NotNull Path path, final @NotNull Class<V> idClass)
+            throws IOException, GraphException {
+
+        return load(path, idClass, true);
+    }
+
+    // only vertex IDs are decoded into the heap, the file mustn't be modified while the graph is used
+    public static <V> @NotNull CompactUndirectedGraph<V> map(final @NotNull Path path, final @NotNull Class<V> idClass)
+            throws IOException, GraphException {
+
+        return load(path, idClass, false);
+    }
+
+    private static <V> @NotNull CompactUndirectedGraph<V> load(
+            final @NotNull Path path, final @NotNull Class<V> idClass, final boolean copy)
+            throws IOException, GraphException {
+
+        try (final FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            final ByteBuffer buffer = map(channel, FileChannel.MapMode.READ_ONLY, channel.size());
+
+            if (buffer.remaining() < HEADER_SIZE || buffer.getInt() != MAGIC) {
+                throw new GraphException("File isn't a binary graph");
+            }
+
+            if (buffer.getInt() != VERSION) {
+                throw new GraphException("Unsupported binary graph version");
+            }
+
+            final int idType = buffer.getInt();
+            final int verticesNumber = buffer.getInt();
+            final int edgesNumber = buffer.getInt();
+            final int crossingEntriesNumber = buffer.getInt();
+            final long idsSize = buffer.getLong();
+
+            if (idType < INTEGER_IDS || idType > STRING_IDS || !idClass.equals(idClassOf(idType))) {
+                throw new GraphException("Vertex IDs have another type");
+            }
+
+            if (verticesNumber < 0 || edgesNumber < 0 || crossingEntriesNumber < 0 || idsSize < 0 ||
+                    buffer.remaining() != 2L * Double.BYTES * verticesNumber + idsSize + 2L * Integer.BYTES *
+                            edgesNumber + (long) Integer.BYTES * (edgesNumber + 1 + crossingEntriesNumber)) {
+
+                throw new GraphException("Binary graph is corrupted");
+            }
+
+            final DoubleBuffer xs = doubleColumn(buffer, verticesNumber, copy);
+            final DoubleBuffer ys = doubleColumn(buffer, verticesNumber, copy);
+            final List<V> ids = readIds(buffer, idType, verticesNumber, idsSize, idClass);
+            final IntBuffer sources = intColumn(buffer, edgesNumber, copy);
+            final IntBuffer targets = intColumn(buffer, edgesNumber, copy);
+            final IntBuffer crossingOffsets = intColumn(buffer, edgesNumber + 1, copy);
+            final IntBuffer crossingEdges = intColumn(buffer, crossingEntriesNumber, copy);
+
+            // indices are checked once here, so the graph can trust them
+            checkIndices(sources, verticesNumber);
+            checkIndices(targets, verticesNumber);
+            checkIndices(crossingEdges, edgesNumber);
+
+            if (crossingOffsets.get(0) != 0 || crossingOffsets.get(edgesNumber) != crossingEntriesNumber) {
+                throw new GraphException("Binary graph is corrupted");
+            }
+
+            for (int edge = 0; edge < edgesNumber; ++edge) {
+                if (crossingOffsets.get(edge) > crossingOffsets.get(edge + 1)) {
+                    throw new GraphException("Binary graph is corrupted");
+                }
+            }
+
+            return CompactUndirectedGraph.wrap(ids, xs, ys, sources, targets, crossingOffsets, crossingEdges);
+        }
+    }
+
+    private static @NotNull ByteBuffer map(
+            final @NotNull FileChannel channel, final @NotNull FileChannel.MapMode mode, final long size)
+            throws IOException, GraphException {
+
+        if (size > Integer.MAX_VALUE) {
+            throw new GraphException("Binary graph is larger than 2 GB");
+        }
+
+        return channel.map(mode, 0, size).order(ByteOrder.LITTLE_ENDIAN);
+    }
+
+    // next values of the buffer as a column of the exact length, the buffer position is moved past them
+    private static @NotNull DoubleBuffer doubleColumn(
+            final @NotNull ByteBuffer buffer, final int length, final boolean copy) {
+
+        final DoubleBuffer column = section(buffer, Double.BYTES * length).asDoubleBuffer();
+
+        if (copy) {
+            final double[] values = new double[length];
+            column.get(values);
+            return DoubleBuffer.wrap(values);
+        } else {
+            return column;
+        }
+    }
+
+    private static @NotNull IntBuffer intColumn(
+            final @NotNull ByteBuffer buffer, final int length, final boolean copy) {
+
+        final IntBuffer column = section(buffer, Integer.BYTES * length).asIntBuffer();
+
+        if (copy) {
+            final int[] values = new int[length];
+            column.get(values);
+            return IntBuffer.wrap(values);
+        } else {
+            return column;
+        }
+    }
+
+    private static @NotNull ByteBuffer section(final @NotNull ByteBuffer buffer, final int size) {
+        final ByteBuffer section = buffer.slice().order(ByteOrder.LITTLE_ENDIAN);
+        section.limit(size);
+        buffer.position(buffer.position() + size);
+        return section;
+    }
+
+    private static void checkIndices(final @NotNull IntBuffer column, final int bound) throws GraphException {
+        for (int i = 0; i < column.capacity(); ++i) {
+            if (column.get(i) < 0 || column.get(i) >= bound) {
+                throw new GraphException("Binary graph is corrupted");
+            }
+        }
+    }
+
+    private static <V> int idTypeOf(final @NotNull List<Vertex<V>> vertices) throws GraphException {
+        final Class<?> idClass = vertices.isEmpty() ? Integer.class : vertices.get(0).getId().getClass();
+        final int idType;
+
+        if (idClass.equals(Integer.class)) {
+            idType = INTEGER_IDS;
+        } else if (idClass.equals(Long.class)) {
+            idType = LONG_IDS;
+        } else if (idClass.equals(String.class)) {
+            idType = STRING_IDS;
+        } else {
+            throw new GraphException("Unsupported vertex ID type");
+        }
+
+        for (final Vertex<V> vertex : vertices) {
+            if (!idClass.equals(vertex.getId().getClass())) {
+                throw new GraphException("Vertex IDs have different types");
+            }
+        }
+
+        return idType;
+    }
+
+    private static @NotNull Class<?> idClassOf(final int idType) {
+        switch (idType) {
+            case LONG_IDS:
+                return Long.class;
+            case STRING_IDS:
+                return String.class;
+            default:
+                return Integer.class;
+        }
+    }
+
+    private static <V> @NotNull List<V> readIds(
+            final @NotNull ByteBuffer buffer, final int idType, final int verticesNumber, final long idsSize,
+            final @NotNull Class<V> idClass) throws GraphException {
+
+        final List<V> ids = new ArrayList<>(verticesNumber);
+
+        if (idType == STRING_IDS) {
+            if (idsSize < Integer.BYTES * (verticesNumber + 1L)) {
+                throw new GraphException("Binary graph is corrupted");
+            }
+
+            final int[] offsets = new int[verticesNumber + 1];
+            buffer.asIntBuffer().get(offsets);
+            buffer.position(buffer.position() + Integer.BYTES * offsets.length);
+
+            if (offsets[0] != 0 || offsets[verticesNumber] != idsSize - Integer.BYTES * offsets.length) {
+                throw new GraphException("Binary graph is corrupted");
+            }
+
+            for (int vertex = 0; vertex < verticesNumber; ++vertex) {
+                if (offsets[vertex] > offsets[vertex + 1]) {
+                    throw new GraphException("Binary graph is corrupted");
+                }
+            }
+
+            final byte[] bytes = new byte[offsets[verticesNumber]];
+            buffer.get(bytes);
+
+            for (int vertex = 0; vertex < verticesNumber; ++vertex) {
+                ids.add(idClass.cast(new String(
+                        bytes, offsets[vertex], offsets[vertex + 1] - offsets[vertex], StandardCharsets.UTF_8)));
+            }
+        } else {
+            if (idsSize != (long) verticesNumber * (idType == LONG_IDS ? Long.BYTES : Integer.BYTES)) {
+                throw new GraphException("Binary graph is corrupted");
+            }
+
+            for (int vertex = 0; vertex < verticesNumber; ++vertex) {
+                ids.add(idClass.cast(idType == LONG_IDS ? (Object) buffer.getLong() : (Object) buffer.getInt()));
+            }
+        }
+
+        return ids;
+    }
+}
@@ -0,0 +1,409 @@
+package by.zsp.ncst.graph.io;
+
+import by.zsp.ncst.exception.GraphException;
+import by.zsp.ncst.graph.impl.GraphBuilder;
+import com.vividsolutions.jts.geom.Coordinate;
+import com.vividsolutions.jts.geom.Geometry;
+import com.vividsolutions.jts.geom.LineString;
+import com.vividsolutions.jts.io.ParseException;
+import com.vividsolutions.jts.io.WKTReader;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.Reader;
+import java.util.*;
+
+// readers of line segments that pass edges to a graph builder one by one
+// without ID columns vertices are identified by coordinates and get IDs 0, 1, ... in order of first appearance,
+// which takes a map of all distinct coordinates, i.e. O(V) memory besides the builder
+// such a builder should be given a single input, segments of zero length are skipped
+public final class EdgeListReaders {
+
+    private static final String SEPARATOR = ",";
+
+    private EdgeListReaders() {
+    }
+
+    // rows "x1,y1,x2,y2", a first row that isn't numeric is a header
+    public static void readCsv(final @NotNull Reader reader, final @NotNull GraphBuilder<Integer> builder)
+            throws IOException, GraphException {
+
+        final CoordinateIds ids = new CoordinateIds(builder);
+        final BufferedReader lines = new BufferedReader(reader);
+        int lineNumber = 0;
+
+        for (String line = lines.readLine(); line != null; line = lines.readLine()) {
+            lineNumber++;
+            final String[] columns = line.split(SEPARATOR, -1);
+
+            if (line.trim().isEmpty() || lineNumber == 1 && isHeader(columns)) {
+                continue;
+            }
+
+            if (columns.length != 4) {
+                throw new GraphException("Malformed CSV at line " + lineNumber);
+            }
+
+            ids.addEdge(
+                    parseDouble(columns[0], lineNumber), parseDouble(columns[1], lineNumber),
+                    parseDouble(columns[2], lineNumber), parseDouble(columns[3], lineNumber));
+        }
+    }
+
+    // rows "id1,x1,y1,id2,x2,y2", vertices are identified by IDs, a first row that isn't numeric is a header
+    public static void readCsvWithIds(final @NotNull Reader reader, final @NotNull GraphBuilder<String> builder)
+            throws IOException, GraphException {
+
+        final BufferedReader lines = new BufferedReader(reader);
+        int lineNumber = 0;
+
+        for (String line = lines.readLine(); line != null; line = lines.readLine()) {
+            lineNumber++;
+            final String[] columns = line.split(SEPARATOR, -1);
+
+            if (line.trim().isEmpty() || lineNumber == 1 && isHeader(columns)) {
+                continue;
+            }
+
+            if (columns.length != 6) {
+                throw new GraphException("Malformed CSV at line " + lineNumber);
+            }
+
+            builder.addEdge(
+                    columns[0].trim(), parseDouble(columns[1], lineNumber), parseDouble(columns[2], lineNumber),
+                    columns[3].trim(), parseDouble(columns[4], lineNumber), parseDouble(columns[5], lineNumber));
+        }
+    }
+
+    // one LINESTRING or MULTILINESTRING per line, consecutive points of a line string are connected
+    public static void readWkt(final @NotNull Reader reader, final @NotNull GraphBuilder<Integer> builder)
+            throws IOException, GraphException {
+
+        final CoordinateIds ids = new CoordinateIds(builder);
+        final WKTReader wktReader = new WKTReader();
+        final BufferedReader lines = new BufferedReader(reader);
+        int lineNumber = 0;
+
+        for (String line = lines.readLine(); line != null; line = lines.readLine()) {
+            lineNumber++;
+
+            if (line.trim().isEmpty()) {
+                continue;
+            }
+
+            final Geometry geometry;
+
+            try {
+                geometry = wktReader.read(line);
+            } catch (final ParseException e) {
+                throw new GraphException("Malformed WKT at line " + lineNumber, e);
+            }
+
+            for (int i = 0; i < geometry.getNumGeometries(); ++i) {
+                if (!(geometry.getGeometryN(i) instanceof LineString)) {
+                    throw new GraphException("Geometry isn't a line string at line " + lineNumber);
+                }
+
+                final Coordinate[] coordinates = geometry.getGeometryN(i).getCoordinates();
+
+                for (int j = 1; j < coordinates.length; ++j) {
+                    ids.addEdge(coordinates[j - 1].x, coordinates[j - 1].y, coordinates[j].x, coordinates[j].y);
+                }
+            }
+        }
+    }
+
+    // LineString and MultiLineString geometries anywhere in the document, other geometries are ignored
+    public static void readGeoJson(final @NotNull Reader reader, final @NotNull GraphBuilder<Integer> builder)
+            throws IOException, GraphException {
+
+        final GeoJsonParser parser = new GeoJsonParser(new BufferedReader(reader), new CoordinateIds(builder));
+        parser.parseValue();
+        parser.skipWhitespace();
+
+        if (parser.next != -1) {
+            throw new GraphException("Malformed GeoJSON: unexpected content after the document");
+        }
+    }
+
+    private static boolean isHeader(final @NotNull String[] columns) {
+        for (final String column : columns) {
+            try {
+                Double.parseDouble(column);
+                return false;
+            } catch (final NumberFormatException e) {
+                // not a number, ID or header column
+            }
+        }
+
+        return true;
+    }
+
+    private static double parseDouble(final @NotNull String column, final int lineNumber) throws GraphException {
+        try {
+            return Double.parseDouble(column);
+        } catch (final NumberFormatException e) {
+            throw new GraphException("Malformed CSV at line " + lineNumber, e);
+        }
+    }
+
+    // vertices identified by coordinates, -0.0 and 0.0 are the same coordinate
+    private static final class CoordinateIds {
+
+        private final @NotNull GraphBuilder<Integer> builder;
+        private final @NotNull Map<Coordinate, Integer> ids = new HashMap<>();
+
+        private CoordinateIds(final @NotNull GraphBuilder<Integer> builder) {
+            this.builder = builder;
+        }
+
+        private void addEdge(final double x1, final double y1, final double x2, final double y2) {
+            if (x1 != x2 || y1 != y2) {
+                builder.addEdge(idOf(x1, y1), x1, y1, idOf(x2, y2), x2, y2);
+            }
+        }
+
+        private int idOf(final double x, final double y) {
+            final Coordinate coordinate = new Coordinate(x + 0.0, y + 0.0);
+            final Integer id = ids.get(coordinate);
+
+            if (id != null) {
+                return id;
+            }
+
+            ids.put(coordinate, ids.size());
+            return ids.size() - 1;
+        }
+    }
+
+    // keeps only strings, numbers and arrays of them, an object is dropped once its geometry is passed on
+    private static final class GeoJsonParser {
+
+        private final @NotNull Reader reader;
+        private final @NotNull CoordinateIds ids;
+        private int next;
+
+        private GeoJsonParser(final @NotNull Reader reader, final @NotNull CoordinateIds ids) throws IOException {
+            this.reader = reader;
+            this.ids = ids;
+            next = reader.read();
+        }
+
+        // strings, doubles and lists of them, objects and literals are null, elements that are null aren't kept
+        private @Nullable Object parseValue() throws IOException, GraphException {
+            skipWhitespace();
+
+            switch (next) {
+                case '{':
+                    parseObject();
+                    return null;
+                case '[':
+                    return parseArray();
+                case '"':
+                    return parseString();
+                case 't':
+                    expect("true");
+                    return null;
+                case 'f':
+                    expect("false");
+                    return null;
+                case 'n':
+                    expect("null");
+                    return null;
+                default:
+                    return parseNumber();
+            }
+        }
+
+        private void parseObject() throws IOException, GraphException {
+            read('{');
+            skipWhitespace();
+            Object type = null;
+            Object coordinates = null;
+
+            if (tryRead('}')) {
+                return;
+            }
+
+            do {
+                skipWhitespace();
+                final String key = parseString();
+                skipWhitespace();
+                read(':');
+                final Object value = parseValue();
+
+                if (key.equals("type")) {
+                    type = value;
+                } else if (key.equals("coordinates")) {
+                    coordinates = value;
+                }
+
+                skipWhitespace();
+            } while (tryRead(','));
+
+            read('}');
+
+            if ("LineString".equals(type)) {
+                addLineString(coordinates);
+            } else if ("MultiLineString".equals(type) && coordinates instanceof List) {
+                for (final Object lineString : (List<?>) coordinates) {
+                    addLineString(lineString);
+                }
+            }
+        }
+
+        private @NotNull List<Object> parseArray() throws IOException, GraphException {
+            read('[');
+            skipWhitespace();
+            final List<Object> elements = new ArrayList<>();
+
+            if (tryRead(']')) {
+                return elements;
+            }
+
+            do {
+                final Object element = parseValue();
+
+                if (element != null) {
+                    elements.add(element);
+                }
+
+                skipWhitespace();
+            } while (tryRead(','));
+
+            read(']');
+            return elements;
+        }
+
+        private @NotNull String parseString() throws IOException, GraphException {
+            read('"');
+            final StringBuilder string = new StringBuilder();
+
+            while (next != '"') {
+                if (next == -1) {
+                    throw new GraphException("Malformed GeoJSON: unterminated string");
+                }
+
+                if (next == '\\') {
+                    next = reader.read();
+
+                    switch (next) {
+                        case 'b':
+                            string.append('\b');
+                            break;
+                        case 'f':
+                            string.append('\f');
+                            break;
+                        case 'n':
+                            string.append('\n');
+                            break;
+                        case 'r':
+                            string.append('\r');
+                            break;
+                        case 't':
+                            string.append('\t');
+                            break;
+                        case 'u':
+                            final char[] code = new char[4];
+
+                            for (int i = 0; i < code.length; ++i) {
+                                code[i] = (char) reader.read();
+                            }
+
+                            try {
+                                string.append((char) Integer.parseInt(new String(code), 16));
+                            } catch (final NumberFormatException e) {
+                                throw new GraphException("Malformed GeoJSON: invalid escape", e);
+                            }
+
+                            break;
+                        default:
+                            string.append((char) next);
+                    }
+                } else {
+                    string.append((char) next);
+                }
+
+                next = reader.read();
+            }
+
+            read('"');
+            return string.toString();
+        }
+
+        private double parseNumber() throws IOException, GraphException {
+            final StringBuilder number = new StringBuilder();
+
+            while (next == '-' || next == '+' || next == '.' || next == 'e' || next == 'E' ||
+                    next >= '0' && next <= '9') {
+
+                number.append((char) next);
+                next = reader.read();
+            }
+
+            try {
+                return Double.parseDouble(number.toString());
+            } catch (final NumberFormatException e) {
+                throw new GraphException("Malformed GeoJSON: unexpected " + describe(next), e);
+            }
+        }
+
+        private void addLineString(final @Nullable Object coordinates) throws GraphException {
+            if (!(coordinates instanceof List)) {
+                throw new GraphException("Malformed GeoJSON: line string without coordinates");
+            }
+
+            final List<?> points = (List<?>) coordinates;
+
+            for (int i = 1; i < points.size(); ++i) {
+                final List<?> point1 = pointOf(points.get(i - 1));
+                final List<?> point2 = pointOf(points.get(i));
+                ids.addEdge((Double) point1.get(0), (Double) point1.get(1), (Double) point2.get(0),
+                        (Double) point2.get(1));
+            }
+        }
+
+        private static @NotNull List<?> pointOf(final @NotNull Object point) throws GraphException {
+            if (!(point instanceof List) || ((List<?>) point).size() < 2 ||
+                    !(((List<?>) point).get(0) instanceof Double) || !(((List<?>) point).get(1) instanceof Double)) {
+
+                throw new GraphException("Malformed GeoJSON: invalid position");
+            }
+
+            return (List<?>) point;
+        }
+
+        private void skipWhitespace() throws IOException {
+            while (next == ' ' || next == '\t' || next == '\n' || next == '\r') {
+                next = reader.read();
+            }
+        }
+
+        private boolean tryRead(final char expected) throws IOException {
+            if (next == expected) {
+                next = reader.read();
+                return true;
+            } else {
+                return false;
+            }
+        }
+
+        private void read(final char expected) throws IOException, GraphException {
+            if (!tryRead(expected)) {
+                throw new GraphException("Malformed GeoJSON: expected '" + expected + "', found " + describe(next));
+            }
+        }
+
+        private void expect(final @NotNull String literal) throws IOException, GraphException {
+            for (int i = 0; i < literal.length(); ++i) {
+                read(literal.charAt(i));
+            }
+        }
+
+        private static @NotNull String describe(final int character) {
+            return character == -1 ? "end of input" : "'" + (char) character + "'";
+        }
+    }
+}
@@ -3,56 +3,78 @@ package by.zsp.ncst.impl;
 import by.zsp.ncst.exception.AlgorithmException;
 import by.zsp.ncst.graph.Graph;
 import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
 
+import java.util.ArrayList;
+import java.util.List;
 import java.util.Optional;
 import java.util.concurrent.*;
 import java.util.concurrent.atomic.AtomicInteger;
 
+// search trees are processed by the given pool, the common pool by default, the pool isn't shut down by the algorithm
+// subtrees of graphs with at most sequentialThreshold edges are searched by a single task without forking
 public class BaseSearchTreeAlgorithm {
 
+    public static final int DEFAULT_SEQUENTIAL_THRESHOLD = 24;
+
     private static boolean TRACE = false;
 
-    @SuppressWarnings("OptionalAssignedToNull")
-    protected static <V> @NotNull Optional<Graph<V>> find(
-            final @NotNull TaskSupplier<V> task)
-            throws AlgorithmException {
+    private final @NotNull ForkJoinPool pool;
+    private final int sequentialThreshold;
+    private volatile @Nullable ProgressListener progressListener;
 
-        final AtomicInteger nodesCreated = new AtomicInteger(0);
-        final AtomicInteger nodesProcessed = new AtomicInteger(0);
-        final ForkJoinPool pool = new ForkJoinPool();
-        Optional<Graph<V>> ncst = null;
+    protected BaseSearchTreeAlgorithm() {
+        this(ForkJoinPool.commonPool());
+    }
 
-        try {
-            final ForkJoinTask<Optional<Graph<V>>> executionTask =
-                    pool.submit(task.supply(nodesCreated, nodesProcessed));
-
-            do {
-                try {
-                    ncst = executionTask.get(1, TimeUnit.SECONDS);
-                } catch (final TimeoutException e) {
-                    logProcessing(nodesCreated, nodesProcessed);
-                } catch (final Exception e) {
-                    throw new AlgorithmException(e);
-                }
-            } while (ncst == null);
+    protected BaseSearchTreeAlgorithm(final @NotNull ForkJoinPool pool) {
+        this(pool, DEFAULT_SEQUENTIAL_THRESHOLD);
+    }
 
-            logProcessing(nodesCreated, nodesProcessed);
-        } finally {
-            pool.shutdown();
-        }
+    protected BaseSearchTreeAlgorithm(final @NotNull ForkJoinPool pool, final int sequentialThreshold) {
+        this.pool = pool;
+        this.sequentialThreshold = sequentialThreshold;
+    }
 
-        return ncst;
+    public @NotNull ForkJoinPool getPool() {
+        return pool;
     }
 
-    private static void logProcessing(
-            final @NotNull AtomicInteger nodesCreated,
-            final @NotNull AtomicInteger nodesProcessed) {
+    public int getSequentialThreshold() {
+        return sequentialThreshold;
+    }
 
-        final int processed = nodesProcessed.get();
-        final int created = nodesCreated.get();
+    // called by the workers as search tree nodes are processed
+    public void setProgressListener(final @Nullable ProgressListener progressListener) {
+        this.progressListener = progressListener;
+    }
 
-        System.out.println(String.format(
-                "%d created / %d processed / %d left", created, processed, created - processed));
+    protected boolean isSequential(final @NotNull Graph<?> graph) {
+        return graph.getEdgesNumber() <= sequentialThreshold;
+    }
+
+    // a search started from a task of the same pool is run by the calling worker
+    protected <V> @NotNull Optional<Graph<V>> find(final @NotNull TaskSupplier<V> task) throws AlgorithmException {
+        final AtomicInteger nodesCreated = new AtomicInteger(0);
+        final AtomicInteger nodesProcessed = new AtomicInteger(0);
+        final BaseSearchTreeNode<V> root = task.supply(nodesCreated, nodesProcessed);
+
+        if (ForkJoinTask.getPool() == pool) {
+            return root.invoke();
+        }
+
+        pool.execute(root);
+
+        try {
+            return root.get();
+        } catch (final InterruptedException e) {
+            // nodes that haven't started yet are skipped
+            root.abandon();
+            Thread.currentThread().interrupt();
+            throw new AlgorithmException(e);
+        } catch (final ExecutionException e) {
+            throw new AlgorithmException(e);
+        }
     }
 
     protected static void logNode(
@@ -74,21 +96,36 @@ public class BaseSearchTreeAlgorithm {
         TRACE = false;
     }
 
+    @FunctionalInterface
+    public interface ProgressListener {
+
+        void onProgress(int nodesCreated, int nodesProcessed);
+    }
+
     @FunctionalInterface
     protected interface TaskSupplier<V> {
 
-        @NotNull RecursiveTask<Optional<Graph<V>>> supply(
+        @NotNull BaseSearchTreeNode<V> supply(
                 @NotNull AtomicInteger nodesCreated,
                 @NotNull AtomicInteger nodesProcessed);
     }
 
-    protected static abstract class BaseSearchTreeNode<V> extends RecursiveTask<Optional<Graph<V>>> {
+    // a node whose split is settled, i.e. a child of an alternative split has succeeded or a child of a joint split
+    // has failed, abandons its descendants that haven't started yet
+    // a node whose alternatives are ordered abandons only the children after the first one that has succeeded
+    protected abstract class BaseSearchTreeNode<V> extends RecursiveTask<Optional<Graph<V>>> {
 
         protected final @NotNull AtomicInteger nodesCreated;
         protected final @NotNull AtomicInteger nodesProcessed;
         protected final int depth;
         protected final @NotNull String index;
         protected final @NotNull Graph<V> graph;
+        private final @Nullable BaseSearchTreeNode<V> parent;
+        private final @NotNull AtomicInteger settledAt = new AtomicInteger(Integer.MAX_VALUE);
+        private int order;
+        private boolean alternatives;
+        private boolean ordered;
+        private volatile boolean abandoned;
 
         protected BaseSearchTreeNode(
                 final @NotNull AtomicInteger nodesCreated,
@@ -97,8 +134,20 @@ public class BaseSearchTreeAlgorithm {
                 final @NotNull String index,
                 final @NotNull Graph<V> graph) {
 
+            this(nodesCreated, nodesProcessed, null, depth, index, graph);
+        }
+
+        protected BaseSearchTreeNode(
+                final @NotNull AtomicInteger nodesCreated,
+                final @NotNull AtomicInteger nodesProcessed,
+                final @Nullable BaseSearchTreeNode<V> parent,
+                final int depth,
+                final @NotNull String index,
+                final @NotNull Graph<V> graph) {
+
             this.nodesCreated = nodesCreated;
             this.nodesProcessed = nodesProcessed;
+            this.parent = parent;
             this.depth = depth;
             this.index = index;
             this.graph = graph;
@@ -108,11 +157,114 @@ public class BaseSearchTreeAlgorithm {
 
         @Override
         protected @NotNull Optional<Graph<V>> compute() {
-            final Optional<Graph<V>> result = _compute();
-            nodesProcessed.incrementAndGet();
+            final Optional<Graph<V>> result;
+
+            if (isAbandoned()) {
+                logNode("abandoned", true, depth, index);
+                result = Optional.empty();
+            } else {
+                result = _compute();
+            }
+
+            countProcessed();
+
+            // children are invoked after their parent's split is set up, so it's visible to them
+            if (parent != null && result.isPresent() == parent.alternatives) {
+                parent.settledAt.accumulateAndGet(parent.ordered ? order : -1, Math::min);
+            }
+
             return result;
         }
 
         protected abstract @NotNull Optional<Graph<V>> _compute();
+
+        protected void countProcessed() {
+            final int processed = nodesProcessed.incrementAndGet();
+            final ProgressListener listener = progressListener;
+
+            if (listener != null) {
+                listener.onProgress(nodesCreated.get(), processed);
+            }
+        }
+
+        // the node and its descendants that haven't started yet finish with an empty result
+        protected void abandon() {
+            abandoned = true;
+        }
+
+        // checked by nodes before they start, the nodes in progress finish their own work
+        // a settled node itself isn't abandoned, as its result is known
+        protected boolean isAbandoned() {
+            if (abandoned) {
+                return true;
+            }
+
+            for (BaseSearchTreeNode<V> child = this, node = parent; node != null; child = node, node = node.parent) {
+                if (node.abandoned || child.order > node.settledAt.get()) {
+                    return true;
+                }
+            }
+
+            return false;
+        }
+
+        // any result of the children, the others are abandoned as soon as one is found
+        protected @NotNull Optional<Graph<V>> findAny(final @NotNull List<? extends BaseSearchTreeNode<V>> children) {
+            return findAlternative(children, false);
+        }
+
+        // the first result of the children in order, the same whichever of them finishes first
+        protected @NotNull Optional<Graph<V>> findFirst(
+                final @NotNull List<? extends BaseSearchTreeNode<V>> children) {
+
+            return findAlternative(children, true);
+        }
+
+        private @NotNull Optional<Graph<V>> findAlternative(
+                final @NotNull List<? extends BaseSearchTreeNode<V>> children,
+                final boolean ordered) {
+
+            split(children, true, ordered);
+
+            return invokeAll(children).stream()
+                    .map(BaseSearchTreeNode::join)
+                    .filter(Optional::isPresent)
+                    .findFirst()
+                    .orElse(Optional.empty());
+        }
+
+        // results of all the children in order, the others are abandoned as soon as one of them has none
+        protected @NotNull Optional<List<Graph<V>>> findAll(
+                final @NotNull List<? extends BaseSearchTreeNode<V>> children) {
+
+            split(children, false, false);
+            final List<Graph<V>> results = new ArrayList<>();
+
+            for (final BaseSearchTreeNode<V> child : invokeAll(children)) {
+                final Optional<Graph<V>> result = child.join();
+
+                if (!result.isPresent()) {
+                    return Optional.empty();
+                }
+
+                results.add(result.get());
+            }
+
+            return Optional.of(results);
+        }
+
+        private void split(
+                final @NotNull List<? extends BaseSearchTreeNode<V>> children,
+                final boolean alternatives,
+                final boolean ordered) {
+
+            this.alternatives = alternatives;
+            this.ordered = ordered;
+
+            for (int i = 0; i < children.size(); ++i) {
+                final BaseSearchTreeNode<V> child = children.get(i);
+                child.order = i;
+            }
+        }
     }
 }
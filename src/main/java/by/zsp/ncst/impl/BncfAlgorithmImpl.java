@@ -4,27 +4,65 @@ import by.zsp.ncst.BncfAlgorithm;
 import by.zsp.ncst.exception.AlgorithmException;
 import by.zsp.ncst.graph.Edge;
 import by.zsp.ncst.graph.Graph;
-import by.zsp.ncst.graph.impl.UndirectedGraphWithIntersections;
+import by.zsp.ncst.graph.GraphAnalysis;
+import by.zsp.ncst.graph.impl.EdgeTrail;
 import by.zsp.ncst.matroid.Matroid;
 import by.zsp.ncst.matroid.Matroids;
 import by.zsp.ncst.matroid.algorithm.BaseMatroidIntersectionAlgorithm;
 import by.zsp.ncst.matroid.algorithm.MatroidIntersectionAlgorithm;
 import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
 
 import java.util.ArrayList;
+import java.util.Comparator;
 import java.util.List;
 import java.util.Optional;
 import java.util.Set;
+import java.util.concurrent.ForkJoinPool;
 import java.util.concurrent.atomic.AtomicInteger;
-import java.util.stream.Collectors;
+import java.util.function.Supplier;
 
 public final class BncfAlgorithmImpl<V> extends BaseSearchTreeAlgorithm implements BncfAlgorithm<V> {
 
+    private final @Nullable TranspositionTable<V> table;
+
+    public BncfAlgorithmImpl() {
+        table = null;
+    }
+
+    public BncfAlgorithmImpl(final @NotNull ForkJoinPool pool) {
+        this(pool, DEFAULT_SEQUENTIAL_THRESHOLD);
+    }
+
+    public BncfAlgorithmImpl(final @NotNull ForkJoinPool pool, final int sequentialThreshold) {
+        super(pool, sequentialThreshold);
+        table = null;
+    }
+
+    public BncfAlgorithmImpl(
+            final @NotNull ForkJoinPool pool,
+            final int sequentialThreshold,
+            final long tableCapacity) {
+
+        super(pool, sequentialThreshold);
+        table = new TranspositionTable<>(tableCapacity);
+    }
+
+    public @Nullable TranspositionTable<V> getTranspositionTable() {
+        return table;
+    }
+
     @Override
-    @SuppressWarnings("OptionalGetWithoutIsPresent")
     public @NotNull Graph<V> findBncf(final @NotNull Graph<V> graph) throws AlgorithmException {
+        return findBncf(graph, BranchingStrategies.mostIntersecting());
+    }
+
+    @SuppressWarnings("OptionalGetWithoutIsPresent")
+    public @NotNull Graph<V> findBncf(final @NotNull Graph<V> graph, final @NotNull BranchingStrategy<V> strategy)
+            throws AlgorithmException {
+
         final Graph<V> bncf = find((nodesCreated, nodesProcessed) ->
-                new SearchTreeNode(nodesCreated, nodesProcessed, graph, new IndependentSet<>()))
+                new SearchTreeNode(nodesCreated, nodesProcessed, graph, new IndependentSet<>(), strategy))
                 .get();
 
         graph.getVertices().forEach(bncf::addVertex);
@@ -34,44 +72,185 @@ public final class BncfAlgorithmImpl<V> extends BaseSearchTreeAlgorithm implemen
     private final class SearchTreeNode extends BaseSearchTreeNode<V> {
 
         private final @NotNull IndependentSet<V> fixed;
+        // Zobrist hash of the graph and the fixed edges
+        private final long hash;
+        private final @NotNull BranchingStrategy<V> strategy;
 
         private SearchTreeNode(
                 final @NotNull AtomicInteger nodesCreated,
                 final @NotNull AtomicInteger nodesProcessed,
                 final @NotNull Graph<V> graph,
-                final @NotNull IndependentSet<V> fixed) {
+                final @NotNull IndependentSet<V> fixed,
+                final @NotNull BranchingStrategy<V> strategy) {
 
-            this(nodesCreated, nodesProcessed, 0, "f", graph, fixed);
+            this(nodesCreated, nodesProcessed, null, 0, "f", graph, fixed,
+                    TranspositionTable.hashOf(graph, fixed.getEdges()), strategy);
         }
 
         private SearchTreeNode(
                 final @NotNull AtomicInteger nodesCreated,
                 final @NotNull AtomicInteger nodesProcessed,
+                final @Nullable SearchTreeNode parent,
                 final int depth,
                 final @NotNull String index,
                 final @NotNull Graph<V> graph,
-                final @NotNull IndependentSet<V> fixed) {
+                final @NotNull IndependentSet<V> fixed,
+                final long hash,
+                final @NotNull BranchingStrategy<V> strategy) {
 
-            super(nodesCreated, nodesProcessed, depth, index, graph);
+            super(nodesCreated, nodesProcessed, parent, depth, index, graph);
             this.fixed = fixed;
+            this.hash = hash;
+            this.strategy = strategy;
         }
 
         @Override
-        @SuppressWarnings({ "OptionalGetWithoutIsPresent", "Duplicates" })
         protected @NotNull Optional<Graph<V>> _compute() {
+            if (isSequential(graph)) {
+                logNode("searching in place", false, depth, index);
+                return memoized(graph, fixed, hash, () ->
+                        searchInPlace(new EdgeTrail<>(graph.copy()), fixed, depth, index));
+            } else {
+                return memoized(graph, fixed, hash, this::search);
+            }
+        }
+
+        private @NotNull Optional<Graph<V>> search() {
+            final GraphAnalysis<V> analysis = graph.analyze();
+            final Graph<V> leaf = findLeaf(graph, analysis, fixed, depth, index);
+
+            if (leaf != null) {
+                return Optional.of(leaf);
+            }
+
+            final List<SearchTreeNode> tasks = new ArrayList<>();
+            final Edge<V> branchingEdge = strategy.selectEdge(graph, analysis);
+
+            Graph<V> graphCopy = graph.copy();
+            graphCopy.removeEdge(branchingEdge);
+            IndependentSet<V> fixedCopy = fixed.copy();
+
+            tasks.add(new SearchTreeNode(
+                    nodesCreated, nodesProcessed, this, depth + 1, index + "e", graphCopy, fixedCopy,
+                    hash ^ TranspositionTable.keyOf(branchingEdge), strategy));
+
+            if (fixed.canBeAdded(branchingEdge)) {
+                logNode("splitting by branching edge, branching edge is included",
+                        false, depth, index);
+
+                final long includedHash = hash ^ TranspositionTable.fixedKeyOf(branchingEdge) ^
+                        TranspositionTable.keysOf(graph.getIntersecting(branchingEdge));
+
+                graphCopy = graph.copy();
+                graphCopy.removeIntersecting(branchingEdge);
+                fixedCopy = fixed.copy();
+                fixedCopy.add(branchingEdge);
+
+                tasks.add(new SearchTreeNode(
+                        nodesCreated, nodesProcessed, this, depth + 1, index + "i", graphCopy, fixedCopy,
+                        includedHash, strategy));
+            } else {
+                logNode("splitting by branching edge, branching edge isn't included",
+                        false, depth, index);
+            }
+
+            // children have results unless the search is abandoned
+            return findAll(tasks).flatMap(subgraphs -> subgraphs.stream()
+                    .max(Comparator.comparingInt(Graph::getEdgesNumber)));
+        }
+
+        private @NotNull Optional<Graph<V>> findInPlace(
+                final @NotNull EdgeTrail<V> trail,
+                final @NotNull IndependentSet<V> fixed,
+                final int depth,
+                final @NotNull String index) {
+
+            if (isAbandoned()) {
+                return Optional.empty();
+            }
+
+            nodesCreated.incrementAndGet();
+            countProcessed();
+            return searchInPlace(trail, fixed, depth, index);
+        }
+
+        @SuppressWarnings("OptionalGetWithoutIsPresent")
+        private @NotNull Optional<Graph<V>> searchInPlace(
+                final @NotNull EdgeTrail<V> trail,
+                final @NotNull IndependentSet<V> fixed,
+                final int depth,
+                final @NotNull String index) {
+
+            final Graph<V> graph = trail.getGraph();
+            final GraphAnalysis<V> analysis = graph.analyze();
+            final Graph<V> leaf = findLeaf(graph, analysis, fixed, depth, index);
+
+            if (leaf != null) {
+                return Optional.of(leaf);
+            }
+
+            final Edge<V> branchingEdge = strategy.selectEdge(graph, analysis);
+            final int mark = fixed.mark();
+            final int edgesMark = trail.mark();
+
+            trail.removeEdge(branchingEdge);
+            final Optional<Graph<V>> excluded = findInPlace(trail, fixed, depth + 1, index + "e");
+            trail.rollback(edgesMark);
+            fixed.rollback(mark);
+
+            if (!excluded.isPresent() || !fixed.canBeAdded(branchingEdge)) {
+                return excluded;
+            }
+
+            trail.removeIntersecting(branchingEdge);
+            fixed.add(branchingEdge);
+            final Optional<Graph<V>> included = findInPlace(trail, fixed, depth + 1, index + "i");
+            trail.rollback(edgesMark);
+            fixed.rollback(mark);
+
+            // the excluded branch wins ties, as in the forked search
+            return included.map(subgraph ->
+                    subgraph.getEdgesNumber() > excluded.get().getEdgesNumber() ? subgraph : excluded.get());
+        }
+
+        private @NotNull Optional<Graph<V>> memoized(
+                final @NotNull Graph<V> graph,
+                final @NotNull IndependentSet<V> fixed,
+                final long hash,
+                final @NotNull Supplier<Optional<Graph<V>>> search) {
+
+            if (table == null) {
+                return search.get();
+            } else {
+                return table.find(new TranspositionTable.State(hash, graph, fixed.getEdges()), this, search);
+            }
+        }
+
+        // result of a node that isn't split, null if it has to be split
+        @SuppressWarnings("Duplicates")
+        private @Nullable Graph<V> findLeaf(
+                final @NotNull Graph<V> graph,
+                final @NotNull GraphAnalysis<V> analysis,
+                final @NotNull IndependentSet<V> fixed,
+                final int depth,
+                final @NotNull String index) {
+
             if (graph.getVerticesNumber() <= 1) {
                 logNode(String.format("vertices number = %d", graph.getVerticesNumber()), true, depth, index);
-                return Optional.of(graph.copy());
-            } else if (!graph.isIntersecting()) {
+                return graph.copy();
+            } else if (!analysis.isIntersecting()) {
                 logNode("non-crossing", true, depth, index);
-                fixed.addAll(graph.getEdges());
-                return Optional.of(fixed.toGraph());
-            } else if (graph.getIntersectionIndex() == 1) {
+                final int mark = fixed.mark();
+                final Graph<V> bncf = fixed.addAll(graph.getEdges()).toGraph();
+                fixed.rollback(mark);
+                return bncf;
+            } else if (analysis.getIntersectionIndex() == 1) {
                 logNode("intersection index 1", true, depth, index);
-                final Matroid<Edge<V>> cycleMatroid = Matroids.cycleMatroidWithFixedEdgesOf(graph, fixed.getEdges());
+                final Graph<V> frozen = graph.freeze();
+                final Matroid<Edge<V>> cycleMatroid = Matroids.cycleMatroidWithFixedEdgesOf(frozen, fixed.getEdges());
 
                 final Matroid<Edge<V>> intersectionMatroid =
-                        Matroids.intersectionMatroidWithFixedEdgesOf(graph, fixed.getEdges());
+                        Matroids.intersectionMatroidWithFixedEdgesOf(frozen, fixed.getEdges());
 
                 final MatroidIntersectionAlgorithm<Edge<V>> matroidIntersectionAlgorithm =
                         new BaseMatroidIntersectionAlgorithm<>();
@@ -79,48 +258,12 @@ public final class BncfAlgorithmImpl<V> extends BaseSearchTreeAlgorithm implemen
                 final Set<Edge<V>> nonCrossingEdges =
                         matroidIntersectionAlgorithm.findIntersection(cycleMatroid, intersectionMatroid);
 
-                return Optional.of(UndirectedGraphWithIntersections.of(nonCrossingEdges));
+                final int mark = fixed.mark();
+                final Graph<V> bncf = fixed.addAll(nonCrossingEdges).toGraph();
+                fixed.rollback(mark);
+                return bncf;
             } else {
-                final List<SearchTreeNode> tasks = new ArrayList<>();
-                final Edge<V> mostIntersecting = graph.getMostIntersectingEdge().get();
-
-                Graph<V> graphCopy = graph.copy();
-                graphCopy.removeEdge(mostIntersecting);
-                IndependentSet<V> fixedCopy = fixed.copy();
-
-                tasks.add(new SearchTreeNode(
-                        nodesCreated, nodesProcessed, depth + 1, index + "e", graphCopy, fixedCopy));
-
-                if (fixed.canBeAdded(mostIntersecting)) {
-                    logNode("splitting by most intersecting edge, most intersecting edge is included",
-                            false, depth, index);
-
-                    graphCopy = graph.copy();
-                    graphCopy.removeIntersecting(mostIntersecting);
-                    fixedCopy = fixed.copy();
-                    fixedCopy.add(mostIntersecting);
-
-                    tasks.add(new SearchTreeNode(
-                            nodesCreated, nodesProcessed, depth + 1, index + "i", graphCopy, fixedCopy));
-                } else {
-                    logNode("splitting by most intersecting edge, most intersecting edge isn't included",
-                            false, depth, index);
-                }
-
-                final List<Graph<V>> subgraphs = invokeAll(tasks).stream()
-                        .map(SearchTreeNode::join)
-                        .filter(Optional::isPresent)
-                        .map(Optional::get)
-                        .collect(Collectors.toList());
-
-                final int maxSubgraphSize = subgraphs.stream()
-                        .mapToInt(Graph::getEdgesNumber)
-                        .max()
-                        .getAsInt();
-
-                return subgraphs.stream()
-                        .filter(subgraph -> subgraph.getEdgesNumber() == maxSubgraphSize)
-                        .findAny();
+                return null;
             }
         }
     }
@@ -0,0 +1,113 @@
+package by.zsp.ncst.impl;
+
+import by.zsp.ncst.exception.AlgorithmException;
+import by.zsp.ncst.graph.Edge;
+import by.zsp.ncst.graph.Graph;
+import by.zsp.ncst.graph.GraphAnalysis;
+import by.zsp.ncst.graph.Vertex;
+import org.jetbrains.annotations.NotNull;
+
+import java.util.Comparator;
+import java.util.HashSet;
+import java.util.Set;
+import java.util.function.BiFunction;
+import java.util.function.ToDoubleBiFunction;
+
+// all strategies except mostIntersecting() rank intersecting edges and break ties by coordinates of vertices,
+// then by string forms of IDs, so they split the same graph the same way regardless of iteration orders
+public class BranchingStrategies {
+
+    private static final Comparator<Vertex<?>> VERTEX_ORDER = Comparator
+            .<Vertex<?>>comparingDouble(Vertex::getX)
+            .thenComparingDouble(Vertex::getY)
+            .thenComparing(vertex -> String.valueOf(vertex.getId()));
+
+    private static final Comparator<Edge<?>> EDGE_ORDER = Comparator
+            .<Edge<?>, Vertex<?>>comparing(BranchingStrategies::firstVertexOf, VERTEX_ORDER)
+            .thenComparing(BranchingStrategies::secondVertexOf, VERTEX_ORDER);
+
+    // the edge with the most crossings known by the graph, ties are broken by the graph in any order
+    public static <V> @NotNull BranchingStrategy<V> mostIntersecting() {
+        return (graph, analysis) -> analysis.getMostIntersectingEdge()
+                .orElseThrow(() -> new AlgorithmException("Graph isn't intersecting"));
+    }
+
+    // the edge with the most crossings
+    public static <V> @NotNull BranchingStrategy<V> deterministic() {
+        return maxBy((graph, edge) -> graph.getIntersecting(edge).size());
+    }
+
+    // the edge with the most crossings weighted by the sum of degrees of its vertices
+    public static <V> @NotNull BranchingStrategy<V> weightedByDegree() {
+        return maxBy((graph, edge) -> graph.getIntersecting(edge).size() * (double)
+                (graph.getNeighbours(edge.getVertex1()).size() + graph.getNeighbours(edge.getVertex2()).size()));
+    }
+
+    // the edge whose exclusion disconnects the graph soonest, i.e. a bridge, otherwise an edge at a vertex
+    // of the least degree, ties are broken by the most crossings
+    public static <V> @NotNull BranchingStrategy<V> failFirst() {
+        return maxByOrder((graph, analysis) -> {
+            final Set<Edge<V>> bridges = new HashSet<>(analysis.getBridges());
+
+            return Comparator
+                    .<Edge<V>>comparingInt(edge -> bridges.contains(edge) ? 1 : 0)
+                    .thenComparingInt(edge -> -Math.min(
+                            graph.getNeighbours(edge.getVertex1()).size(),
+                            graph.getNeighbours(edge.getVertex2()).size()))
+                    .thenComparingInt(edge -> graph.getIntersecting(edge).size());
+        });
+    }
+
+    // the intersecting edge with the greatest score
+    public static <V> @NotNull BranchingStrategy<V> maxBy(final @NotNull ToDoubleBiFunction<Graph<V>, Edge<V>> score) {
+        return maxByOrder((graph, analysis) -> Comparator.comparingDouble(edge -> score.applyAsDouble(graph, edge)));
+    }
+
+    // the greatest intersecting edge in the order that is built for each graph
+    public static <V> @NotNull BranchingStrategy<V> maxByOrder(
+            final @NotNull BiFunction<Graph<V>, GraphAnalysis<V>, Comparator<Edge<V>>> order) {
+
+        return new BranchingStrategy<V>() {
+
+            @Override
+            public @NotNull Edge<V> selectEdge(
+                    final @NotNull Graph<V> graph,
+                    final @NotNull GraphAnalysis<V> analysis) {
+
+                final Comparator<Edge<V>> graphOrder = order.apply(graph, analysis);
+                Edge<V> bestEdge = null;
+
+                for (final Edge<V> edge : graph.getEdges()) {
+                    if (graph.getIntersecting(edge).isEmpty()) {
+                        continue;
+                    }
+
+                    final int comparison = bestEdge == null ? 1 : graphOrder.compare(edge, bestEdge);
+
+                    if (comparison > 0 || comparison == 0 && EDGE_ORDER.compare(edge, bestEdge) < 0) {
+                        bestEdge = edge;
+                    }
+                }
+
+                if (bestEdge == null) {
+                    throw new AlgorithmException("Graph isn't intersecting");
+                }
+
+                return bestEdge;
+            }
+
+            @Override
+            public boolean isDeterministic() {
+                return true;
+            }
+        };
+    }
+
+    private static @NotNull Vertex<?> firstVertexOf(final @NotNull Edge<?> edge) {
+        return VERTEX_ORDER.compare(edge.getVertex1(), edge.getVertex2()) <= 0 ? edge.getVertex1() : edge.getVertex2();
+    }
+
+    private static @NotNull Vertex<?> secondVertexOf(final @NotNull Edge<?> edge) {
+        return VERTEX_ORDER.compare(edge.getVertex1(), edge.getVertex2()) <= 0 ? edge.getVertex2() : edge.getVertex1();
+    }
+}
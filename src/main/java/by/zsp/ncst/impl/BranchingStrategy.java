@@ -0,0 +1,20 @@
+package by.zsp.ncst.impl;
+
+import by.zsp.ncst.graph.Edge;
+import by.zsp.ncst.graph.Graph;
+import by.zsp.ncst.graph.GraphAnalysis;
+import org.jetbrains.annotations.NotNull;
+
+// chooses the edge that a search tree node is split by, the edge must intersect other edges
+// in NCST searches the graph is also connected and has no bridges
+// strategies are called by several threads at once and mustn't modify the graph
+@FunctionalInterface
+public interface BranchingStrategy<V> {
+
+    @NotNull Edge<V> selectEdge(@NotNull Graph<V> graph, @NotNull GraphAnalysis<V> analysis);
+
+    // whether the edge depends on the graph only, searches then take alternative branches in order
+    default boolean isDeterministic() {
+        return false;
+    }
+}
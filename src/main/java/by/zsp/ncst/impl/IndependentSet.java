@@ -4,12 +4,13 @@ import by.zsp.ncst.exception.AlgorithmException;
 import by.zsp.ncst.graph.Edge;
 import by.zsp.ncst.graph.Graph;
 import by.zsp.ncst.graph.Vertex;
-import by.zsp.ncst.graph.impl.UndirectedGraphWithIntersections;
+import by.zsp.ncst.graph.impl.GraphBuilder;
 import by.zsp.ncst.util.annotation.Fluent;
 import by.zsp.ncst.util.annotation.Immutable;
 import com.google.common.collect.ImmutableSet;
 import org.apache.commons.lang3.tuple.ImmutablePair;
 import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
 
 import java.util.*;
 import java.util.stream.Collectors;
@@ -18,6 +19,8 @@ class IndependentSet<V> {
 
     private final @NotNull Map<Vertex<V>, Vertex<V>> verticesGroups;
     private final @NotNull Set<Edge<V>> edges;
+    // undo actions of changes made since the first mark, null if there's no mark
+    private @Nullable List<Runnable> trail;
 
     public IndependentSet() {
         verticesGroups = new HashMap<>();
@@ -29,8 +32,12 @@ class IndependentSet<V> {
         this.edges = edges;
     }
 
+    // fixed edges don't cross each other
     public @NotNull Graph<V> toGraph() {
-        return UndirectedGraphWithIntersections.of(edges);
+        return new GraphBuilder<V>()
+                .trusted(true)
+                .addEdges(edges)
+                .build();
     }
 
     public @NotNull @Immutable Set<Edge<V>> getEdges() {
@@ -51,9 +58,12 @@ class IndependentSet<V> {
     @Fluent
     public IndependentSet<V> add(final @NotNull Edge<V> edge) throws AlgorithmException {
         if (canBeAdded(edge)) {
-            edges.add(edge);
+            if (edges.add(edge) && trail != null) {
+                trail.add(() -> edges.remove(edge));
+            }
+
             final ImmutablePair<Vertex<V>, Vertex<V>> vertices = edge.asVerticesPair();
-            verticesGroups.put(getGroup(vertices.left), getGroup(vertices.right));
+            setParent(getGroup(vertices.left), getGroup(vertices.right));
             return this;
         } else {
             throw new AlgorithmException("Edge connects vertices from the same group");
@@ -73,15 +83,45 @@ class IndependentSet<V> {
                 return vertex;
             } else {
                 final Vertex<V> group = getGroup(parent);
-                verticesGroups.put(vertex, group);
+                setParent(vertex, group);
                 return group;
             }
         } else {
-            verticesGroups.put(vertex, vertex);
+            setParent(vertex, vertex);
             return vertex;
         }
     }
 
+    private void setParent(final @NotNull Vertex<V> vertex, final @NotNull Vertex<V> parent) {
+        final Vertex<V> previous = verticesGroups.put(vertex, parent);
+
+        if (trail != null) {
+            trail.add(previous != null
+                    ? () -> verticesGroups.put(vertex, previous)
+                    : () -> verticesGroups.remove(vertex));
+        }
+    }
+
+    // position to roll back to, changes are recorded from the first mark on
+    public int mark() {
+        if (trail == null) {
+            trail = new ArrayList<>();
+        }
+
+        return trail.size();
+    }
+
+    // undoes changes made since the mark, including path compression, in reverse order
+    public void rollback(final int mark) throws AlgorithmException {
+        if (trail == null || mark > trail.size()) {
+            throw new AlgorithmException("Unknown mark");
+        }
+
+        for (int i = trail.size() - 1; i >= mark; --i) {
+            trail.remove(i).run();
+        }
+    }
+
     public @NotNull IndependentSet<V> copy() {
         return new IndependentSet<>(new HashMap<>(verticesGroups), new HashSet<>(edges));
     }
@@ -2,76 +2,309 @@ package by.zsp.ncst.impl;
 
 import by.zsp.ncst.NcstAlgorithm;
 import by.zsp.ncst.exception.AlgorithmException;
+import by.zsp.ncst.graph.ComponentLabels;
 import by.zsp.ncst.graph.Edge;
 import by.zsp.ncst.graph.Graph;
-import by.zsp.ncst.graph.impl.UndirectedGraphWithIntersections;
+import by.zsp.ncst.graph.GraphAnalysis;
+import by.zsp.ncst.graph.impl.EdgeTrail;
+import by.zsp.ncst.graph.impl.GraphBuilder;
 import by.zsp.ncst.matroid.Matroid;
 import by.zsp.ncst.matroid.Matroids;
 import by.zsp.ncst.matroid.algorithm.BaseMatroidIntersectionAlgorithm;
 import by.zsp.ncst.matroid.algorithm.MatroidIntersectionAlgorithm;
-import com.google.common.collect.ImmutableList;
 import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
 
 import java.util.ArrayList;
 import java.util.List;
 import java.util.Optional;
 import java.util.Set;
+import java.util.concurrent.ForkJoinPool;
 import java.util.concurrent.atomic.AtomicInteger;
-import java.util.stream.Collectors;
-import java.util.stream.IntStream;
+import java.util.function.Supplier;
 
 public final class NcstAlgorithmImpl<V> extends BaseSearchTreeAlgorithm implements NcstAlgorithm<V> {
 
+    private final @Nullable TranspositionTable<V> table;
+
+    public NcstAlgorithmImpl() {
+        table = null;
+    }
+
+    public NcstAlgorithmImpl(final @NotNull ForkJoinPool pool) {
+        this(pool, DEFAULT_SEQUENTIAL_THRESHOLD);
+    }
+
+    public NcstAlgorithmImpl(final @NotNull ForkJoinPool pool, final int sequentialThreshold) {
+        super(pool, sequentialThreshold);
+        table = null;
+    }
+
+    public NcstAlgorithmImpl(
+            final @NotNull ForkJoinPool pool,
+            final int sequentialThreshold,
+            final long tableCapacity) {
+
+        super(pool, sequentialThreshold);
+        table = new TranspositionTable<>(tableCapacity);
+    }
+
+    public @Nullable TranspositionTable<V> getTranspositionTable() {
+        return table;
+    }
+
     @Override
     public @NotNull Optional<Graph<V>> findNcst(final @NotNull Graph<V> graph) throws AlgorithmException {
+        return findNcst(graph, BranchingStrategies.mostIntersecting());
+    }
+
+    public @NotNull Optional<Graph<V>> findNcst(
+            final @NotNull Graph<V> graph,
+            final @NotNull BranchingStrategy<V> strategy)
+            throws AlgorithmException {
+
         return find((nodesCreated, nodesProcessed) ->
-                new SearchTreeNode(nodesCreated, nodesProcessed, graph, new IndependentSet<>()));
+                new SearchTreeNode(nodesCreated, nodesProcessed, graph, new IndependentSet<>(), strategy));
     }
 
     private final class SearchTreeNode extends BaseSearchTreeNode<V> {
 
         private final @NotNull IndependentSet<V> fixed;
+        // Zobrist hash of the graph and the fixed edges
+        private final long hash;
+        private final @NotNull BranchingStrategy<V> strategy;
 
         private SearchTreeNode(
                 final @NotNull AtomicInteger nodesCreated,
                 final @NotNull AtomicInteger nodesProcessed,
                 final @NotNull Graph<V> graph,
-                final @NotNull IndependentSet<V> fixed) {
+                final @NotNull IndependentSet<V> fixed,
+                final @NotNull BranchingStrategy<V> strategy) {
 
-            this(nodesCreated, nodesProcessed, 0, "f", graph, fixed);
+            this(nodesCreated, nodesProcessed, null, 0, "f", graph, fixed,
+                    TranspositionTable.hashOf(graph, fixed.getEdges()), strategy);
         }
 
         private SearchTreeNode(
                 final @NotNull AtomicInteger nodesCreated,
                 final @NotNull AtomicInteger nodesProcessed,
+                final @Nullable SearchTreeNode parent,
                 final int depth,
                 final @NotNull String index,
                 final @NotNull Graph<V> graph,
-                final @NotNull IndependentSet<V> fixed) {
+                final @NotNull IndependentSet<V> fixed,
+                final long hash,
+                final @NotNull BranchingStrategy<V> strategy) {
 
-            super(nodesCreated, nodesProcessed, depth, index, graph);
+            super(nodesCreated, nodesProcessed, parent, depth, index, graph);
             this.fixed = fixed;
+            this.hash = hash;
+            this.strategy = strategy;
         }
 
         @Override
-        @SuppressWarnings({ "OptionalGetWithoutIsPresent", "Duplicates" })
         protected @NotNull Optional<Graph<V>> _compute() {
+            // the graph of the root belongs to the caller, so the subtree is searched on a copy
+            if (isSequential(graph)) {
+                logNode("searching in place", false, depth, index);
+                return memoized(graph, fixed, hash, () ->
+                        searchInPlace(new EdgeTrail<>(graph.copy()), fixed, depth, index));
+            } else {
+                return memoized(graph, fixed, hash, this::search);
+            }
+        }
+
+        @SuppressWarnings({ "OptionalGetWithoutIsPresent", "OptionalAssignedToNull" })
+        private @NotNull Optional<Graph<V>> search() {
+            final GraphAnalysis<V> analysis = graph.analyze();
+            final Optional<Graph<V>> leaf = findLeaf(graph, analysis, fixed, depth, index);
+
+            if (leaf != null) {
+                return leaf;
+            }
+
+            final List<Edge<V>> bridges = analysis.getBridges();
+
+            final Optional<List<Graph<V>>> components =
+                    bridges.isEmpty() ? null : splitByBridges(graph, bridges, depth, index);
+
+            if (components != null) {
+                if (!components.isPresent()) {
+                    return Optional.empty();
+                }
+
+                final List<SearchTreeNode> tasks = new ArrayList<>();
+
+                for (int i = 0; i < components.get().size(); ++i) {
+                    final Graph<V> component = components.get().get(i);
+                    final IndependentSet<V> componentFixed = fixed.filter(component.getVertices());
+
+                    tasks.add(new SearchTreeNode(
+                            nodesCreated, nodesProcessed, this, depth + 1, index + "b" + (i + 1),
+                            component, componentFixed,
+                            TranspositionTable.hashOf(component, componentFixed.getEdges()), strategy));
+                }
+
+                return findAll(tasks).map(subTrees -> treeOf(bridges, subTrees));
+            } else {
+                final List<SearchTreeNode> tasks = new ArrayList<>();
+                final Edge<V> branchingEdge = strategy.selectEdge(graph, analysis);
+
+                Graph<V> graphCopy = graph.copy();
+                graphCopy.removeEdge(branchingEdge);
+                IndependentSet<V> fixedCopy = fixed.copy();
+
+                tasks.add(new SearchTreeNode(
+                        nodesCreated, nodesProcessed, this, depth + 1, index + "e", graphCopy, fixedCopy,
+                        hash ^ TranspositionTable.keyOf(branchingEdge), strategy));
+
+                if (fixed.canBeAdded(branchingEdge)) {
+                    logNode("splitting by branching edge, branching edge is included",
+                            false, depth, index);
+
+                    final long includedHash = hash ^ TranspositionTable.fixedKeyOf(branchingEdge) ^
+                            TranspositionTable.keysOf(graph.getIntersecting(branchingEdge));
+
+                    graphCopy = graph.copy();
+                    graphCopy.removeIntersecting(branchingEdge);
+                    fixedCopy = fixed.copy();
+                    fixedCopy.add(branchingEdge);
+
+                    tasks.add(new SearchTreeNode(
+                            nodesCreated, nodesProcessed, this, depth + 1, index + "i", graphCopy, fixedCopy,
+                            includedHash, strategy));
+                } else {
+                    logNode("splitting by branching edge, branching edge isn't included",
+                            false, depth, index);
+                }
+
+                return strategy.isDeterministic() ? findFirst(tasks) : findAny(tasks);
+            }
+        }
+
+        // removed edges and fixed edges are rolled back once a branch is done, so neither is copied
+        // only the root of the subtree is memoized
+        private @NotNull Optional<Graph<V>> findInPlace(
+                final @NotNull EdgeTrail<V> trail,
+                final @NotNull IndependentSet<V> fixed,
+                final int depth,
+                final @NotNull String index) {
+
+            if (isAbandoned()) {
+                return Optional.empty();
+            }
+
+            nodesCreated.incrementAndGet();
+            countProcessed();
+            return searchInPlace(trail, fixed, depth, index);
+        }
+
+        @SuppressWarnings({ "OptionalGetWithoutIsPresent", "OptionalAssignedToNull" })
+        private @NotNull Optional<Graph<V>> searchInPlace(
+                final @NotNull EdgeTrail<V> trail,
+                final @NotNull IndependentSet<V> fixed,
+                final int depth,
+                final @NotNull String index) {
+
+            final Graph<V> graph = trail.getGraph();
+            final GraphAnalysis<V> analysis = graph.analyze();
+            final Optional<Graph<V>> leaf = findLeaf(graph, analysis, fixed, depth, index);
+
+            if (leaf != null) {
+                return leaf;
+            }
+
+            final List<Edge<V>> bridges = analysis.getBridges();
+
+            final Optional<List<Graph<V>>> components =
+                    bridges.isEmpty() ? null : splitByBridges(graph, bridges, depth, index);
+
+            if (components != null) {
+                if (!components.isPresent()) {
+                    return Optional.empty();
+                }
+
+                final List<Graph<V>> subTrees = new ArrayList<>();
+
+                for (int i = 0; i < components.get().size(); ++i) {
+                    final Graph<V> component = components.get().get(i);
+                    final IndependentSet<V> componentFixed = fixed.filter(component.getVertices());
+
+                    final Optional<Graph<V>> subTree = findInPlace(
+                            new EdgeTrail<>(component), componentFixed, depth + 1, index + "b" + (i + 1));
+
+                    if (!subTree.isPresent()) {
+                        return Optional.empty();
+                    }
+
+                    subTrees.add(subTree.get());
+                }
+
+                return Optional.of(treeOf(bridges, subTrees));
+            }
+
+            final Edge<V> branchingEdge = strategy.selectEdge(graph, analysis);
+            final int mark = fixed.mark();
+            final int edgesMark = trail.mark();
+
+            trail.removeEdge(branchingEdge);
+            final Optional<Graph<V>> excluded = findInPlace(trail, fixed, depth + 1, index + "e");
+            trail.rollback(edgesMark);
+            fixed.rollback(mark);
+
+            if (excluded.isPresent() || !fixed.canBeAdded(branchingEdge)) {
+                return excluded;
+            }
+
+            trail.removeIntersecting(branchingEdge);
+            fixed.add(branchingEdge);
+            final Optional<Graph<V>> included = findInPlace(trail, fixed, depth + 1, index + "i");
+            trail.rollback(edgesMark);
+            fixed.rollback(mark);
+            return included;
+        }
+
+        private @NotNull Optional<Graph<V>> memoized(
+                final @NotNull Graph<V> graph,
+                final @NotNull IndependentSet<V> fixed,
+                final long hash,
+                final @NotNull Supplier<Optional<Graph<V>>> search) {
+
+            if (table == null) {
+                return search.get();
+            } else {
+                return table.find(new TranspositionTable.State(hash, graph, fixed.getEdges()), this, search);
+            }
+        }
+
+        // result of a node that isn't split, null if it has to be split
+        @SuppressWarnings("OptionalAssignedToNull")
+        private @Nullable Optional<Graph<V>> findLeaf(
+                final @NotNull Graph<V> graph,
+                final @NotNull GraphAnalysis<V> analysis,
+                final @NotNull IndependentSet<V> fixed,
+                final int depth,
+                final @NotNull String index) {
+
             if (graph.getVerticesNumber() <= 1) {
                 logNode(String.format("vertices number = %d", graph.getVerticesNumber()), true, depth, index);
                 return Optional.of(graph.copy());
-            } else if (!graph.isConnected()) {
+            } else if (!analysis.isConnected()) {
                 logNode("not connected", true, depth, index);
                 return Optional.empty();
-            } else if (!graph.isIntersecting()) {
+            } else if (!analysis.isIntersecting()) {
                 logNode("non-crossing", true, depth, index);
-                fixed.addAll(graph.getEdges());
-                return Optional.of(fixed.toGraph());
-            } else if (graph.getIntersectionIndex() == 1) {
+                final int mark = fixed.mark();
+                final Graph<V> tree = fixed.addAll(graph.getEdges()).toGraph();
+                fixed.rollback(mark);
+                return Optional.of(tree);
+            } else if (analysis.getIntersectionIndex() == 1) {
                 logNode("intersection index 1", true, depth, index);
-                final Matroid<Edge<V>> cycleMatroid = Matroids.cycleMatroidWithFixedEdgesOf(graph, fixed.getEdges());
+                final Graph<V> frozen = graph.freeze();
+                final Matroid<Edge<V>> cycleMatroid = Matroids.cycleMatroidWithFixedEdgesOf(frozen, fixed.getEdges());
 
                 final Matroid<Edge<V>> intersectionMatroid =
-                        Matroids.intersectionMatroidWithFixedEdgesOf(graph, fixed.getEdges());
+                        Matroids.intersectionMatroidWithFixedEdgesOf(frozen, fixed.getEdges());
 
                 final MatroidIntersectionAlgorithm<Edge<V>> matroidIntersectionAlgorithm =
                         new BaseMatroidIntersectionAlgorithm<>();
@@ -79,103 +312,75 @@ public final class NcstAlgorithmImpl<V> extends BaseSearchTreeAlgorithm implemen
                 final Set<Edge<V>> nonCrossingEdges =
                         matroidIntersectionAlgorithm.findIntersection(cycleMatroid, intersectionMatroid);
 
-                if (nonCrossingEdges.size() == graph.getVerticesNumber() - 1) {
-                    return Optional.of(UndirectedGraphWithIntersections.of(nonCrossingEdges));
+                // fixed edges aren't elements of the matroids, so they're added to the intersection here
+                if (fixed.getEdges().size() + nonCrossingEdges.size() == graph.getVerticesNumber() - 1) {
+                    final int mark = fixed.mark();
+                    final Graph<V> tree = fixed.addAll(nonCrossingEdges).toGraph();
+                    fixed.rollback(mark);
+                    return Optional.of(tree);
                 } else {
                     return Optional.empty();
                 }
             } else {
-                final List<Edge<V>> bridges = graph.findBridges();
-
-                if (!bridges.isEmpty()) {
-                    final Graph<V> graphCopy = graph.copy();
-                    int removedBridges = 0;
+                return null;
+            }
+        }
 
-                    for (final Edge<V> bridge : bridges) {
-                        graphCopy.removeIntersecting(bridge);
-                        removedBridges += graphCopy.removeEdge(bridge) ? 1 : 0;
-                    }
+        // components left once the bridges and the edges crossing them are removed, one more than bridges,
+        // empty if the graph can't be split, null if edges of different components cross each other
+        @SuppressWarnings("OptionalAssignedToNull")
+        private @Nullable Optional<List<Graph<V>>> splitByBridges(
+                final @NotNull Graph<V> graph,
+                final @NotNull List<Edge<V>> bridges,
+                final int depth,
+                final @NotNull String index) {
 
-                    if (removedBridges < bridges.size()) {
-                        logNode("splitting by bridges is impossible: bridges intersect each other", true, depth, index);
-                        return Optional.empty();
-                    }
+            final Graph<V> graphCopy = graph.copy();
+            int removedBridges = 0;
 
-                    final List<Graph<V>> connectedComponents = graphCopy.getConnectedComponents();
-
-                    if (connectedComponents.size() == bridges.size() + 1) {
-                        logNode("splitting by bridges", false, depth, index);
-
-                        final List<SearchTreeNode> tasks = IntStream.rangeClosed(0, bridges.size())
-                                .mapToObj(i -> new SearchTreeNode(
-                                        nodesCreated, nodesProcessed,
-                                        depth + 1, index + "b" + (i + 1),
-                                        connectedComponents.get(i),
-                                        fixed.filter(connectedComponents.get(i).getVertices())))
-                                .collect(ImmutableList.toImmutableList());
-
-                        final List<Graph<V>> subTrees = invokeAll(tasks).stream()
-                                .map(SearchTreeNode::join)
-                                .filter(Optional::isPresent)
-                                .map(Optional::get)
-                                .collect(Collectors.toList());
-
-                        if (subTrees.size() == bridges.size() + 1) {
-                            final Graph<V> tree = UndirectedGraphWithIntersections.of(bridges);
-
-                            for (final Graph<V> subTree : subTrees) {
-                                subTree.getEdges()
-                                        .forEach(tree::addEdge);
-                            }
-
-                            return Optional.of(tree);
-                        } else {
-                            return Optional.empty();
-                        }
-                    } else if (connectedComponents.size() > bridges.size() + 1) {
-                        logNode(
-                                "splitting by bridges is impossible: too many connected components",
-                                true, depth, index);
+            for (final Edge<V> bridge : bridges) {
+                graphCopy.removeIntersecting(bridge);
+                removedBridges += graphCopy.removeEdge(bridge) ? 1 : 0;
+            }
 
-                        return Optional.empty();
-                    } else {
-                        // should never happen
-                        throw new RuntimeException();
-                    }
-                } else {
-                    final List<SearchTreeNode> tasks = new ArrayList<>();
-                    final Edge<V> mostIntersecting = graph.getMostIntersectingEdge().get();
+            if (removedBridges < bridges.size()) {
+                logNode("splitting by bridges is impossible: bridges intersect each other", true, depth, index);
+                return Optional.empty();
+            }
 
-                    Graph<V> graphCopy = graph.copy();
-                    graphCopy.removeEdge(mostIntersecting);
-                    IndependentSet<V> fixedCopy = fixed.copy();
+            final ComponentLabels<V> labels = graphCopy.labelComponents();
 
-                    tasks.add(new SearchTreeNode(
-                            nodesCreated, nodesProcessed, depth + 1, index + "e", graphCopy, fixedCopy));
+            if (labels.getComponentsNumber() > bridges.size() + 1) {
+                logNode("splitting by bridges is impossible: too many connected components", true, depth, index);
+                return Optional.empty();
+            } else if (labels.getComponentsNumber() < bridges.size() + 1) {
+                // should never happen
+                throw new RuntimeException();
+            }
 
-                    if (fixed.canBeAdded(mostIntersecting)) {
-                        logNode("splitting by most intersecting edge, most intersecting edge is included",
+            for (final Edge<V> edge : graphCopy.getEdges()) {
+                for (final Edge<V> intersecting : graphCopy.getIntersecting(edge)) {
+                    if (labels.getLabel(edge.getVertex1()) != labels.getLabel(intersecting.getVertex1())) {
+                        logNode("splitting by bridges is postponed: components intersect each other",
                                 false, depth, index);
 
-                        graphCopy = graph.copy();
-                        graphCopy.removeIntersecting(mostIntersecting);
-                        fixedCopy = fixed.copy();
-                        fixedCopy.add(mostIntersecting);
-
-                        tasks.add(new SearchTreeNode(
-                                nodesCreated, nodesProcessed, depth + 1, index + "i", graphCopy, fixedCopy));
-                    } else {
-                        logNode("splitting by most intersecting edge, most intersecting edge isn't included",
-                                false, depth, index);
+                        return null;
                     }
-
-                    return invokeAll(tasks).stream()
-                            .map(SearchTreeNode::join)
-                            .filter(Optional::isPresent)
-                            .findAny()
-                            .orElse(Optional.empty());
                 }
             }
+
+            logNode("splitting by bridges", false, depth, index);
+            return Optional.of(graphCopy.getConnectedComponents());
+        }
+
+        private @NotNull Graph<V> treeOf(final @NotNull List<Edge<V>> bridges, final @NotNull List<Graph<V>> subTrees) {
+            final GraphBuilder<V> tree = new GraphBuilder<V>().addEdges(bridges);
+
+            for (final Graph<V> subTree : subTrees) {
+                tree.addEdges(subTree.getEdges());
+            }
+
+            return tree.build();
         }
     }
 }
@@ -0,0 +1,220 @@
+package by.zsp.ncst.impl;
+
+import by.zsp.ncst.graph.Edge;
+import by.zsp.ncst.graph.Graph;
+import by.zsp.ncst.graph.Vertex;
+import by.zsp.ncst.graph.impl.GraphBuilder;
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableSet;
+import org.jetbrains.annotations.NotNull;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Optional;
+import java.util.Set;
+import java.util.function.Supplier;
+
+// bounded cache of results of search states, least recently used states are evicted
+// states are looked up by Zobrist hashes, on a match vertices with coordinates, edges and fixed edges are compared
+// tables are created by search algorithms, so NCST and BNCF searches never share one
+public final class TranspositionTable<V> {
+
+    private final @NotNull Cache<State, Optional<Result<V>>> results;
+
+    TranspositionTable(final long capacity) {
+        results = CacheBuilder.newBuilder()
+                .maximumSize(capacity)
+                .recordStats()
+                .build();
+    }
+
+    public long getHits() {
+        return results.stats().hitCount();
+    }
+
+    public long getMisses() {
+        return results.stats().missCount();
+    }
+
+    public long getSize() {
+        return results.size();
+    }
+
+    public void clear() {
+        results.invalidateAll();
+    }
+
+    // result from the table or from the search of the node, results of abandoned nodes aren't stored,
+    // as abandoned subtrees don't prove there's no result
+    @SuppressWarnings("OptionalAssignedToNull")
+    @NotNull Optional<Graph<V>> find(
+            final @NotNull State state,
+            final @NotNull BaseSearchTreeAlgorithm.BaseSearchTreeNode<V> node,
+            final @NotNull Supplier<Optional<Graph<V>>> search) {
+
+        final Optional<Result<V>> cached = results.getIfPresent(state);
+
+        if (cached != null) {
+            return cached.map(Result::toGraph);
+        }
+
+        final Optional<Graph<V>> result = search.get();
+
+        if (!node.isAbandoned()) {
+            results.put(state, result.map(Result::new));
+        }
+
+        return result;
+    }
+
+    // vertices aren't changed by search nodes, so their keys are only added up for new graphs
+    static long hashOf(final @NotNull Graph<?> graph, final @NotNull Collection<? extends Edge<?>> fixed) {
+        long hash = keysOf(graph.getEdges());
+
+        for (final Vertex<?> vertex : graph.getVertices()) {
+            hash ^= keyOf(vertex);
+        }
+
+        for (final Edge<?> edge : fixed) {
+            hash ^= fixedKeyOf(edge);
+        }
+
+        return hash;
+    }
+
+    static long keysOf(final @NotNull Collection<? extends Edge<?>> edges) {
+        long keys = 0;
+
+        for (final Edge<?> edge : edges) {
+            keys ^= keyOf(edge);
+        }
+
+        return keys;
+    }
+
+    // keys depend on vertex IDs only, as equality of vertices does, and not on the order of vertices of edges
+    static long keyOf(final @NotNull Vertex<?> vertex) {
+        return mix(vertex.getId().hashCode());
+    }
+
+    static long keyOf(final @NotNull Edge<?> edge) {
+        return mix(keyOf(edge.getVertex1()) + keyOf(edge.getVertex2()));
+    }
+
+    static long fixedKeyOf(final @NotNull Edge<?> edge) {
+        return mix(~keyOf(edge));
+    }
+
+    // finalizer of SplitMix64
+    private static long mix(long value) {
+        value = (value ^ (value >>> 30)) * 0xbf58476d1ce4e5b9L;
+        value = (value ^ (value >>> 27)) * 0x94d049bb133111ebL;
+        return value ^ (value >>> 31);
+    }
+
+    // snapshot of a search state, edges are compared by vertex IDs, as they join vertices of the state
+    static final class State {
+
+        private final long hash;
+        private final @NotNull Set<Point> vertices;
+        private final @NotNull Set<Edge<?>> edges;
+        private final @NotNull Set<Edge<?>> fixed;
+
+        State(final long hash, final @NotNull Graph<?> graph, final @NotNull Collection<? extends Edge<?>> fixed) {
+            this.hash = hash;
+            final ImmutableSet.Builder<Point> vertices = ImmutableSet.builder();
+
+            for (final Vertex<?> vertex : graph.getVertices()) {
+                vertices.add(new Point(vertex));
+            }
+
+            this.vertices = vertices.build();
+            edges = ImmutableSet.copyOf(graph.getEdges());
+            this.fixed = ImmutableSet.copyOf(fixed);
+        }
+
+        @Override
+        public boolean equals(final Object o) {
+            if (this == o) {
+                return true;
+            }
+
+            if (!(o instanceof State)) {
+                return false;
+            }
+
+            final State state = (State) o;
+
+            return hash == state.hash && vertices.equals(state.vertices) && edges.equals(state.edges) &&
+                    fixed.equals(state.fixed);
+        }
+
+        @Override
+        public int hashCode() {
+            return (int) (hash ^ (hash >>> 32));
+        }
+    }
+
+    private static final class Point {
+
+        private final @NotNull Object id;
+        private final double x;
+        private final double y;
+
+        private Point(final @NotNull Vertex<?> vertex) {
+            id = vertex.getId();
+            x = vertex.getX();
+            y = vertex.getY();
+        }
+
+        @Override
+        public boolean equals(final Object o) {
+            if (this == o) {
+                return true;
+            }
+
+            if (!(o instanceof Point)) {
+                return false;
+            }
+
+            final Point point = (Point) o;
+            return id.equals(point.id) && Double.compare(x, point.x) == 0 && Double.compare(y, point.y) == 0;
+        }
+
+        @Override
+        public int hashCode() {
+            return id.hashCode();
+        }
+    }
+
+    // results have no crossings, so they're rebuilt without looking for them
+    private static final class Result<V> {
+
+        private final @NotNull List<Edge<V>> edges;
+        private final @NotNull List<Vertex<V>> isolatedVertices;
+
+        private Result(final @NotNull Graph<V> graph) {
+            edges = ImmutableList.copyOf(graph.getEdges());
+            isolatedVertices = new ArrayList<>();
+
+            for (final Vertex<V> vertex : graph.getVertices()) {
+                if (graph.getNeighbours(vertex).isEmpty()) {
+                    isolatedVertices.add(vertex);
+                }
+            }
+        }
+
+        private @NotNull Graph<V> toGraph() {
+            final Graph<V> graph = new GraphBuilder<V>()
+                    .trusted(true)
+                    .addEdges(edges)
+                    .build();
+
+            isolatedVertices.forEach(graph::addVertex);
+            return graph;
+        }
+    }
+}
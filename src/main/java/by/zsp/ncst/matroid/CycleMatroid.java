@@ -3,92 +3,92 @@ package by.zsp.ncst.matroid;
 import by.zsp.ncst.exception.MatroidException;
 import by.zsp.ncst.graph.Edge;
 import by.zsp.ncst.graph.Graph;
-import by.zsp.ncst.graph.Vertex;
-import by.zsp.ncst.util.annotation.Mutable;
+import by.zsp.ncst.graph.VertexNumbering;
 import by.zsp.ncst.util.annotation.NotEmpty;
-import com.google.common.collect.ImmutableSet;
 import org.jetbrains.annotations.NotNull;
 
 import java.util.*;
 
 class CycleMatroid<V> extends GraphMatroid<V> {
 
+    private final @NotNull VertexNumbering<V> numbering;
+
     CycleMatroid(@NotNull Graph<V> graph) throws MatroidException {
         super(graph);
 
         if (graph.isDirected()) {
             throw new MatroidException("Directed graphs aren't supported");
         }
+
+        numbering = this.graph.numberVertices();
     }
 
+    // a non-tree edge of a depth-first search closes a circuit with the tree path
     @Override
     protected Optional<@NotEmpty Set<Edge<V>>> findCircuitChecked(final @NotNull @NotEmpty Set<Edge<V>> subset) {
-        final ImmutableSet<Vertex<V>> vertices = subset.stream()
-                .flatMap(Edge::asStream)
-                .collect(ImmutableSet.toImmutableSet());
+        final List<Edge<V>> edges = new ArrayList<>(subset);
+        final int[] heads = new int[numbering.getVerticesNumber()];
+        // slot 2 * i + j holds the edge i seen from its j-th vertex
+        final int[] nextSlots = new int[2 * edges.size()];
+        final int[] targets = new int[2 * edges.size()];
+        Arrays.fill(heads, -1);
+
+        for (int edge = 0; edge < edges.size(); ++edge) {
+            final int vertex1 = numbering.numberOf(edges.get(edge).getVertex1());
+            final int vertex2 = numbering.numberOf(edges.get(edge).getVertex2());
+            targets[2 * edge] = vertex2;
+            nextSlots[2 * edge] = heads[vertex1];
+            heads[vertex1] = 2 * edge;
+            targets[2 * edge + 1] = vertex1;
+            nextSlots[2 * edge + 1] = heads[vertex2];
+            heads[vertex2] = 2 * edge + 1;
+        }
 
-        return findCircuit(vertices, subset);
-    }
+        // edge to the parent, -1 for roots, -2 for vertices that haven't been visited
+        final int[] parentEdges = new int[heads.length];
+        final int[] parents = new int[heads.length];
+        final int[] slots = heads.clone();
+        final int[] stack = new int[heads.length];
+        Arrays.fill(parentEdges, -2);
 
-    private Optional<@NotEmpty Set<Edge<V>>> findCircuit(
-            final @NotNull Set<Vertex<V>> vertices,
-            final @NotNull Set<Edge<V>> edges) {
+        for (int root = 0; root < heads.length; ++root) {
+            if (heads[root] < 0 || parentEdges[root] != -2) {
+                continue;
+            }
 
-        final Map<Vertex<V>, Vertex<V>> ancestors = new HashMap<>();
-        Optional<Vertex<V>> repeated = Optional.empty();
+            parentEdges[root] = -1;
+            int depth = 0;
+            stack[depth++] = root;
 
-        for (final Vertex<V> vertex : vertices) {
-            if (!ancestors.containsKey(vertex)) {
-                ancestors.put(vertex, null);
-                repeated = dfs(vertex, edges, ancestors);
+            while (depth > 0) {
+                final int vertex = stack[depth - 1];
+                final int slot = slots[vertex];
 
-                if (repeated.isPresent()) {
-                    break;
+                if (slot < 0) {
+                    depth--;
+                    continue;
                 }
-            }
-        }
 
-        if (repeated.isPresent()) {
-            final Set<Edge<V>> circuit = new HashSet<>();
-            final Vertex<V> first = repeated.get();
-            Vertex<V> current = first;
-
-            do {
-                assert ancestors.containsKey(current);
-                final @NotNull Vertex<V> next = ancestors.get(current);
-                circuit.add(graph.edgeOf(next, current));
-                current = next;
-            } while (!Objects.equals(current, first));
-
-            return Optional.of(circuit);
-        } else {
-            return Optional.empty();
-        }
-    }
+                slots[vertex] = nextSlots[slot];
+                final int edge = slot / 2;
+                final int target = targets[slot];
 
-    // returns first repeated vertex
-    // ancestors must form a cycle if a repeated vertex is found
-    private Optional<Vertex<V>> dfs(
-            final @NotNull Vertex<V> current,
-            final @NotNull Set<Edge<V>> edges,
-            final @NotNull @Mutable Map<Vertex<V>, Vertex<V>> ancestors) {
-
-        assert ancestors.containsKey(current);
-
-        for (final Vertex<V> neighbour : graph.getNeighbours(current)) {
-            if (edges.contains(graph.edgeOf(current, neighbour))) {
-                if (ancestors.containsKey(neighbour)) {
-                    if (!Objects.equals(neighbour, ancestors.get(current))) {
-                        ancestors.put(neighbour, current);
-                        return Optional.of(neighbour);
-                    }
+                if (edge == parentEdges[vertex]) {
+                    continue;
+                } else if (parentEdges[target] == -2) {
+                    parentEdges[target] = edge;
+                    parents[target] = vertex;
+                    stack[depth++] = target;
                 } else {
-                    ancestors.put(neighbour, current);
-                    final Optional<Vertex<V>> repeated = dfs(neighbour, edges, ancestors);
+                    // the target is an ancestor, as edges to finished vertices are seen from them first
+                    final Set<Edge<V>> circuit = new HashSet<>();
+                    circuit.add(edges.get(edge));
 
-                    if (repeated.isPresent()) {
-                        return repeated;
+                    for (int current = vertex; current != target; current = parents[current]) {
+                        circuit.add(edges.get(parentEdges[current]));
                     }
+
+                    return Optional.of(circuit);
                 }
             }
         }
@@ -96,4 +96,3 @@ class CycleMatroid<V> extends GraphMatroid<V> {
         return Optional.empty();
     }
 }
-
@@ -17,7 +17,7 @@ abstract class GraphMatroid<V> implements Matroid<Edge<V>> {
     protected final Graph<V> graph;
 
     protected GraphMatroid(final @NotNull Graph<V> graph) {
-        this.graph = graph.copy();
+        this.graph = graph.freeze();
     }
 
     @Override
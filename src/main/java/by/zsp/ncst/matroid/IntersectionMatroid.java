@@ -17,24 +17,38 @@ class IntersectionMatroid<V> extends GraphMatroid<V> {
     @NotNull
     @Immutable
     private final Map<Edge<V>, Integer> intersectionGroups;
+    private final int groupsNumber;
 
     IntersectionMatroid(final @NotNull Graph<V> graph, final boolean validate) throws MatroidException {
         super(graph);
         intersectionGroups = Collections.unmodifiableMap(buildIntersectionGroups(validate));
+        groupsNumber = (int) intersectionGroups.values().stream().distinct().count();
     }
 
     private @NotNull Map<Edge<V>, Integer> buildIntersectionGroups(final boolean validate) throws MatroidException {
         final Map<Edge<V>, Integer> intersectionGroups = new HashMap<>();
         final List<Edge<V>> ordered = new ArrayList<>(graph.getEdges());
+        // (x1, y1, x2, y2) of every edge
+        final double[] coordinates = new double[ordered.size() * 4];
         int intersectionGroup = 0;
 
+        for (int i = 0; i < ordered.size(); i++) {
+            final Edge<V> edge = ordered.get(i);
+            coordinates[4 * i] = edge.getVertex1().getX();
+            coordinates[4 * i + 1] = edge.getVertex1().getY();
+            coordinates[4 * i + 2] = edge.getVertex2().getX();
+            coordinates[4 * i + 3] = edge.getVertex2().getY();
+        }
+
         for (int i = 0; i < ordered.size(); i++) {
             final Edge<V> edge1 = ordered.get(i);
 
             for (int j = 0; j < i; j++) {
                 final Edge<V> edge2 = ordered.get(j);
 
-                if (Geometry.isIntersecting(edge1, edge2)) {
+                if (Geometry.isIntersecting(
+                        coordinates[4 * i], coordinates[4 * i + 1], coordinates[4 * i + 2], coordinates[4 * i + 3],
+                        coordinates[4 * j], coordinates[4 * j + 1], coordinates[4 * j + 2], coordinates[4 * j + 3])) {
                     final int currentIntersectionGroup;
 
                     if (!intersectionGroups.containsKey(edge2)) {
@@ -63,18 +77,18 @@ class IntersectionMatroid<V> extends GraphMatroid<V> {
     @SuppressWarnings("unchecked")
     @Override
     protected Optional<@NotEmpty Set<Edge<V>>> findCircuitChecked(final @NotNull @NotEmpty Set<Edge<V>> subset) {
-        final Map<Integer, Edge<V>> intersectingVisited = new HashMap<>();
+        final Object[] intersectingVisited = new Object[groupsNumber];
 
         for (final Edge<V> edge : subset) {
-            if (intersectionGroups.containsKey(edge)) {
-                final int intersectionGroup = intersectionGroups.get(edge);
+            final Integer intersectionGroup = intersectionGroups.get(edge);
 
-                if (intersectingVisited.containsKey(intersectionGroup)) {
-                    final Edge<V> intersecting = intersectingVisited.get(intersectionGroup);
+            if (intersectionGroup != null) {
+                if (intersectingVisited[intersectionGroup] != null) {
+                    final Edge<V> intersecting = (Edge<V>) intersectingVisited[intersectionGroup];
                     final Set<Edge<V>> circuit = Sets.newHashSet(intersecting, edge);
                     return Optional.of(circuit);
                 } else {
-                    intersectingVisited.put(intersectionGroup, edge);
+                    intersectingVisited[intersectionGroup] = edge;
                 }
             }
         }
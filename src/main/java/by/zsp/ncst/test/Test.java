@@ -2,11 +2,16 @@ package by.zsp.ncst.test;
 
 import by.zsp.ncst.NcstAlgorithm;
 import by.zsp.ncst.PolygonNcstAlgorithm;
+import by.zsp.ncst.graph.Edge;
 import by.zsp.ncst.graph.Graph;
 import by.zsp.ncst.graph.Vertex;
+import by.zsp.ncst.graph.impl.CompactUndirectedGraph;
+import by.zsp.ncst.graph.impl.ConcurrentUndirectedGraph;
 import by.zsp.ncst.graph.impl.UndirectedGraphWithIntersections;
+import by.zsp.ncst.impl.BaseSearchTreeAlgorithm;
 import by.zsp.ncst.impl.NcstAlgorithmImpl;
 import by.zsp.ncst.impl.PolygonNcstAlgorithmImpl;
+import by.zsp.ncst.impl.TranspositionTable;
 import by.zsp.ncst.util.Visualizer;
 import com.google.common.io.Files;
 import org.apache.commons.lang3.time.StopWatch;
@@ -30,6 +35,7 @@ import java.util.ArrayList;
 import java.util.List;
 import java.util.Optional;
 import java.util.UUID;
+import java.util.concurrent.ForkJoinPool;
 
 public class Test {
 
@@ -86,6 +92,120 @@ public class Test {
         System.out.println("Search Tree NCST Algorithm: " + stopWatch.getTime() + " ms");
     }
 
+    // traversals of a random graph in input order and in the order of the Hilbert curve
+    private static void compareSpatialOrders() {
+        final Graph<Integer> g = new UndirectedGraphWithIntersections<>();
+        TestUtils.generateLargeRandomGraph(g, 200000, 300000);
+        final CompactUndirectedGraph<Integer> inputOrder = CompactUndirectedGraph.of(g);
+        final CompactUndirectedGraph<Integer> spatialOrder = inputOrder.reordered();
+        System.out.println(g);
+
+        for (int i = 0; i < 5; ++i) {
+            System.out.println("Input order: " + measureTraversals(inputOrder) + " ms");
+            System.out.println("Hilbert order: " + measureTraversals(spatialOrder) + " ms");
+        }
+    }
+
+    private static long measureTraversals(final @NotNull Graph<Integer> g) {
+        final StopWatch stopWatch = new StopWatch();
+        stopWatch.start();
+
+        for (int i = 0; i < 10; ++i) {
+            g.isConnected();
+            g.findBridges();
+            g.getConnectedComponents();
+        }
+
+        stopWatch.stop();
+        return stopWatch.getTime();
+    }
+
+    // the same edges added to a concurrent graph by a growing number of threads, each adds its own share
+    private static void compareIngestionThreads() throws InterruptedException {
+        final int verticesNumber = 200000;
+        final Graph<Integer> g = new UndirectedGraphWithIntersections<>();
+        TestUtils.generateLargeRandomGraph(g, verticesNumber, 300000);
+        final List<Edge<Integer>> edges = new ArrayList<>(g.getEdges());
+        // edges join vertices of neighbouring cells of the generator
+        final double cellSize = 1 / Math.sqrt(verticesNumber / 4.0);
+        System.out.println(g);
+
+        for (int i = 0; i < 5; ++i) {
+            for (int threadsNumber = 1; threadsNumber <= 8; threadsNumber *= 2) {
+                System.out.println(threadsNumber + " threads: " +
+                        measureIngestion(new ConcurrentUndirectedGraph<>(cellSize), edges, threadsNumber) + " ms");
+            }
+        }
+    }
+
+    private static long measureIngestion(
+            final @NotNull Graph<Integer> g,
+            final @NotNull List<Edge<Integer>> edges,
+            final int threadsNumber) throws InterruptedException {
+
+        final Thread[] threads = new Thread[threadsNumber];
+
+        for (int i = 0; i < threadsNumber; ++i) {
+            final List<Edge<Integer>> share =
+                    edges.subList(edges.size() * i / threadsNumber, edges.size() * (i + 1) / threadsNumber);
+
+            threads[i] = new Thread(() -> share.forEach(g::addEdge));
+        }
+
+        final StopWatch stopWatch = new StopWatch();
+        stopWatch.start();
+
+        for (final Thread thread : threads) {
+            thread.start();
+        }
+
+        for (final Thread thread : threads) {
+            thread.join();
+        }
+
+        stopWatch.stop();
+        return stopWatch.getTime();
+    }
+
+    // searches of a graph and of its subgraphs without single edges, with and without a shared table
+    private static void compareTranspositionTables() {
+        final Graph<Integer> g = new UndirectedGraphWithIntersections<>();
+        TestUtils.generateRandomPolygonGraph(g, new ArrayList<>(), 16, 60);
+        System.out.println(g);
+
+        final List<Graph<Integer>> graphs = new ArrayList<>();
+        graphs.add(g);
+
+        for (final Edge<Integer> edge : g.getEdges()) {
+            final Graph<Integer> subgraph = g.copy();
+            subgraph.removeEdge(edge);
+            graphs.add(subgraph);
+        }
+
+        final NcstAlgorithm<Integer> plainNcst = new NcstAlgorithmImpl<>(ForkJoinPool.commonPool());
+        final NcstAlgorithmImpl<Integer> memoizedNcst = new NcstAlgorithmImpl<>(
+                ForkJoinPool.commonPool(), BaseSearchTreeAlgorithm.DEFAULT_SEQUENTIAL_THRESHOLD, 1000000);
+
+        final TranspositionTable<Integer> table = memoizedNcst.getTranspositionTable();
+
+        for (int i = 0; i < 5; ++i) {
+            System.out.println("Without table: " + measureSearches(plainNcst, graphs) + " ms");
+            System.out.println("With table: " + measureSearches(memoizedNcst, graphs) + " ms, " +
+                    table.getHits() + " hits, " + table.getMisses() + " misses");
+        }
+    }
+
+    private static long measureSearches(
+            final @NotNull NcstAlgorithm<Integer> ncstAlgorithm,
+            final @NotNull List<Graph<Integer>> graphs) {
+
+        final StopWatch stopWatch = new StopWatch();
+        stopWatch.start();
+        graphs.forEach(ncstAlgorithm::findNcst);
+        stopWatch.stop();
+        return stopWatch.getTime();
+    }
+
     private static void drawConcaveGeometricGraph() {
         final XYSeriesCollection data = new XYSeriesCollection();
         addSeries(data, new ImmutablePair<>(0., 0.));
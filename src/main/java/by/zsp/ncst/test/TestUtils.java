@@ -54,6 +54,53 @@ public final class TestUtils {
         edges.forEach(graph::addEdge);
     }
 
+    // the second vertex of an edge is taken from the grid cell of the first one or from a neighbouring cell
+    static void generateLargeRandomGraph(
+            final @NotNull Graph<Integer> graph, final int verticesNumber, final int edgesNumber) {
+
+        final int cellsPerSide = Math.max(1, (int) Math.sqrt(verticesNumber / 4.0));
+        final List<List<Vertex<Integer>>> cells = IntStream.range(0, cellsPerSide * cellsPerSide)
+                .mapToObj(i -> new ArrayList<Vertex<Integer>>())
+                .collect(Collectors.toList());
+
+        final List<Vertex<Integer>> vertices = IntStream.range(0, verticesNumber)
+                .mapToObj(i -> graph.vertexOf(
+                        i, RandomUtils.nextDouble(MIN_COORD, MAX_COORD), RandomUtils.nextDouble(MIN_COORD, MAX_COORD)))
+                .collect(Collectors.toList());
+
+        for (final Vertex<Integer> vertex : vertices) {
+            cells.get(cellOf(vertex.getY(), cellsPerSide) * cellsPerSide + cellOf(vertex.getX(), cellsPerSide))
+                    .add(vertex);
+        }
+
+        final List<Edge<Integer>> edges = new ArrayList<>(edgesNumber);
+
+        while (edges.size() < edgesNumber) {
+            final Vertex<Integer> first = vertices.get(RandomUtils.nextInt(0, verticesNumber));
+            final int column = cellOf(first.getX(), cellsPerSide) + RandomUtils.nextInt(0, 3) - 1;
+            final int row = cellOf(first.getY(), cellsPerSide) + RandomUtils.nextInt(0, 3) - 1;
+
+            if (column >= 0 && column < cellsPerSide && row >= 0 && row < cellsPerSide) {
+                final List<Vertex<Integer>> cell = cells.get(row * cellsPerSide + column);
+
+                if (!cell.isEmpty()) {
+                    final Vertex<Integer> second = cell.get(RandomUtils.nextInt(0, cell.size()));
+
+                    if (!second.equals(first)) {
+                        edges.add(graph.edgeOf(first, second));
+                    }
+                }
+            }
+        }
+
+        vertices.forEach(graph::addVertex);
+        graph.addEdges(edges);
+    }
+
+    private static int cellOf(final double coordinate, final int cellsPerSide) {
+        return Math.min((int) ((coordinate - MIN_COORD) / (MAX_COORD - MIN_COORD) * cellsPerSide), cellsPerSide - 1);
+    }
+
     static void generateRandomPolygonGraph(
             final @NotNull Graph<Integer> graph, final @NotNull List<Vertex<Integer>> polygon,
             final int verticesNumber, final int edgesNumber) {
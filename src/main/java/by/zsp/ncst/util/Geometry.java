@@ -2,25 +2,238 @@ package by.zsp.ncst.util;
 
 import by.zsp.ncst.graph.Edge;
 import by.zsp.ncst.graph.Vertex;
-import by.zsp.ncst.util.annotation.Immutable;
-import com.vividsolutions.jts.geom.Coordinate;
-import com.vividsolutions.jts.triangulate.Segment;
+import com.vividsolutions.jts.geom.Envelope;
+import com.vividsolutions.jts.noding.BasicSegmentString;
+import com.vividsolutions.jts.noding.MCIndexNoder;
+import com.vividsolutions.jts.noding.SegmentIntersector;
+import com.vividsolutions.jts.noding.SegmentString;
+import org.apache.commons.lang3.tuple.ImmutablePair;
 import org.jetbrains.annotations.NotNull;
 
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.function.BiConsumer;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+
 public class Geometry {
 
+    private static final double EPSILON = Math.ulp(1.0) / 2;
+    // relative error bound of the floating-point orientation determinant, see Shewchuk's robust predicates
+    private static final double ORIENTATION_ERROR_BOUND = (3 + 16 * EPSILON) * EPSILON;
+
+    // the Hilbert index of a point fits into 30 bits
+    private static final int HILBERT_ORDER = 15;
+    private static final int TILES_PER_THREAD = 4;
+    private static final int MIN_PARALLEL_EDGES = 10000;
+
     private Geometry() {}
 
+    // segments intersect in a single point that isn't an endpoint of any of them
+    // touching at an endpoint, T-junctions and collinear overlaps aren't intersections
     public static <V> boolean isIntersecting(@NotNull Edge<V> edge1, @NotNull Edge<V> edge2) {
-        final @NotNull @Immutable Segment segment1 = edge1.asSegment();
-        final @NotNull @Immutable Segment segment2 = edge2.asSegment();
-        final @Immutable Coordinate intersection = segment1.intersection(segment2);
-
-        return intersection != null &&
-                !intersection.equals2D(segment1.getStart()) &&
-                !intersection.equals2D(segment1.getEnd()) &&
-                !intersection.equals2D(segment2.getStart()) &&
-                !intersection.equals2D(segment2.getEnd());
+        final Vertex<V> start1 = edge1.getVertex1();
+        final Vertex<V> end1 = edge1.getVertex2();
+        final Vertex<V> start2 = edge2.getVertex1();
+        final Vertex<V> end2 = edge2.getVertex2();
+
+        return isIntersecting(
+                start1.getX(), start1.getY(), end1.getX(), end1.getY(),
+                start2.getX(), start2.getY(), end2.getX(), end2.getY());
+    }
+
+    // the ends of each segment lie strictly on different sides of the other one
+    public static boolean isIntersecting(
+            final double x1, final double y1, final double x2, final double y2,
+            final double x3, final double y3, final double x4, final double y4) {
+
+        if (Math.max(x1, x2) < Math.min(x3, x4) || Math.max(x3, x4) < Math.min(x1, x2) ||
+                Math.max(y1, y2) < Math.min(y3, y4) || Math.max(y3, y4) < Math.min(y1, y2)) {
+
+            return false;
+        }
+
+        return orientation(x1, y1, x2, y2, x3, y3) * orientation(x1, y1, x2, y2, x4, y4) < 0 &&
+                orientation(x3, y3, x4, y4, x1, y1) * orientation(x3, y3, x4, y4, x2, y2) < 0;
+    }
+
+    // sign of the cross product (b - a) x (c - a): 1 if c is to the left of a -> b, -1 if to the right, 0 if collinear
+    // recomputed exactly unless the floating-point result is certainly correct
+    public static int orientation(
+            final double ax, final double ay, final double bx, final double by, final double cx, final double cy) {
+
+        final double left = (bx - ax) * (cy - ay);
+        final double right = (by - ay) * (cx - ax);
+        final double determinant = left - right;
+
+        if (Math.abs(determinant) > ORIENTATION_ERROR_BOUND * (Math.abs(left) + Math.abs(right))) {
+            return determinant > 0 ? 1 : -1;
+        }
+
+        final BigDecimal exactLeft = exactDifference(bx, ax).multiply(exactDifference(cy, ay));
+        final BigDecimal exactRight = exactDifference(by, ay).multiply(exactDifference(cx, ax));
+        return exactLeft.compareTo(exactRight);
+    }
+
+    private static @NotNull BigDecimal exactDifference(final double minuend, final double subtrahend) {
+        return new BigDecimal(minuend).subtract(new BigDecimal(subtrahend));
+    }
+
+    // reports every intersecting pair exactly once
+    @SuppressWarnings("unchecked")
+    public static <V, E extends Edge<V>> void findIntersections(
+            final @NotNull Collection<E> edges, final @NotNull BiConsumer<E, E> consumer) {
+
+        final List<SegmentString> segments = new ArrayList<>(edges.size());
+
+        for (final E edge : edges) {
+            segments.add(new BasicSegmentString(edge.asCoordinates(), edge));
+        }
+
+        final MCIndexNoder noder = new MCIndexNoder(new SegmentIntersector() {
+
+            @Override
+            public void processIntersections(
+                    final SegmentString segment1, final int index1, final SegmentString segment2, final int index2) {
+
+                if (segment1 != segment2) {
+                    final E edge1 = (E) segment1.getData();
+                    final E edge2 = (E) segment2.getData();
+
+                    if (isIntersecting(edge1, edge2)) {
+                        consumer.accept(edge1, edge2);
+                    }
+                }
+            }
+
+            @Override
+            public boolean isDone() {
+                return false;
+            }
+        });
+
+        noder.computeNodes(segments);
+    }
+
+    // tiles are processed by the common fork-join pool
+    public static <V, E extends Edge<V>> void findIntersectionsInParallel(
+            final @NotNull Collection<E> edges, final @NotNull BiConsumer<E, E> consumer) {
+
+        if (edges.size() < MIN_PARALLEL_EDGES) {
+            findIntersections(edges, consumer);
+        } else {
+            final int parallelism = ForkJoinPool.getCommonPoolParallelism();
+            findIntersections(edges, consumer, (int) Math.ceil(Math.sqrt(TILES_PER_THREAD * parallelism)));
+        }
+    }
+
+    // a pair of edges is reported by the tile holding the lower left corner of their envelopes intersection,
+    // the consumer is called from the calling thread only
+    public static <V, E extends Edge<V>> void findIntersections(
+            final @NotNull Collection<E> edges, final @NotNull BiConsumer<E, E> consumer, final int tilesPerSide) {
+
+        if (tilesPerSide <= 1) {
+            findIntersections(edges, consumer);
+            return;
+        }
+
+        final Envelope bounds = new Envelope();
+
+        for (final E edge : edges) {
+            bounds.expandToInclude(edge.getVertex1().getX(), edge.getVertex1().getY());
+            bounds.expandToInclude(edge.getVertex2().getX(), edge.getVertex2().getY());
+        }
+
+        final List<List<E>> tiles = new ArrayList<>(tilesPerSide * tilesPerSide);
+
+        for (int i = 0; i < tilesPerSide * tilesPerSide; ++i) {
+            tiles.add(new ArrayList<>());
+        }
+
+        for (final E edge : edges) {
+            final Vertex<V> vertex1 = edge.getVertex1();
+            final Vertex<V> vertex2 = edge.getVertex2();
+            final int fromColumn = columnOf(Math.min(vertex1.getX(), vertex2.getX()), bounds, tilesPerSide);
+            final int toColumn = columnOf(Math.max(vertex1.getX(), vertex2.getX()), bounds, tilesPerSide);
+            final int fromRow = rowOf(Math.min(vertex1.getY(), vertex2.getY()), bounds, tilesPerSide);
+            final int toRow = rowOf(Math.max(vertex1.getY(), vertex2.getY()), bounds, tilesPerSide);
+
+            for (int row = fromRow; row <= toRow; ++row) {
+                for (int column = fromColumn; column <= toColumn; ++column) {
+                    tiles.get(row * tilesPerSide + column).add(edge);
+                }
+            }
+        }
+
+        final List<List<ImmutablePair<E, E>>> tileIntersections = IntStream.range(0, tiles.size())
+                .parallel()
+                .mapToObj(tile -> {
+                    final List<ImmutablePair<E, E>> intersections = new ArrayList<>();
+
+                    findIntersections(tiles.get(tile), (edge1, edge2) -> {
+                        final double x = Math.max(
+                                Math.min(edge1.getVertex1().getX(), edge1.getVertex2().getX()),
+                                Math.min(edge2.getVertex1().getX(), edge2.getVertex2().getX()));
+
+                        final double y = Math.max(
+                                Math.min(edge1.getVertex1().getY(), edge1.getVertex2().getY()),
+                                Math.min(edge2.getVertex1().getY(), edge2.getVertex2().getY()));
+
+                        if (rowOf(y, bounds, tilesPerSide) * tilesPerSide + columnOf(x, bounds, tilesPerSide) == tile) {
+                            intersections.add(ImmutablePair.of(edge1, edge2));
+                        }
+                    });
+
+                    return intersections;
+                })
+                .collect(Collectors.toList());
+
+        for (final List<ImmutablePair<E, E>> intersections : tileIntersections) {
+            intersections.forEach(pair -> consumer.accept(pair.left, pair.right));
+        }
+    }
+
+    private static int columnOf(final double x, final @NotNull Envelope bounds, final int tilesPerSide) {
+        return cellOf(x - bounds.getMinX(), bounds.getWidth(), tilesPerSide);
+    }
+
+    private static int rowOf(final double y, final @NotNull Envelope bounds, final int tilesPerSide) {
+        return cellOf(y - bounds.getMinY(), bounds.getHeight(), tilesPerSide);
+    }
+
+    private static int cellOf(final double offset, final double size, final int cellsNumber) {
+        return size > 0 ? Math.min((int) (offset / size * cellsNumber), cellsNumber - 1) : 0;
+    }
+
+    // position of the point along the Hilbert curve through a 2^15 x 2^15 grid over the bounds
+    public static int hilbertIndexOf(final double x, final double y, final @NotNull Envelope bounds) {
+        final int side = 1 << HILBERT_ORDER;
+        int column = cellOf(x - bounds.getMinX(), bounds.getWidth(), side);
+        int row = cellOf(y - bounds.getMinY(), bounds.getHeight(), side);
+        int index = 0;
+
+        for (int half = side / 2; half > 0; half /= 2) {
+            final int right = (column & half) > 0 ? 1 : 0;
+            final int top = (row & half) > 0 ? 1 : 0;
+            index += half * half * ((3 * right) ^ top);
+
+            // the quadrant is rotated, so that the curve inside it starts and ends next to the neighbouring ones
+            if (top == 0) {
+                if (right == 1) {
+                    column = side - 1 - column;
+                    row = side - 1 - row;
+                }
+
+                final int swap = column;
+                column = row;
+                row = swap;
+            }
+        }
+
+        return index;
     }
 
     public static double distance(final @NotNull Vertex<?> v1, final @NotNull Vertex<?> v2) {
@@ -0,0 +1,105 @@
+package by.zsp.ncst.util;
+
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+// open addressing map with primitive long keys, null values aren't supported
+// entries can't be removed, the map is meant for tables that only grow
+public final class LongObjectHashMap<T> {
+
+    private static final int INITIAL_CAPACITY = 16;
+
+    private @NotNull long[] keys;
+    private @NotNull Object[] values;
+    private int size;
+
+    public LongObjectHashMap() {
+        keys = new long[INITIAL_CAPACITY];
+        values = new Object[INITIAL_CAPACITY];
+    }
+
+    private LongObjectHashMap(final @NotNull LongObjectHashMap<T> map) {
+        keys = map.keys.clone();
+        values = map.values.clone();
+        size = map.size;
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public boolean isEmpty() {
+        return size == 0;
+    }
+
+    @SuppressWarnings("unchecked")
+    public @Nullable T get(final long key) {
+        final int mask = keys.length - 1;
+
+        for (int slot = slotOf(key, mask); values[slot] != null; slot = (slot + 1) & mask) {
+            if (keys[slot] == key) {
+                return (T) values[slot];
+            }
+        }
+
+        return null;
+    }
+
+    public boolean containsKey(final long key) {
+        return get(key) != null;
+    }
+
+    // returns the previous value
+    @SuppressWarnings("unchecked")
+    public @Nullable T put(final long key, final @NotNull T value) {
+        final int mask = keys.length - 1;
+        int slot = slotOf(key, mask);
+
+        for (; values[slot] != null; slot = (slot + 1) & mask) {
+            if (keys[slot] == key) {
+                final T previous = (T) values[slot];
+                values[slot] = value;
+                return previous;
+            }
+        }
+
+        keys[slot] = key;
+        values[slot] = value;
+
+        if (++size * 2 > keys.length) {
+            grow();
+        }
+
+        return null;
+    }
+
+    public @NotNull LongObjectHashMap<T> copy() {
+        return new LongObjectHashMap<>(this);
+    }
+
+    private void grow() {
+        final long[] oldKeys = keys;
+        final Object[] oldValues = values;
+        keys = new long[oldKeys.length * 2];
+        values = new Object[oldValues.length * 2];
+        final int mask = keys.length - 1;
+
+        for (int i = 0; i < oldKeys.length; ++i) {
+            if (oldValues[i] != null) {
+                int slot = slotOf(oldKeys[i], mask);
+
+                while (values[slot] != null) {
+                    slot = (slot + 1) & mask;
+                }
+
+                keys[slot] = oldKeys[i];
+                values[slot] = oldValues[i];
+            }
+        }
+    }
+
+    private static int slotOf(final long key, final int mask) {
+        final long hash = key * 0x9E3779B97F4A7C15L;
+        return (int) (hash ^ (hash >>> 32)) & mask;
+    }
+}
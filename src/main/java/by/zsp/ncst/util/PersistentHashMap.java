@@ -0,0 +1,420 @@
+package by.zsp.ncst.util;
+
+import by.zsp.ncst.util.annotation.Immutable;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.util.*;
+
+// hash array mapped trie, put and remove copy only the path to the changed entry
+// null keys and values aren't supported
+@Immutable
+public final class PersistentHashMap<K, V> implements Iterable<Map.Entry<K, V>> {
+
+    private static final int BITS = 5;
+    private static final int MASK = (1 << BITS) - 1;
+    private static final PersistentHashMap<?, ?> EMPTY = new PersistentHashMap<>(BitmapNode.EMPTY, 0);
+
+    private final @NotNull Node root;
+    private final int size;
+
+    @SuppressWarnings("unchecked")
+    public static <K, V> @NotNull PersistentHashMap<K, V> empty() {
+        return (PersistentHashMap<K, V>) EMPTY;
+    }
+
+    private PersistentHashMap(final @NotNull Node root, final int size) {
+        this.root = root;
+        this.size = size;
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public boolean isEmpty() {
+        return size == 0;
+    }
+
+    @SuppressWarnings("unchecked")
+    public @Nullable V get(final @NotNull Object key) {
+        return (V) root.get(key, hashOf(key), 0);
+    }
+
+    public boolean containsKey(final @NotNull Object key) {
+        return get(key) != null;
+    }
+
+    public @NotNull PersistentHashMap<K, V> put(final @NotNull K key, final @NotNull V value) {
+        final boolean[] added = new boolean[1];
+        final Node newRoot = root.put(new Entry(key, value, hashOf(key)), 0, added);
+        return newRoot == root ? this : new PersistentHashMap<>(newRoot, added[0] ? size + 1 : size);
+    }
+
+    public @NotNull PersistentHashMap<K, V> remove(final @NotNull Object key) {
+        final Node newRoot = root.remove(key, hashOf(key), 0);
+
+        if (newRoot == root) {
+            return this;
+        } else {
+            return newRoot == null ? empty() : new PersistentHashMap<>(newRoot, size - 1);
+        }
+    }
+
+    @Override
+    public @NotNull Iterator<Map.Entry<K, V>> iterator() {
+        return new EntryIterator<>(root);
+    }
+
+    public @NotNull @Immutable Set<K> keySet() {
+        return new AbstractSet<K>() {
+
+            @Override
+            public @NotNull Iterator<K> iterator() {
+                final Iterator<Map.Entry<K, V>> entries = PersistentHashMap.this.iterator();
+
+                return new Iterator<K>() {
+
+                    @Override
+                    public boolean hasNext() {
+                        return entries.hasNext();
+                    }
+
+                    @Override
+                    public K next() {
+                        return entries.next().getKey();
+                    }
+                };
+            }
+
+            @Override
+            public boolean contains(final Object o) {
+                return o != null && containsKey(o);
+            }
+
+            @Override
+            public int size() {
+                return size;
+            }
+        };
+    }
+
+    private static int hashOf(final @NotNull Object key) {
+        final int hash = key.hashCode();
+        return hash ^ (hash >>> 16);
+    }
+
+    private static int fragmentOf(final int hash, final int shift) {
+        return 1 << ((hash >>> shift) & MASK);
+    }
+
+    private static abstract class Node {
+
+        abstract @Nullable Object get(@NotNull Object key, int hash, int shift);
+
+        // returns the same node if nothing has changed
+        abstract @NotNull Node put(@NotNull Entry entry, int shift, @NotNull boolean[] added);
+
+        // returns the same node if the key isn't found and null if the node becomes empty
+        abstract @Nullable Node remove(@NotNull Object key, int hash, int shift);
+
+        abstract int slotsNumber();
+
+        // either Entry or Node
+        abstract @NotNull Object slot(int index);
+    }
+
+    private static final class Entry extends AbstractMap.SimpleImmutableEntry<Object, Object> {
+
+        private static final long serialVersionUID = 1L;
+
+        private final int hash;
+
+        private Entry(final @NotNull Object key, final @NotNull Object value, final int hash) {
+            super(key, value);
+            this.hash = hash;
+        }
+    }
+
+    private static final class BitmapNode extends Node {
+
+        private static final BitmapNode EMPTY = new BitmapNode(0, new Object[0]);
+
+        private final int bitmap;
+        private final @NotNull Object[] slots;
+
+        private BitmapNode(final int bitmap, final @NotNull Object[] slots) {
+            this.bitmap = bitmap;
+            this.slots = slots;
+        }
+
+        @Override
+        @Nullable Object get(final @NotNull Object key, final int hash, final int shift) {
+            final int fragment = fragmentOf(hash, shift);
+
+            if ((bitmap & fragment) == 0) {
+                return null;
+            }
+
+            final Object slot = slots[Integer.bitCount(bitmap & (fragment - 1))];
+
+            if (slot instanceof Entry) {
+                final Entry entry = (Entry) slot;
+                return entry.hash == hash && entry.getKey().equals(key) ? entry.getValue() : null;
+            } else {
+                return ((Node) slot).get(key, hash, shift + BITS);
+            }
+        }
+
+        @Override
+        @NotNull Node put(final @NotNull Entry entry, final int shift, final @NotNull boolean[] added) {
+            final int fragment = fragmentOf(entry.hash, shift);
+            final int index = Integer.bitCount(bitmap & (fragment - 1));
+
+            if ((bitmap & fragment) == 0) {
+                final Object[] newSlots = new Object[slots.length + 1];
+                System.arraycopy(slots, 0, newSlots, 0, index);
+                newSlots[index] = entry;
+                System.arraycopy(slots, index, newSlots, index + 1, slots.length - index);
+                added[0] = true;
+                return new BitmapNode(bitmap | fragment, newSlots);
+            }
+
+            final Object slot = slots[index];
+            final Object newSlot;
+
+            if (slot instanceof Entry) {
+                final Entry existing = (Entry) slot;
+
+                if (existing.hash == entry.hash && existing.getKey().equals(entry.getKey())) {
+                    if (existing.getValue() == entry.getValue()) {
+                        return this;
+                    }
+
+                    newSlot = entry;
+                } else {
+                    newSlot = nodeOf(existing, entry, shift + BITS);
+                    added[0] = true;
+                }
+            } else {
+                newSlot = ((Node) slot).put(entry, shift + BITS, added);
+
+                if (newSlot == slot) {
+                    return this;
+                }
+            }
+
+            final Object[] newSlots = slots.clone();
+            newSlots[index] = newSlot;
+            return new BitmapNode(bitmap, newSlots);
+        }
+
+        @Override
+        @Nullable Node remove(final @NotNull Object key, final int hash, final int shift) {
+            final int fragment = fragmentOf(hash, shift);
+
+            if ((bitmap & fragment) == 0) {
+                return this;
+            }
+
+            final int index = Integer.bitCount(bitmap & (fragment - 1));
+            final Object slot = slots[index];
+
+            if (slot instanceof Entry) {
+                final Entry existing = (Entry) slot;
+
+                if (existing.hash != hash || !existing.getKey().equals(key)) {
+                    return this;
+                }
+            } else {
+                final Node newSlot = ((Node) slot).remove(key, hash, shift + BITS);
+
+                if (newSlot == slot) {
+                    return this;
+                } else if (newSlot != null) {
+                    final Object[] newSlots = slots.clone();
+                    newSlots[index] = newSlot;
+                    return new BitmapNode(bitmap, newSlots);
+                }
+            }
+
+            if (slots.length == 1) {
+                return null;
+            }
+
+            final Object[] newSlots = new Object[slots.length - 1];
+            System.arraycopy(slots, 0, newSlots, 0, index);
+            System.arraycopy(slots, index + 1, newSlots, index, slots.length - index - 1);
+            return new BitmapNode(bitmap & ~fragment, newSlots);
+        }
+
+        @Override
+        int slotsNumber() {
+            return slots.length;
+        }
+
+        @Override
+        @NotNull Object slot(final int index) {
+            return slots[index];
+        }
+
+        private static @NotNull Node nodeOf(final @NotNull Entry entry1, final @NotNull Entry entry2, final int shift) {
+            if (entry1.hash == entry2.hash) {
+                return new CollisionNode(new Entry[] { entry1, entry2 });
+            }
+
+            final int fragment1 = fragmentOf(entry1.hash, shift);
+            final int fragment2 = fragmentOf(entry2.hash, shift);
+
+            if (fragment1 == fragment2) {
+                return new BitmapNode(fragment1, new Object[] { nodeOf(entry1, entry2, shift + BITS) });
+            } else if (Integer.compareUnsigned(fragment1, fragment2) < 0) {
+                return new BitmapNode(fragment1 | fragment2, new Object[] { entry1, entry2 });
+            } else {
+                return new BitmapNode(fragment1 | fragment2, new Object[] { entry2, entry1 });
+            }
+        }
+    }
+
+    // entries with equal hashes
+    private static final class CollisionNode extends Node {
+
+        private final @NotNull Entry[] entries;
+
+        private CollisionNode(final @NotNull Entry[] entries) {
+            this.entries = entries;
+        }
+
+        @Override
+        @Nullable Object get(final @NotNull Object key, final int hash, final int shift) {
+            final int index = indexOf(key);
+            return index < 0 ? null : entries[index].getValue();
+        }
+
+        @Override
+        @NotNull Node put(final @NotNull Entry entry, final int shift, final @NotNull boolean[] added) {
+            if (entry.hash != entries[0].hash) {
+                added[0] = true;
+                return splitOf(this, entry, shift);
+            }
+
+            final int index = indexOf(entry.getKey());
+
+            if (index < 0) {
+                final Entry[] newEntries = Arrays.copyOf(entries, entries.length + 1);
+                newEntries[entries.length] = entry;
+                added[0] = true;
+                return new CollisionNode(newEntries);
+            } else if (entries[index].getValue() == entry.getValue()) {
+                return this;
+            } else {
+                final Entry[] newEntries = entries.clone();
+                newEntries[index] = entry;
+                return new CollisionNode(newEntries);
+            }
+        }
+
+        @Override
+        @Nullable Node remove(final @NotNull Object key, final int hash, final int shift) {
+            final int index = indexOf(key);
+
+            if (index < 0) {
+                return this;
+            } else if (entries.length == 1) {
+                return null;
+            } else {
+                final Entry[] newEntries = new Entry[entries.length - 1];
+                System.arraycopy(entries, 0, newEntries, 0, index);
+                System.arraycopy(entries, index + 1, newEntries, index, entries.length - index - 1);
+                return new CollisionNode(newEntries);
+            }
+        }
+
+        @Override
+        int slotsNumber() {
+            return entries.length;
+        }
+
+        @Override
+        @NotNull Object slot(final int index) {
+            return entries[index];
+        }
+
+        private static @NotNull Node splitOf(final @NotNull CollisionNode node, final @NotNull Entry entry,
+                                             final int shift) {
+            final int fragment1 = fragmentOf(node.entries[0].hash, shift);
+            final int fragment2 = fragmentOf(entry.hash, shift);
+
+            if (fragment1 == fragment2) {
+                return new BitmapNode(fragment1, new Object[] { splitOf(node, entry, shift + BITS) });
+            } else if (Integer.compareUnsigned(fragment1, fragment2) < 0) {
+                return new BitmapNode(fragment1 | fragment2, new Object[] { node, entry });
+            } else {
+                return new BitmapNode(fragment1 | fragment2, new Object[] { entry, node });
+            }
+        }
+
+        private int indexOf(final @NotNull Object key) {
+            for (int i = 0; i < entries.length; ++i) {
+                if (entries[i].getKey().equals(key)) {
+                    return i;
+                }
+            }
+
+            return -1;
+        }
+    }
+
+    private static final class EntryIterator<K, V> implements Iterator<Map.Entry<K, V>> {
+
+        private final @NotNull Deque<Node> nodes = new ArrayDeque<>();
+        private final @NotNull Deque<Integer> positions = new ArrayDeque<>();
+        private @Nullable Entry next;
+
+        private EntryIterator(final @NotNull Node root) {
+            nodes.push(root);
+            positions.push(0);
+            advance();
+        }
+
+        private void advance() {
+            next = null;
+
+            while (next == null && !nodes.isEmpty()) {
+                final Node node = nodes.peek();
+                final int position = positions.pop();
+
+                if (position < node.slotsNumber()) {
+                    positions.push(position + 1);
+                    final Object slot = node.slot(position);
+
+                    if (slot instanceof Entry) {
+                        next = (Entry) slot;
+                    } else {
+                        nodes.push((Node) slot);
+                        positions.push(0);
+                    }
+                } else {
+                    nodes.pop();
+                }
+            }
+        }
+
+        @Override
+        public boolean hasNext() {
+            return next != null;
+        }
+
+        @Override
+        @SuppressWarnings("unchecked")
+        public Map.Entry<K, V> next() {
+            if (next == null) {
+                throw new NoSuchElementException();
+            }
+
+            final Map.Entry<K, V> current = (Map.Entry<K, V>) (Map.Entry<?, ?>) next;
+            advance();
+            return current;
+        }
+    }
+}
@@ -0,0 +1,50 @@
+package by.zsp.ncst.util;
+
+import by.zsp.ncst.util.annotation.Immutable;
+import org.jetbrains.annotations.NotNull;
+
+import java.util.AbstractSet;
+import java.util.Iterator;
+
+// set over PersistentHashMap
+@Immutable
+public final class PersistentHashSet<E> extends AbstractSet<E> {
+
+    private static final PersistentHashSet<?> EMPTY = new PersistentHashSet<>(PersistentHashMap.empty());
+
+    private final @NotNull PersistentHashMap<E, Boolean> map;
+
+    @SuppressWarnings("unchecked")
+    public static <E> @NotNull PersistentHashSet<E> empty() {
+        return (PersistentHashSet<E>) EMPTY;
+    }
+
+    private PersistentHashSet(final @NotNull PersistentHashMap<E, Boolean> map) {
+        this.map = map;
+    }
+
+    public @NotNull PersistentHashSet<E> plus(final @NotNull E element) {
+        final PersistentHashMap<E, Boolean> newMap = map.put(element, Boolean.TRUE);
+        return newMap == map ? this : new PersistentHashSet<>(newMap);
+    }
+
+    public @NotNull PersistentHashSet<E> minus(final @NotNull Object element) {
+        final PersistentHashMap<E, Boolean> newMap = map.remove(element);
+        return newMap == map ? this : new PersistentHashSet<>(newMap);
+    }
+
+    @Override
+    public boolean contains(final Object o) {
+        return o != null && map.containsKey(o);
+    }
+
+    @Override
+    public @NotNull Iterator<E> iterator() {
+        return map.keySet().iterator();
+    }
+
+    @Override
+    public int size() {
+        return map.size();
+    }
+}
@@ -0,0 +1,109 @@
+package by.zsp.ncst.test;
+
+import by.zsp.ncst.exception.GraphException;
+import by.zsp.ncst.graph.Edge;
+import by.zsp.ncst.graph.Graph;
+import by.zsp.ncst.graph.io.BinaryGraphFormat;
+import by.zsp.ncst.graph.impl.CompactUndirectedGraph;
+import by.zsp.ncst.graph.impl.UndirectedGraphWithIntersections;
+import org.junit.Assert;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.HashSet;
+
+public class BinaryGraphFormatTest {
+
+    @Rule
+    public final TemporaryFolder folder = new TemporaryFolder();
+
+    @Test
+    public void testRoundTrip() throws IOException {
+        final Graph<Integer> graph = new UndirectedGraphWithIntersections<>();
+        TestUtils.generateRandomGraph(graph, 50, 300);
+        final Path path = folder.newFile().toPath();
+        BinaryGraphFormat.write(graph, path);
+        final CompactUndirectedGraph<Integer> loaded = BinaryGraphFormat.read(path, Integer.class);
+
+        Assert.assertEquals(graph.getVertices(), loaded.getVertices());
+        Assert.assertEquals(graph.getEdges(), loaded.getEdges());
+        Assert.assertEquals(graph.getIntersectionIndex(), loaded.getIntersectionIndex());
+
+        for (final Edge<Integer> edge : graph.getEdges()) {
+            Assert.assertEquals(
+                    new HashSet<>(graph.getIntersecting(edge)), new HashSet<>(loaded.getIntersecting(edge)));
+        }
+    }
+
+    @Test
+    public void testMapped() throws IOException {
+        final Graph<Integer> graph = new UndirectedGraphWithIntersections<>();
+        TestUtils.generateRandomGraph(graph, 50, 300);
+        final Path path = folder.newFile().toPath();
+        BinaryGraphFormat.write(graph, path);
+        final CompactUndirectedGraph<Integer> mapped = BinaryGraphFormat.map(path, Integer.class);
+
+        Assert.assertTrue(mapped.isOffHeap());
+        Assert.assertEquals(graph.getVertices(), mapped.getVertices());
+        Assert.assertEquals(graph.getEdges(), mapped.getEdges());
+        Assert.assertEquals(graph.getIntersectionIndex(), mapped.getIntersectionIndex());
+
+        for (final Edge<Integer> edge : graph.getEdges()) {
+            Assert.assertEquals(
+                    new HashSet<>(graph.getIntersecting(edge)), new HashSet<>(mapped.getIntersecting(edge)));
+        }
+    }
+
+    @Test
+    public void testStringIds() throws IOException {
+        final Graph<String> graph = new UndirectedGraphWithIntersections<>();
+        graph.addEdges(Arrays.asList(
+                graph.edgeOf("a", 0, 0, "\u0432\u044f\u0440\u0448\u044b\u043d\u044f", 1, 1),
+                graph.edgeOf("c", 0, 1, "", 1, 0)));
+
+        final Path path = folder.newFile().toPath();
+        BinaryGraphFormat.write(graph, path);
+        final CompactUndirectedGraph<String> loaded = BinaryGraphFormat.read(path, String.class);
+
+        Assert.assertEquals(graph.getVertices(), loaded.getVertices());
+        Assert.assertEquals(graph.getEdges(), loaded.getEdges());
+        Assert.assertTrue(loaded.isIntersecting());
+    }
+
+    @Test(expected = GraphException.class)
+    public void testCorruptedStringIds() throws IOException {
+        final Graph<String> graph = new UndirectedGraphWithIntersections<>();
+        graph.addEdges(Arrays.asList(graph.edgeOf("a", 0, 0, "b", 1, 1), graph.edgeOf("c", 0, 1, "d", 1, 0)));
+        final Path path = folder.newFile().toPath();
+        BinaryGraphFormat.write(graph, path);
+
+        // the offset of the second ID is past the end of the last one
+        final byte[] bytes = Files.readAllBytes(path);
+        ByteBuffer.wrap(bytes).order(ByteOrder.LITTLE_ENDIAN).putInt(32 + 2 * Double.BYTES * 4 + Integer.BYTES, 100);
+        Files.write(path, bytes);
+        BinaryGraphFormat.read(path, String.class);
+    }
+
+    @Test(expected = GraphException.class)
+    public void testWrongIdType() throws IOException {
+        final Graph<Integer> graph = new UndirectedGraphWithIntersections<>();
+        TestUtils.generateRandomGraph(graph, 10, 20);
+        final Path path = folder.newFile().toPath();
+        BinaryGraphFormat.write(graph, path);
+        BinaryGraphFormat.read(path, Long.class);
+    }
+
+    @Test(expected = GraphException.class)
+    public void testNotGraph() throws IOException {
+        final Path path = folder.newFile().toPath();
+        Files.write(path, new byte[64]);
+        BinaryGraphFormat.read(path, Integer.class);
+    }
+}
@@ -4,6 +4,8 @@ import by.zsp.ncst.BncfAlgorithm;
 import by.zsp.ncst.graph.Graph;
 import by.zsp.ncst.graph.impl.UndirectedGraphWithIntersections;
 import by.zsp.ncst.impl.BncfAlgorithmImpl;
+import by.zsp.ncst.impl.BranchingStrategies;
+import by.zsp.ncst.impl.TranspositionTable;
 import by.zsp.ncst.util.Visualizer;
 import org.jetbrains.annotations.NotNull;
 import org.junit.Assert;
@@ -12,6 +14,8 @@ import org.junit.Rule;
 import org.junit.Test;
 import org.junit.rules.TestName;
 
+import java.util.concurrent.ForkJoinPool;
+
 public class BncfAlgorithmTest {
 
     @Rule
@@ -139,6 +143,65 @@ public class BncfAlgorithmTest {
         test(11);
     }
 
+    @Test
+    public void testIntersectionIndex1WithFixedEdges() {
+        graph.addEdge(0, 2, 1, 1, 4, 3);
+        graph.addEdge(0, 2, 1, 3, 2, 2);
+        graph.addEdge(0, 2, 1, 4, 1, 1);
+        graph.addEdge(1, 4, 3, 3, 2, 2);
+        graph.addEdge(2, 4, 2, 4, 1, 1);
+        graph.addEdge(3, 2, 2, 4, 1, 1);
+        graph.addEdge(5, 3, 4, 2, 4, 2);
+        test(4);
+    }
+
+    @Test
+    public void testSequentialThreshold() {
+        final BncfAlgorithm<Integer> forkingAlgorithm = new BncfAlgorithmImpl<>(ForkJoinPool.commonPool(), 0);
+
+        final BncfAlgorithm<Integer> sequentialAlgorithm =
+                new BncfAlgorithmImpl<>(ForkJoinPool.commonPool(), Integer.MAX_VALUE);
+
+        for (int i = 0; i < 10; ++i) {
+            graph = new UndirectedGraphWithIntersections<>();
+            TestUtils.generateRandomGraph(graph, 15, 40);
+            final int edgesNumber = graph.getEdgesNumber();
+            final Graph<Integer> bncf = forkingAlgorithm.findBncf(graph);
+            final Graph<Integer> sequentialBncf = sequentialAlgorithm.findBncf(graph);
+
+            Assert.assertEquals(bncf.getEdgesNumber(), sequentialBncf.getEdgesNumber());
+            Assert.assertEquals(edgesNumber, graph.getEdgesNumber());
+            Assert.assertFalse(sequentialBncf.isIntersecting());
+        }
+    }
+
+    @Test
+    public void testTranspositionTable() {
+        TestUtils.generateRandomGraph(graph, 15, 40);
+        final int size = bncfAlgorithm.findBncf(graph).getEdgesNumber();
+        final BncfAlgorithmImpl<Integer> memoizedAlgorithm =
+                new BncfAlgorithmImpl<>(ForkJoinPool.commonPool(), 0, 1000);
+
+        final TranspositionTable<Integer> table = memoizedAlgorithm.getTranspositionTable();
+        bncfAlgorithm = memoizedAlgorithm;
+
+        test(size);
+        Assert.assertEquals(0, table.getHits());
+        test(size);
+        Assert.assertEquals(1, table.getHits());
+    }
+
+    @Test
+    public void testBranchingStrategies() {
+        TestUtils.generateRandomGraph(graph, 15, 40);
+        final BncfAlgorithmImpl<Integer> algorithm = new BncfAlgorithmImpl<>();
+        final int size = algorithm.findBncf(graph).getEdgesNumber();
+
+        Assert.assertEquals(size, algorithm.findBncf(graph, BranchingStrategies.deterministic()).getEdgesNumber());
+        Assert.assertEquals(size, algorithm.findBncf(graph, BranchingStrategies.weightedByDegree()).getEdgesNumber());
+        Assert.assertEquals(size, algorithm.findBncf(graph, BranchingStrategies.failFirst()).getEdgesNumber());
+    }
+
     @Test
     public void testRandomGraph() {
         TestUtils.generateRandomGraph(graph, 40, 150);
@@ -0,0 +1,138 @@
+package by.zsp.ncst.test;
+
+import by.zsp.ncst.graph.Edge;
+import by.zsp.ncst.graph.Graph;
+import by.zsp.ncst.graph.impl.CompactUndirectedGraph;
+import by.zsp.ncst.graph.impl.GraphBuilder;
+import by.zsp.ncst.graph.impl.UndirectedGraphWithIntersections;
+import by.zsp.ncst.impl.BncfAlgorithmImpl;
+import by.zsp.ncst.impl.NcstAlgorithmImpl;
+import org.jetbrains.annotations.NotNull;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Optional;
+
+public class CompactUndirectedGraphTest {
+
+    private @NotNull Graph<Integer> graph;
+
+    @Before
+    public void init() {
+        graph = new UndirectedGraphWithIntersections<>();
+    }
+
+    @Test
+    public void testRandomGraph() {
+        TestUtils.generateRandomGraph(graph, 50, 300);
+        assertSameGraph(graph, CompactUndirectedGraph.of(graph));
+        assertSameGraph(graph, CompactUndirectedGraph.of(graph.getEdges()));
+    }
+
+    @Test
+    public void testEditing() {
+        TestUtils.generateRandomGraph(graph, 50, 300);
+        final Graph<Integer> compact = CompactUndirectedGraph.of(graph);
+        final List<Edge<Integer>> edges = new ArrayList<>(graph.getEdges());
+
+        for (final Edge<Integer> edge : edges.subList(0, edges.size() / 2)) {
+            graph.removeEdge(edge);
+            compact.removeEdge(edge);
+        }
+
+        assertSameGraph(graph, compact);
+
+        graph.addEdges(edges.subList(0, edges.size() / 4));
+        compact.addEdges(edges.subList(0, edges.size() / 4));
+        graph.addEdge(1000, -1, -1, 1001, 2, 2);
+        compact.addEdge(1000, -1, -1, 1001, 2, 2);
+        assertSameGraph(graph, compact);
+    }
+
+    @Test
+    public void testOffHeap() {
+        TestUtils.generateRandomGraph(graph, 50, 300);
+        final CompactUndirectedGraph<Integer> compact =
+                new GraphBuilder<Integer>().offHeap(true).addEdges(graph.getEdges()).buildCompact();
+
+        Assert.assertTrue(compact.isOffHeap());
+        assertSameGraph(graph, compact);
+
+        graph.addEdge(1000, -1, -1, 1001, 2, 2);
+        compact.addEdge(1000, -1, -1, 1001, 2, 2);
+        Assert.assertTrue(compact.isOffHeap());
+        assertSameGraph(graph, compact);
+    }
+
+    @Test
+    public void testReordered() {
+        TestUtils.generateRandomGraph(graph, 50, 300);
+        final CompactUndirectedGraph<Integer> compact = CompactUndirectedGraph.of(graph);
+        final List<Edge<Integer>> edges = new ArrayList<>(graph.getEdges());
+
+        for (final Edge<Integer> edge : edges.subList(0, edges.size() / 3)) {
+            graph.removeEdge(edge);
+            compact.removeEdge(edge);
+        }
+
+        assertSameGraph(graph, compact.reordered());
+    }
+
+    @Test
+    public void testNcst() {
+        TestUtils.generateRandomGraph(graph, 15, 60);
+        final Optional<Graph<Integer>> ncst = new NcstAlgorithmImpl<Integer>().findNcst(graph);
+
+        final Optional<Graph<Integer>> compactNcst =
+                new NcstAlgorithmImpl<Integer>().findNcst(CompactUndirectedGraph.of(graph));
+
+        Assert.assertEquals(ncst.isPresent(), compactNcst.isPresent());
+
+        compactNcst.ifPresent(tree -> {
+            Assert.assertEquals(graph.getVerticesNumber() - 1, tree.getEdgesNumber());
+            Assert.assertTrue(tree.isConnected());
+            Assert.assertFalse(tree.isIntersecting());
+        });
+    }
+
+    @Test
+    public void testBncf() {
+        TestUtils.generateRandomGraph(graph, 15, 60);
+        final Graph<Integer> bncf = new BncfAlgorithmImpl<Integer>().findBncf(graph);
+        final Graph<Integer> compactBncf = new BncfAlgorithmImpl<Integer>().findBncf(CompactUndirectedGraph.of(graph));
+        Assert.assertEquals(bncf.getEdgesNumber(), compactBncf.getEdgesNumber());
+        Assert.assertFalse(compactBncf.isIntersecting());
+    }
+
+    private static void assertSameGraph(final @NotNull Graph<Integer> expected, final @NotNull Graph<Integer> actual) {
+        Assert.assertEquals(expected.getVertices(), actual.getVertices());
+        Assert.assertEquals(expected.getEdges(), actual.getEdges());
+        Assert.assertEquals(expected.getIntersectionIndex(), actual.getIntersectionIndex());
+        Assert.assertEquals(expected.isIntersecting(), actual.isIntersecting());
+        Assert.assertEquals(expected.isConnected(), actual.isConnected());
+        Assert.assertEquals(expected.getConnectedComponents().size(), actual.getConnectedComponents().size());
+
+        if (expected.isConnected()) {
+            Assert.assertEquals(new HashSet<>(expected.findBridges()), new HashSet<>(actual.findBridges()));
+        }
+
+        for (final Edge<Integer> edge : expected.getEdges()) {
+            Assert.assertEquals(
+                    new HashSet<>(expected.getIntersecting(edge)), new HashSet<>(actual.getIntersecting(edge)));
+        }
+
+        for (final Graph<Integer> component : actual.getConnectedComponents()) {
+            for (final Edge<Integer> edge : component.getEdges()) {
+                Assert.assertEquals(
+                        expected.getIntersecting(edge).stream()
+                                .filter(component.getEdges()::contains)
+                                .count(),
+                        component.getIntersecting(edge).size());
+            }
+        }
+    }
+}
@@ -0,0 +1,138 @@
+package by.zsp.ncst.test;
+
+import by.zsp.ncst.graph.ComponentLabels;
+import by.zsp.ncst.graph.Edge;
+import by.zsp.ncst.graph.Graph;
+import by.zsp.ncst.graph.Vertex;
+import by.zsp.ncst.graph.impl.CompactUndirectedGraph;
+import by.zsp.ncst.graph.impl.ConcurrentUndirectedGraph;
+import by.zsp.ncst.graph.impl.PersistentUndirectedGraph;
+import by.zsp.ncst.graph.impl.UndirectedGraphWithIntersections;
+import org.jetbrains.annotations.NotNull;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+
+public class ComponentLabelsTest {
+
+    @Test
+    public void testLabels() {
+        final Graph<Integer> graph = new UndirectedGraphWithIntersections<>();
+        TestUtils.generateRandomGraph(graph, 50, 60);
+        final ComponentLabels<Integer> labels = graph.labelComponents();
+
+        Assert.assertEquals(graph.getConnectedComponents().size(), labels.getComponentsNumber());
+        Assert.assertEquals(graph.analyze().isConnected(), labels.isConnected());
+        assertValidLabels(graph, labels);
+        assertValidComponents(graph, labels);
+    }
+
+    @Test
+    public void testParallelLabels() {
+        final Graph<Integer> graph = new UndirectedGraphWithIntersections<>();
+        TestUtils.generateLargeRandomGraph(graph, 40000, 30000);
+        final ComponentLabels<Integer> labels = graph.labelComponents();
+        final ComponentLabels<Integer> parallelLabels = ComponentLabels.ofInParallel(graph);
+
+        Assert.assertEquals(labels.getComponentsNumber(), parallelLabels.getComponentsNumber());
+        Assert.assertEquals(labels.getVertices(), parallelLabels.getVertices());
+        Assert.assertArrayEquals(labels.getLabels(), parallelLabels.getLabels());
+        assertValidLabels(graph, parallelLabels);
+    }
+
+    // compact and frozen graphs number vertices by their own indices, removed vertices and edges are skipped
+    @Test
+    public void testNumberedGraphs() {
+        final Graph<Integer> graph = new UndirectedGraphWithIntersections<>();
+        TestUtils.generateRandomGraph(graph, 50, 60);
+        final Graph<Integer> compact = CompactUndirectedGraph.of(graph);
+        final Edge<Integer> removed = graph.getEdges().iterator().next();
+        graph.removeEdge(removed);
+        compact.removeEdge(removed);
+        compact.removeVertex(removed.getVertex1());
+        graph.removeVertex(removed.getVertex1());
+
+        for (final Graph<Integer> numbered : Arrays.asList(graph, compact, graph.freeze())) {
+            final ComponentLabels<Integer> labels = numbered.labelComponents();
+            Assert.assertEquals(graph.getConnectedComponents().size(), labels.getComponentsNumber());
+            Assert.assertEquals(graph.getVerticesNumber(), labels.getVertices().size());
+            assertValidLabels(numbered, labels);
+            assertValidComponents(numbered, labels);
+        }
+    }
+
+    @Test
+    public void testComponentsOfOtherGraphs() {
+        final Graph<Integer> graph = new UndirectedGraphWithIntersections<>();
+        TestUtils.generateRandomGraph(graph, 50, 60);
+        final Graph<Integer> persistent = new PersistentUndirectedGraph<>();
+        final Graph<Integer> concurrent = new ConcurrentUndirectedGraph<>(0.1);
+
+        for (final Graph<Integer> other : Arrays.asList(persistent, concurrent)) {
+            graph.getVertices().forEach(other::addVertex);
+            other.addEdges(graph.getEdges());
+            assertValidComponents(other, other.labelComponents());
+        }
+    }
+
+    @Test
+    public void testEmptyGraph() {
+        final ComponentLabels<Integer> labels = new UndirectedGraphWithIntersections<Integer>().labelComponents();
+        Assert.assertTrue(labels.isConnected());
+        Assert.assertEquals(0, labels.getComponentsNumber());
+    }
+
+    // components hold the vertices and edges with their label and the crossings between their edges
+    private static void assertValidComponents(
+            final @NotNull Graph<Integer> graph, final @NotNull ComponentLabels<Integer> labels) {
+
+        int verticesNumber = 0;
+        int edgesNumber = 0;
+
+        for (int label = 0; label < labels.getComponentsNumber(); ++label) {
+            final Graph<Integer> component = labels.getComponent(label);
+            Assert.assertTrue(component.isConnected());
+            verticesNumber += component.getVerticesNumber();
+            edgesNumber += component.getEdgesNumber();
+
+            for (final Vertex<Integer> vertex : component.getVertices()) {
+                Assert.assertEquals(label, labels.getLabel(vertex));
+            }
+
+            for (final Edge<Integer> edge : component.getEdges()) {
+                Assert.assertEquals(label, labels.getLabel(edge.getVertex1()));
+                Assert.assertEquals(
+                        new HashSet<>(component.getIntersecting(edge)),
+                        graph.getIntersecting(edge).stream()
+                                .filter(component.getEdges()::contains)
+                                .collect(HashSet::new, HashSet::add, HashSet::addAll));
+            }
+        }
+
+        Assert.assertEquals(graph.getVerticesNumber(), verticesNumber);
+        Assert.assertEquals(graph.getEdgesNumber(), edgesNumber);
+    }
+
+    // neighbours share labels and labels are numbered in order of first vertices
+    private static void assertValidLabels(
+            final @NotNull Graph<Integer> graph, final @NotNull ComponentLabels<Integer> labels) {
+
+        final List<Vertex<Integer>> vertices = labels.getVertices();
+        int nextLabel = 0;
+
+        for (int vertex = 0; vertex < vertices.size(); ++vertex) {
+            final int label = labels.getLabels()[vertex];
+            Assert.assertTrue(label <= nextLabel);
+            nextLabel = Math.max(nextLabel, label + 1);
+
+            for (final Vertex<Integer> neighbour : graph.getNeighbours(vertices.get(vertex))) {
+                Assert.assertEquals(label, labels.getLabel(neighbour));
+            }
+        }
+
+        Assert.assertEquals(labels.getComponentsNumber(), nextLabel);
+    }
+}
@@ -0,0 +1,101 @@
+package by.zsp.ncst.test;
+
+import by.zsp.ncst.graph.Edge;
+import by.zsp.ncst.graph.Graph;
+import by.zsp.ncst.graph.Vertex;
+import by.zsp.ncst.graph.impl.ConcurrentUndirectedGraph;
+import by.zsp.ncst.graph.impl.UndirectedGraphWithIntersections;
+import org.jetbrains.annotations.NotNull;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+public class ConcurrentUndirectedGraphTest {
+
+    private static final int THREADS = 4;
+
+    @Test
+    public void testConcurrentAddition() throws Exception {
+        for (int attempt = 0; attempt < 10; ++attempt) {
+            final Graph<Integer> expected = new UndirectedGraphWithIntersections<>();
+            TestUtils.generateRandomGraph(expected, 200, 600);
+            final List<Edge<Integer>> edges = new ArrayList<>(expected.getEdges());
+            final Graph<Integer> graph = new ConcurrentUndirectedGraph<>(0.05);
+            expected.getVertices().forEach(graph::addVertex);
+            final ExecutorService executor = Executors.newFixedThreadPool(THREADS);
+            final List<Future<?>> futures = new ArrayList<>();
+
+            for (int thread = 0; thread < THREADS; ++thread) {
+                final int first = thread;
+
+                futures.add(executor.submit(() -> {
+                    for (int i = first; i < edges.size(); i += THREADS) {
+                        graph.addEdge(edges.get(i));
+                    }
+                }));
+            }
+
+            for (final Future<?> future : futures) {
+                future.get();
+            }
+
+            executor.shutdown();
+            Assert.assertTrue(executor.awaitTermination(1, TimeUnit.MINUTES));
+            assertSameGraph(expected, graph);
+        }
+    }
+
+    @Test
+    public void testLongEdges() {
+        final Graph<Integer> expected = new UndirectedGraphWithIntersections<>();
+        TestUtils.generateRandomGraph(expected, 50, 200);
+        final Graph<Integer> graph = new ConcurrentUndirectedGraph<>(0.001);
+        expected.getVertices().forEach(graph::addVertex);
+        graph.addEdges(expected.getEdges());
+        assertSameGraph(expected, graph);
+    }
+
+    @Test
+    public void testRemoval() {
+        final Graph<Integer> expected = new UndirectedGraphWithIntersections<>();
+        TestUtils.generateRandomGraph(expected, 50, 200);
+        final Graph<Integer> graph = new ConcurrentUndirectedGraph<>(0.05);
+        expected.getVertices().forEach(graph::addVertex);
+        graph.addEdges(expected.getEdges());
+
+        final Edge<Integer> mostIntersecting = expected.getMostIntersectingEdge().get();
+        expected.removeIntersecting(mostIntersecting);
+        Assert.assertTrue(graph.removeIntersecting(mostIntersecting));
+        final Vertex<Integer> vertex = expected.getVertices().iterator().next();
+        new ArrayList<>(expected.getNeighbours(vertex)).forEach(neighbour -> expected.removeEdge(vertex, neighbour));
+        expected.removeVertex(vertex);
+        Assert.assertTrue(graph.removeVertex(vertex));
+        assertSameGraph(expected, graph);
+
+        final Graph<Integer> copy = graph.copy();
+        Assert.assertTrue(copy.removeEdge(copy.getEdges().iterator().next()));
+        assertSameGraph(expected, graph);
+        Assert.assertEquals(expected.getConnectedComponents().size(), graph.getConnectedComponents().size());
+    }
+
+    private static void assertSameGraph(final @NotNull Graph<Integer> expected, final @NotNull Graph<Integer> graph) {
+        Assert.assertEquals(expected.getVertices(), graph.getVertices());
+        Assert.assertEquals(expected.getEdges(), graph.getEdges());
+        Assert.assertEquals(expected.getIntersectionIndex(), graph.getIntersectionIndex());
+
+        for (final Edge<Integer> edge : expected.getEdges()) {
+            Assert.assertEquals(new HashSet<>(expected.getIntersecting(edge)), graph.getIntersecting(edge));
+        }
+
+        for (final Vertex<Integer> vertex : expected.getVertices()) {
+            Assert.assertEquals(new HashSet<>(expected.getNeighbours(vertex)), graph.getNeighbours(vertex));
+        }
+    }
+}
@@ -0,0 +1,89 @@
+package by.zsp.ncst.test;
+
+import by.zsp.ncst.exception.GraphException;
+import by.zsp.ncst.graph.Graph;
+import by.zsp.ncst.graph.impl.GraphBuilder;
+import by.zsp.ncst.graph.io.EdgeListReaders;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.io.StringReader;
+
+public class EdgeListReadersTest {
+
+    @Test
+    public void testCsv() throws IOException {
+        final GraphBuilder<Integer> builder = new GraphBuilder<>();
+        EdgeListReaders.readCsv(new StringReader("x1,y1,x2,y2\n0,0,1,1\n0,1,1,0\n\n1,1,2,1\n2,1,2,1\n"), builder);
+        final Graph<Integer> graph = builder.build();
+
+        Assert.assertEquals(5, graph.getVerticesNumber());
+        Assert.assertEquals(3, graph.getEdgesNumber());
+        Assert.assertEquals(1, graph.getIntersectionIndex());
+    }
+
+    @Test
+    public void testCsvSignedZeros() throws IOException {
+        final GraphBuilder<Integer> builder = new GraphBuilder<>();
+        final StringBuilder csv = new StringBuilder("0,0,-1,1\n");
+
+        // enough coordinates for hash codes of -0.0 and 0.0 to fall into different buckets
+        for (int i = 1; i <= 20000; ++i) {
+            csv.append(i).append(",1,").append(i).append(",2\n");
+        }
+
+        csv.append("-0.0,0,1,-1\n");
+
+        EdgeListReaders.readCsv(new StringReader(csv.toString()), builder);
+        final Graph<Integer> graph = builder.build();
+
+        Assert.assertEquals(40003, graph.getVerticesNumber());
+        Assert.assertEquals(2, graph.getNeighbours(0).size());
+    }
+
+    @Test
+    public void testCsvWithIds() throws IOException {
+        final GraphBuilder<String> builder = new GraphBuilder<>();
+        EdgeListReaders.readCsvWithIds(new StringReader("a,0,0,b,1,1\nb,1,1,c,2,0\nc,2,0,a,0,0\n"), builder);
+        final Graph<String> graph = builder.build();
+
+        Assert.assertEquals(3, graph.getVerticesNumber());
+        Assert.assertEquals(3, graph.getEdgesNumber());
+        Assert.assertEquals(2, graph.getNeighbours("a").size());
+    }
+
+    @Test
+    public void testWkt() throws IOException {
+        final GraphBuilder<Integer> builder = new GraphBuilder<>();
+        EdgeListReaders.readWkt(new StringReader(
+                "LINESTRING (0 0, 1 1, 2 0)\nMULTILINESTRING ((0 1, 1 0), (2 0, 2 0, 3 1))\n"), builder);
+
+        final Graph<Integer> graph = builder.build();
+        Assert.assertEquals(6, graph.getVerticesNumber());
+        Assert.assertEquals(4, graph.getEdgesNumber());
+        Assert.assertEquals(1, graph.getIntersectionIndex());
+    }
+
+    @Test
+    public void testGeoJson() throws IOException {
+        final GraphBuilder<Integer> builder = new GraphBuilder<>();
+        EdgeListReaders.readGeoJson(new StringReader("{\"type\": \"FeatureCollection\", \"features\": [" +
+                "{\"type\": \"Feature\", \"properties\": {\"name\": \"a \\\"b\\\" \\u0063\", \"n\": [1, true, null]}," +
+                " \"geometry\": {\"coordinates\": [[0, 0], [1.0, 1e0]], \"type\": \"LineString\"}}," +
+                "{\"type\": \"Feature\", \"properties\": {}, \"geometry\": {\"type\": \"MultiLineString\"," +
+                " \"coordinates\": [[[0, 1], [1, 0]], [[1, 1], [2, -0.5]]]}}," +
+                "{\"type\": \"Feature\", \"geometry\": {\"type\": \"Point\", \"coordinates\": [5, 5]}}]}"), builder);
+
+        final Graph<Integer> graph = builder.build();
+        Assert.assertEquals(5, graph.getVerticesNumber());
+        Assert.assertEquals(3, graph.getEdgesNumber());
+        Assert.assertEquals(1, graph.getIntersectionIndex());
+    }
+
+    @Test(expected = GraphException.class)
+    public void testMalformedGeoJson() throws IOException {
+        EdgeListReaders.readGeoJson(new StringReader("{\"type\": \"LineString\", \"coordinates\": [[0, 0]"),
+                new GraphBuilder<>());
+    }
+}
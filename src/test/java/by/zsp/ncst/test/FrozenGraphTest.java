@@ -0,0 +1,86 @@
+package by.zsp.ncst.test;
+
+import by.zsp.ncst.exception.GraphException;
+import by.zsp.ncst.graph.Edge;
+import by.zsp.ncst.graph.Graph;
+import by.zsp.ncst.graph.Vertex;
+import by.zsp.ncst.graph.impl.FrozenGraph;
+import by.zsp.ncst.graph.impl.UndirectedGraphWithIntersections;
+import org.jetbrains.annotations.NotNull;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.HashSet;
+
+public class FrozenGraphTest {
+
+    private @NotNull Graph<Integer> graph;
+    private @NotNull Graph<Integer> frozen;
+
+    @Before
+    public void init() {
+        graph = new UndirectedGraphWithIntersections<>();
+        TestUtils.generateRandomGraph(graph, 50, 100);
+        frozen = graph.freeze();
+    }
+
+    @Test
+    public void testSameGraph() {
+        Assert.assertEquals(graph.getVertices(), frozen.getVertices());
+        Assert.assertEquals(graph.getEdges(), frozen.getEdges());
+        Assert.assertEquals(graph.getIntersectionIndex(), frozen.getIntersectionIndex());
+        Assert.assertEquals(graph.isIntersecting(), frozen.isIntersecting());
+        Assert.assertEquals(graph.isConnected(), frozen.isConnected());
+        Assert.assertEquals(new HashSet<>(graph.findBridges()), new HashSet<>(frozen.findBridges()));
+        Assert.assertEquals(graph.getConnectedComponents().size(), frozen.getConnectedComponents().size());
+
+        for (final Vertex<Integer> vertex : graph.getVertices()) {
+            Assert.assertEquals(
+                    new HashSet<>(graph.getNeighbours(vertex)), new HashSet<>(frozen.getNeighbours(vertex)));
+        }
+
+        int edgesNumber = 0;
+
+        for (final Edge<Integer> edge : graph.getEdges()) {
+            Assert.assertEquals(
+                    new HashSet<>(graph.getIntersecting(edge)), new HashSet<>(frozen.getIntersecting(edge)));
+
+            edgesNumber += ((FrozenGraph<Integer>) frozen).getIntersectionDegreeCount(
+                    graph.getIntersecting(edge).size()) > 0 ? 1 : 0;
+        }
+
+        Assert.assertEquals(graph.getEdgesNumber(), edgesNumber);
+        Assert.assertSame(frozen, frozen.freeze());
+    }
+
+    @Test
+    public void testComponents() {
+        for (final Graph<Integer> component : frozen.getConnectedComponents()) {
+            for (final Edge<Integer> edge : component.getEdges()) {
+                final HashSet<Edge<Integer>> intersecting = new HashSet<>(graph.getIntersecting(edge));
+                intersecting.retainAll(component.getEdges());
+                Assert.assertEquals(intersecting, new HashSet<>(component.getIntersecting(edge)));
+            }
+        }
+    }
+
+    @Test
+    public void testMutableCopy() {
+        final Graph<Integer> copy = frozen.copy();
+        final Edge<Integer> edge = frozen.getEdges().iterator().next();
+        Assert.assertTrue(copy.removeEdge(edge));
+        Assert.assertTrue(frozen.getEdges().contains(edge));
+        Assert.assertEquals(graph.getEdgesNumber() - 1, copy.getEdgesNumber());
+    }
+
+    @Test(expected = GraphException.class)
+    public void testRemoveEdge() {
+        frozen.removeEdge(frozen.getEdges().iterator().next());
+    }
+
+    @Test(expected = GraphException.class)
+    public void testAddVertex() {
+        frozen.addVertex(-1, 0, 0);
+    }
+}
@@ -0,0 +1,94 @@
+package by.zsp.ncst.test;
+
+import by.zsp.ncst.graph.Edge;
+import by.zsp.ncst.graph.Graph;
+import by.zsp.ncst.graph.impl.UndirectedGraphWithIntersections;
+import by.zsp.ncst.util.Geometry;
+import com.vividsolutions.jts.geom.Coordinate;
+import com.vividsolutions.jts.geom.LineSegment;
+import org.jetbrains.annotations.NotNull;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Random;
+import java.util.Set;
+
+public class GeometryTest {
+
+    @Test
+    public void testDegenerateCases() {
+        // proper crossing
+        Assert.assertTrue(Geometry.isIntersecting(0, 0, 2, 2, 0, 2, 2, 0));
+        // common endpoint
+        Assert.assertFalse(Geometry.isIntersecting(0, 0, 2, 2, 2, 2, 4, 0));
+        // T-junction
+        Assert.assertFalse(Geometry.isIntersecting(0, 0, 2, 0, 1, 0, 1, 1));
+        // collinear overlap
+        Assert.assertFalse(Geometry.isIntersecting(0, 0, 2, 0, 1, 0, 3, 0));
+        // disjoint
+        Assert.assertFalse(Geometry.isIntersecting(0, 0, 1, 1, 2, 0, 3, 1));
+    }
+
+    @Test
+    public void testNearlyCollinearPoints() {
+        // the floating-point determinant of these points is unreliable, the exact one is positive
+        Assert.assertEquals(1, Geometry.orientation(0.5, 0.5, 12, 12, 24, 24.000000000000004));
+        Assert.assertEquals(0, Geometry.orientation(0.1, 0.1, 0.3, 0.3, 0.7, 0.7));
+        Assert.assertEquals(-1, Geometry.orientation(0, 0, 1, 0, 0.5, -Double.MIN_NORMAL));
+
+        // a vertex lying exactly on another edge doesn't make a crossing
+        Assert.assertFalse(Geometry.isIntersecting(0.1, 0.1, 0.7, 0.7, 0.3, 0.3, 0.3, 0.9));
+    }
+
+    @Test
+    public void testTiledIntersections() {
+        final Graph<Integer> graph = new UndirectedGraphWithIntersections<>();
+        TestUtils.generateRandomGraph(graph, 50, 300);
+        final Set<Set<Edge<Integer>>> expected = new HashSet<>();
+        Geometry.findIntersections(graph.getEdges(), (edge1, edge2) -> expected.add(pairOf(edge1, edge2)));
+
+        for (int tilesPerSide = 2; tilesPerSide <= 8; ++tilesPerSide) {
+            final List<Set<Edge<Integer>>> actual = new ArrayList<>();
+
+            Geometry.findIntersections(
+                    graph.getEdges(), (edge1, edge2) -> actual.add(pairOf(edge1, edge2)), tilesPerSide);
+
+            Assert.assertEquals(expected.size(), actual.size());
+            Assert.assertEquals(expected, new HashSet<>(actual));
+        }
+    }
+
+    @Test
+    public void testRandomSegments() {
+        final Random random = new Random(0);
+
+        for (int i = 0; i < 100000; ++i) {
+            final Coordinate[] points = new Coordinate[4];
+
+            for (int j = 0; j < points.length; ++j) {
+                points[j] = new Coordinate(random.nextDouble(), random.nextDouble());
+            }
+
+            final LineSegment segment1 = new LineSegment(points[0], points[1]);
+            final LineSegment segment2 = new LineSegment(points[2], points[3]);
+
+            Assert.assertEquals(
+                    segment1.intersection(segment2) != null,
+                    Geometry.isIntersecting(
+                            points[0].x, points[0].y, points[1].x, points[1].y,
+                            points[2].x, points[2].y, points[3].x, points[3].y));
+        }
+    }
+
+    private static @NotNull Set<Edge<Integer>> pairOf(
+            final @NotNull Edge<Integer> edge1, final @NotNull Edge<Integer> edge2) {
+
+        final Set<Edge<Integer>> pair = new HashSet<>();
+        pair.add(edge1);
+        pair.add(edge2);
+        return pair;
+    }
+}
@@ -0,0 +1,109 @@
+package by.zsp.ncst.test;
+
+import by.zsp.ncst.graph.Edge;
+import by.zsp.ncst.graph.Graph;
+import by.zsp.ncst.graph.GraphAnalysis;
+import by.zsp.ncst.graph.Vertex;
+import by.zsp.ncst.graph.impl.UndirectedGraphWithIntersections;
+import org.jetbrains.annotations.NotNull;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+public class GraphAnalysisTest {
+
+    @Test
+    public void testDenseGraph() {
+        final Graph<Integer> graph = new UndirectedGraphWithIntersections<>();
+        TestUtils.generateRandomGraph(graph, 50, 300);
+        assertCorrectAnalysis(graph);
+    }
+
+    @Test
+    public void testSparseGraph() {
+        final Graph<Integer> graph = new UndirectedGraphWithIntersections<>();
+        TestUtils.generateRandomGraph(graph, 50, 55);
+        assertCorrectAnalysis(graph);
+    }
+
+    @Test
+    public void testLongPath() {
+        final int n = 100000;
+        final List<Edge<Integer>> edges = new ArrayList<>(n - 1);
+        final Graph<Integer> graph = new UndirectedGraphWithIntersections<>();
+
+        for (int i = 1; i < n; ++i) {
+            edges.add(graph.edgeOf(i - 1, i - 1, (i - 1) % 2, i, i, i % 2));
+        }
+
+        graph.addEdges(edges);
+        final GraphAnalysis<Integer> analysis = graph.analyze();
+        Assert.assertTrue(analysis.isConnected());
+        Assert.assertEquals(n - 1, analysis.getBridges().size());
+        Assert.assertEquals(n, analysis.getTwoEdgeConnectedComponentsNumber());
+    }
+
+    @Test
+    public void testEmptyGraph() {
+        final GraphAnalysis<Integer> analysis = new UndirectedGraphWithIntersections<Integer>().analyze();
+        Assert.assertTrue(analysis.isConnected());
+        Assert.assertFalse(analysis.isIntersecting());
+        Assert.assertTrue(analysis.getBridges().isEmpty());
+    }
+
+    private static void assertCorrectAnalysis(final @NotNull Graph<Integer> graph) {
+        final GraphAnalysis<Integer> analysis = graph.analyze();
+        final int componentsNumber = graph.getConnectedComponents().size();
+        Assert.assertEquals(graph.isConnected(), analysis.isConnected());
+        Assert.assertEquals(componentsNumber, analysis.getComponentsNumber());
+        Assert.assertEquals(graph.getIntersectionIndex(), analysis.getIntersectionIndex());
+        Assert.assertEquals(graph.getMostIntersectingEdge(), analysis.getMostIntersectingEdge());
+
+        for (final Graph<Integer> component : graph.getConnectedComponents()) {
+            final Set<Integer> labels = new HashSet<>();
+
+            for (final Vertex<Integer> vertex : component.getVertices()) {
+                labels.add(analysis.getComponentLabel(vertex));
+            }
+
+            Assert.assertEquals(1, labels.size());
+        }
+
+        final Set<Edge<Integer>> bridges = new HashSet<>();
+
+        for (final Edge<Integer> edge : graph.getEdges()) {
+            final Graph<Integer> copy = graph.copy();
+            copy.removeEdge(edge);
+
+            if (copy.getConnectedComponents().size() > componentsNumber) {
+                bridges.add(edge);
+            }
+        }
+
+        Assert.assertEquals(bridges, new HashSet<>(analysis.getBridges()));
+        Assert.assertEquals(bridges.size(), analysis.getBridges().size());
+
+        final Graph<Integer> withoutBridges = graph.copy();
+        bridges.forEach(withoutBridges::removeEdge);
+        final List<Graph<Integer>> twoEdgeConnectedComponents = withoutBridges.getConnectedComponents();
+        Assert.assertEquals(twoEdgeConnectedComponents.size(), analysis.getTwoEdgeConnectedComponentsNumber());
+        final Set<Integer> twoEdgeLabels = new HashSet<>();
+
+        for (final Graph<Integer> component : twoEdgeConnectedComponents) {
+            final Set<Integer> labels = new HashSet<>();
+
+            for (final Vertex<Integer> vertex : component.getVertices()) {
+                labels.add(analysis.getTwoEdgeConnectedComponentLabel(vertex));
+            }
+
+            Assert.assertEquals(1, labels.size());
+            twoEdgeLabels.addAll(labels);
+        }
+
+        Assert.assertEquals(twoEdgeConnectedComponents.size(), twoEdgeLabels.size());
+    }
+}
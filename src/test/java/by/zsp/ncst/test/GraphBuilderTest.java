@@ -0,0 +1,127 @@
+package by.zsp.ncst.test;
+
+import by.zsp.ncst.exception.GraphException;
+import by.zsp.ncst.graph.Edge;
+import by.zsp.ncst.graph.Graph;
+import by.zsp.ncst.graph.Vertex;
+import by.zsp.ncst.graph.impl.GraphBuilder;
+import by.zsp.ncst.graph.impl.UndirectedGraphWithIntersections;
+import org.jetbrains.annotations.NotNull;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.*;
+
+public class GraphBuilderTest {
+
+    private @NotNull Graph<Integer> graph;
+    private @NotNull List<Integer> ids;
+    private @NotNull double[] xs;
+    private @NotNull double[] ys;
+    private @NotNull int[] endpoints;
+    private @NotNull int[] crossings;
+
+    @Before
+    public void init() {
+        graph = new UndirectedGraphWithIntersections<>();
+        TestUtils.generateRandomGraph(graph, 50, 300);
+
+        final List<Vertex<Integer>> vertices = new ArrayList<>(graph.getVertices());
+        final List<Edge<Integer>> edges = new ArrayList<>(graph.getEdges());
+        final Map<Vertex<Integer>, Integer> vertexIndices = new HashMap<>();
+        final Map<Edge<Integer>, Integer> edgeIndices = new HashMap<>();
+        ids = new ArrayList<>();
+        xs = new double[vertices.size()];
+        ys = new double[vertices.size()];
+        endpoints = new int[2 * edges.size()];
+        final List<Integer> crossingsList = new ArrayList<>();
+
+        for (int i = 0; i < vertices.size(); ++i) {
+            ids.add(vertices.get(i).getId());
+            xs[i] = vertices.get(i).getX();
+            ys[i] = vertices.get(i).getY();
+            vertexIndices.put(vertices.get(i), i);
+        }
+
+        for (int i = 0; i < edges.size(); ++i) {
+            endpoints[2 * i] = vertexIndices.get(edges.get(i).getVertex1());
+            endpoints[2 * i + 1] = vertexIndices.get(edges.get(i).getVertex2());
+            edgeIndices.put(edges.get(i), i);
+        }
+
+        for (int i = 0; i < edges.size(); ++i) {
+            for (final Edge<Integer> intersecting : graph.getIntersecting(edges.get(i))) {
+                if (i < edgeIndices.get(intersecting)) {
+                    crossingsList.add(i);
+                    crossingsList.add(edgeIndices.get(intersecting));
+                }
+            }
+        }
+
+        crossings = crossingsList.stream().mapToInt(Integer::intValue).toArray();
+    }
+
+    @Test
+    public void testColumns() {
+        assertSameGraph(graph, new GraphBuilder<Integer>().vertices(ids, xs, ys).edges(endpoints).build());
+        assertSameGraph(graph, new GraphBuilder<Integer>().vertices(ids, xs, ys).edges(endpoints).buildCompact());
+    }
+
+    @Test
+    public void testTrustedColumns() {
+        final GraphBuilder<Integer> builder = new GraphBuilder<Integer>()
+                .trusted(true)
+                .vertices(ids, xs, ys)
+                .edges(endpoints)
+                .intersections(crossings);
+
+        assertSameGraph(graph, builder.build());
+        assertSameGraph(graph, builder.buildCompact());
+    }
+
+    @Test
+    public void testDuplicates() {
+        final int[] doubledEndpoints = Arrays.copyOf(endpoints, 2 * endpoints.length);
+
+        for (int i = 0; i < endpoints.length; i += 2) {
+            doubledEndpoints[endpoints.length + i] = endpoints[i + 1];
+            doubledEndpoints[endpoints.length + i + 1] = endpoints[i];
+        }
+
+        final Graph<Integer> built = new GraphBuilder<Integer>()
+                .vertices(ids, xs, ys)
+                .edges(doubledEndpoints)
+                .addEdges(graph.getEdges())
+                .build();
+
+        assertSameGraph(graph, built);
+    }
+
+    @Test(expected = GraphException.class)
+    public void testLoop() {
+        new GraphBuilder<Integer>()
+                .vertices(Arrays.asList(1, 1), new double[] { 0, 0 }, new double[] { 0, 0 })
+                .edges(new int[] { 0, 1 })
+                .build();
+    }
+
+    @Test(expected = GraphException.class)
+    public void testUntrustedIntersections() {
+        new GraphBuilder<Integer>()
+                .vertices(ids, xs, ys)
+                .edges(endpoints)
+                .intersections(crossings);
+    }
+
+    private static void assertSameGraph(final @NotNull Graph<Integer> expected, final @NotNull Graph<Integer> actual) {
+        Assert.assertEquals(expected.getVertices(), actual.getVertices());
+        Assert.assertEquals(expected.getEdges(), actual.getEdges());
+        Assert.assertEquals(expected.getIntersectionIndex(), actual.getIntersectionIndex());
+
+        for (final Edge<Integer> edge : expected.getEdges()) {
+            Assert.assertEquals(
+                    new HashSet<>(expected.getIntersecting(edge)), new HashSet<>(actual.getIntersecting(edge)));
+        }
+    }
+}
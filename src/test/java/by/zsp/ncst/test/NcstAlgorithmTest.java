@@ -2,8 +2,12 @@ package by.zsp.ncst.test;
 
 import by.zsp.ncst.NcstAlgorithm;
 import by.zsp.ncst.graph.Graph;
+import by.zsp.ncst.graph.Vertex;
 import by.zsp.ncst.graph.impl.UndirectedGraphWithIntersections;
+import by.zsp.ncst.impl.BranchingStrategies;
+import by.zsp.ncst.impl.BranchingStrategy;
 import by.zsp.ncst.impl.NcstAlgorithmImpl;
+import by.zsp.ncst.impl.TranspositionTable;
 import by.zsp.ncst.util.Visualizer;
 import org.jetbrains.annotations.NotNull;
 import org.junit.Assert;
@@ -12,7 +16,10 @@ import org.junit.Rule;
 import org.junit.Test;
 import org.junit.rules.TestName;
 
+import java.util.Arrays;
+import java.util.List;
 import java.util.Optional;
+import java.util.concurrent.ForkJoinPool;
 
 public class NcstAlgorithmTest {
 
@@ -141,6 +148,207 @@ public class NcstAlgorithmTest {
         test(false);
     }
 
+    @Test
+    public void testIntersectionIndex1WithFixedEdges() {
+        graph.addEdge(0, 5, 5, 1, 4, 3);
+        graph.addEdge(0, 5, 5, 2, 0, 4);
+        graph.addEdge(0, 5, 5, 3, 4, 5);
+        graph.addEdge(0, 5, 5, 4, 3, 2);
+        graph.addEdge(1, 4, 3, 2, 0, 4);
+        graph.addEdge(1, 4, 3, 3, 4, 5);
+        graph.addEdge(4, 3, 2, 6, 1, 2);
+        graph.addEdge(5, 3, 3, 3, 4, 5);
+        graph.addEdge(5, 3, 3, 6, 1, 2);
+        test(true);
+    }
+
+    @Test
+    public void testBridgesWithIntersectingComponents() {
+        graph.addEdge(0, 0, 1, 3, 2, 4);
+        graph.addEdge(0, 0, 1, 4, 3, 3);
+        graph.addEdge(0, 0, 1, 5, 1, 2);
+        graph.addEdge(1, 2, 2, 2, 3, 1);
+        graph.addEdge(1, 2, 2, 3, 2, 4);
+        graph.addEdge(2, 3, 1, 3, 2, 4);
+        graph.addEdge(4, 3, 3, 5, 1, 2);
+        test(false);
+    }
+
+    @Test
+    public void testSharedPool() throws Exception {
+        graph.addEdge(1, 0, 0, 2, 0, 1);
+        graph.addEdge(1, 0, 0, 4, 1, 1);
+        graph.addEdge(1, 0, 0, 5, 2, 1);
+        graph.addEdge(2, 0, 1, 3, 1, 0);
+        graph.addEdge(3, 1, 0, 4, 1, 1);
+        graph.addEdge(4, 1, 1, 5, 2, 1);
+        final ForkJoinPool pool = new ForkJoinPool(2);
+
+        try {
+            final NcstAlgorithm<Integer> pooledAlgorithm = new NcstAlgorithmImpl<>(pool);
+
+            for (int i = 0; i < 100; ++i) {
+                check(pooledAlgorithm.findNcst(graph).get());
+            }
+
+            // a search started by a task of the pool is run by its worker
+            check(pool.submit(() -> pooledAlgorithm.findNcst(graph)).get().get());
+            Assert.assertFalse(pool.isShutdown());
+        } finally {
+            pool.shutdown();
+        }
+    }
+
+    @Test
+    public void testProgressListener() {
+        TestUtils.generateRandomGraph(graph, 15, 40);
+        final NcstAlgorithmImpl<Integer> algorithm = new NcstAlgorithmImpl<>(ForkJoinPool.commonPool(), 8);
+        final int[] progress = new int[2];
+
+        algorithm.setProgressListener((nodesCreated, nodesProcessed) -> {
+            synchronized (progress) {
+                if (nodesProcessed > progress[1]) {
+                    progress[0] = nodesCreated;
+                    progress[1] = nodesProcessed;
+                }
+            }
+        });
+
+        algorithm.findNcst(graph);
+
+        synchronized (progress) {
+            Assert.assertTrue(progress[1] > 0);
+            Assert.assertEquals(progress[0], progress[1]);
+        }
+    }
+
+    @Test
+    public void testSequentialThreshold() {
+        final NcstAlgorithm<Integer> forkingAlgorithm = new NcstAlgorithmImpl<>(ForkJoinPool.commonPool(), 0);
+
+        final NcstAlgorithm<Integer> sequentialAlgorithm =
+                new NcstAlgorithmImpl<>(ForkJoinPool.commonPool(), Integer.MAX_VALUE);
+
+        for (int i = 0; i < 10; ++i) {
+            graph = new UndirectedGraphWithIntersections<>();
+            TestUtils.generateRandomGraph(graph, 15, 40);
+            final int edgesNumber = graph.getEdgesNumber();
+            final Optional<Graph<Integer>> ncst = forkingAlgorithm.findNcst(graph);
+            final Optional<Graph<Integer>> sequentialNcst = sequentialAlgorithm.findNcst(graph);
+
+            Assert.assertEquals(ncst.isPresent(), sequentialNcst.isPresent());
+            Assert.assertEquals(edgesNumber, graph.getEdgesNumber());
+            ncst.ifPresent(this::check);
+            sequentialNcst.ifPresent(this::check);
+        }
+    }
+
+    @Test
+    public void testTranspositionTable() {
+        graph.addEdge(1, 0, 0, 2, 0, 1);
+        graph.addEdge(1, 0, 0, 4, 1, 1);
+        graph.addEdge(1, 0, 0, 5, 2, 1);
+        graph.addEdge(2, 0, 1, 3, 1, 0);
+        graph.addEdge(3, 1, 0, 4, 1, 1);
+        graph.addEdge(4, 1, 1, 5, 2, 1);
+        final NcstAlgorithmImpl<Integer> memoizedAlgorithm =
+                new NcstAlgorithmImpl<>(ForkJoinPool.commonPool(), 0, 1000);
+
+        final TranspositionTable<Integer> table = memoizedAlgorithm.getTranspositionTable();
+        ncstAlgorithm = memoizedAlgorithm;
+
+        final Graph<Integer> ncst = ncstAlgorithm.findNcst(graph).get();
+        check(ncst);
+        Assert.assertEquals(0, table.getHits());
+
+        // results of nodes abandoned by their siblings are missed but not stored
+        Assert.assertTrue(table.getSize() > 0 && table.getSize() <= table.getMisses());
+
+        // results are copied, so changes of a returned tree don't reach the table
+        ncst.removeEdge(ncst.getEdges().iterator().next());
+        check(ncstAlgorithm.findNcst(graph).get());
+        Assert.assertEquals(1, table.getHits());
+
+        final NcstAlgorithmImpl<Integer> smallTableAlgorithm = new NcstAlgorithmImpl<>(ForkJoinPool.commonPool(), 0, 1);
+        smallTableAlgorithm.findNcst(graph);
+        Assert.assertEquals(1, smallTableAlgorithm.getTranspositionTable().getSize());
+    }
+
+    // "Aa" and "BB" have the same hash code, states with either of them are told apart by IDs and coordinates
+    @Test
+    public void testTranspositionTableCollisions() {
+        final NcstAlgorithmImpl<String> memoizedAlgorithm =
+                new NcstAlgorithmImpl<>(ForkJoinPool.commonPool(), 0, 1000);
+
+        for (final String id : Arrays.asList("Aa", "BB", "BB")) {
+            for (final double x : new double[] { 0, 3 }) {
+                final Graph<String> stringGraph = new UndirectedGraphWithIntersections<>();
+                stringGraph.addEdge(id, x, 0, "b", 0, 1);
+                stringGraph.addEdge(id, x, 0, "c", 1, 1);
+                stringGraph.addEdge("b", 0, 1, "d", 1, 0);
+                stringGraph.addEdge("c", 1, 1, "d", 1, 0);
+                final Graph<String> ncst = memoizedAlgorithm.findNcst(stringGraph).get();
+
+                Assert.assertEquals(stringGraph.getVertices(), ncst.getVertices());
+
+                for (final Vertex<String> vertex : ncst.getVertices()) {
+                    Assert.assertEquals(vertex.getId().equals(id) ? x : vertex.getX(), vertex.getX(), 0);
+                }
+            }
+        }
+
+        Assert.assertEquals(2, memoizedAlgorithm.getTranspositionTable().getHits());
+    }
+
+    @Test
+    public void testBranchingStrategies() {
+        final NcstAlgorithmImpl<Integer> algorithm = new NcstAlgorithmImpl<>(ForkJoinPool.commonPool(), 0);
+
+        final List<BranchingStrategy<Integer>> strategies = Arrays.asList(
+                BranchingStrategies.mostIntersecting(), BranchingStrategies.deterministic(),
+                BranchingStrategies.weightedByDegree(), BranchingStrategies.failFirst());
+
+        for (int i = 0; i < 5; ++i) {
+            graph = new UndirectedGraphWithIntersections<>();
+            TestUtils.generateRandomGraph(graph, 15, 40);
+            final boolean hasNcst = algorithm.findNcst(graph).isPresent();
+
+            for (final BranchingStrategy<Integer> strategy : strategies) {
+                final Optional<Graph<Integer>> ncst = algorithm.findNcst(graph, strategy);
+                Assert.assertEquals(hasNcst, ncst.isPresent());
+                ncst.ifPresent(this::check);
+            }
+
+            // ties are broken in the same way for a copy with other iteration orders
+            final Optional<Graph<Integer>> ncst = algorithm.findNcst(graph, BranchingStrategies.deterministic());
+
+            final Optional<Graph<Integer>> copyNcst =
+                    algorithm.findNcst(graph.copy(), BranchingStrategies.deterministic());
+
+            Assert.assertEquals(
+                    ncst.map(Graph::getEdges).orElse(null),
+                    copyNcst.map(Graph::getEdges).orElse(null));
+        }
+    }
+
+    @Test
+    public void testFailFirst() {
+        graph.addEdge(1, 0, 0, 2, 2, 0);
+        graph.addEdge(2, 2, 0, 3, 2, 2);
+        graph.addEdge(3, 2, 2, 4, 0, 2);
+        graph.addEdge(4, 0, 2, 1, 0, 0);
+        graph.addEdge(1, 0, 0, 3, 2, 2);
+        graph.addEdge(2, 2, 0, 4, 0, 2);
+        graph.addEdge(5, 1, -1, 1, 0, 0);
+        graph.addEdge(5, 1, -1, 3, 2, 2);
+        final BranchingStrategy<Integer> strategy = BranchingStrategies.failFirst();
+
+        Assert.assertEquals(graph.edgeOf(5, 1, -1, 3, 2, 2), strategy.selectEdge(graph, graph.analyze()));
+
+        graph.addEdge(6, -1, 1, 2, 2, 0);
+        Assert.assertEquals(graph.edgeOf(6, -1, 1, 2, 2, 0), strategy.selectEdge(graph, graph.analyze()));
+    }
+
     @Test
     public void testRandomGraph() {
         TestUtils.generateRandomGraph(graph, 20, 200);
@@ -0,0 +1,86 @@
+package by.zsp.ncst.test;
+
+import by.zsp.ncst.graph.Edge;
+import by.zsp.ncst.graph.Graph;
+import by.zsp.ncst.graph.impl.PersistentUndirectedGraph;
+import by.zsp.ncst.graph.impl.UndirectedGraphWithIntersections;
+import by.zsp.ncst.impl.NcstAlgorithmImpl;
+import org.jetbrains.annotations.NotNull;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Optional;
+
+public class PersistentUndirectedGraphTest {
+
+    private @NotNull Graph<Integer> graph;
+
+    @Before
+    public void init() {
+        graph = new UndirectedGraphWithIntersections<>();
+        TestUtils.generateRandomGraph(graph, 50, 300);
+    }
+
+    @Test
+    public void testConstruction() {
+        assertSameGraph(graph, PersistentUndirectedGraph.of(graph));
+        assertSameGraph(graph, PersistentUndirectedGraph.of(graph.getEdges()));
+    }
+
+    @Test
+    public void testCopiesAreIndependent() {
+        final Graph<Integer> persistent = PersistentUndirectedGraph.of(graph);
+        final Graph<Integer> copy = persistent.copy();
+        final List<Edge<Integer>> edges = new ArrayList<>(graph.getEdges());
+
+        for (final Edge<Integer> edge : edges.subList(0, edges.size() / 2)) {
+            copy.removeIntersecting(edge);
+            copy.removeEdge(edge);
+        }
+
+        assertSameGraph(graph, persistent);
+
+        final Graph<Integer> expected = graph.copy();
+
+        for (final Edge<Integer> edge : edges.subList(0, edges.size() / 2)) {
+            expected.removeIntersecting(edge);
+            expected.removeEdge(edge);
+        }
+
+        assertSameGraph(expected, copy);
+    }
+
+    @Test
+    public void testNcst() {
+        final Graph<Integer> small = new UndirectedGraphWithIntersections<>();
+        TestUtils.generateRandomGraph(small, 15, 60);
+        final Optional<Graph<Integer>> ncst = new NcstAlgorithmImpl<Integer>().findNcst(small);
+
+        final Optional<Graph<Integer>> persistentNcst =
+                new NcstAlgorithmImpl<Integer>().findNcst(PersistentUndirectedGraph.of(small));
+
+        Assert.assertEquals(ncst.isPresent(), persistentNcst.isPresent());
+    }
+
+    private static void assertSameGraph(final @NotNull Graph<Integer> expected, final @NotNull Graph<Integer> actual) {
+        Assert.assertEquals(expected.getVertices(), actual.getVertices());
+        Assert.assertEquals(expected.getEdges(), actual.getEdges());
+        Assert.assertEquals(expected.getIntersectionIndex(), actual.getIntersectionIndex());
+        Assert.assertEquals(expected.toString(), actual.toString());
+        Assert.assertEquals(expected.isConnected(), actual.isConnected());
+        Assert.assertEquals(expected.getConnectedComponents().size(), actual.getConnectedComponents().size());
+
+        if (expected.isConnected()) {
+            Assert.assertEquals(new HashSet<>(expected.findBridges()), new HashSet<>(actual.findBridges()));
+        }
+
+        for (final Edge<Integer> edge : expected.getEdges()) {
+            Assert.assertEquals(
+                    new HashSet<>(expected.getIntersecting(edge)), new HashSet<>(actual.getIntersecting(edge)));
+        }
+    }
+}
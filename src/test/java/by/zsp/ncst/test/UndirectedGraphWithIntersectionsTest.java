@@ -0,0 +1,217 @@
+package by.zsp.ncst.test;
+
+import by.zsp.ncst.graph.Edge;
+import by.zsp.ncst.graph.Graph;
+import by.zsp.ncst.graph.Vertex;
+import by.zsp.ncst.graph.impl.CompactUndirectedGraph;
+import by.zsp.ncst.graph.impl.EdgeTrail;
+import by.zsp.ncst.graph.impl.UndirectedGraphWithIntersections;
+import org.jetbrains.annotations.NotNull;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Random;
+
+public class UndirectedGraphWithIntersectionsTest {
+
+    @Test
+    public void testBulkConstruction() {
+        final Graph<Integer> graph = new UndirectedGraphWithIntersections<>();
+        TestUtils.generateRandomGraph(graph, 50, 300);
+        assertSameIntersections(graph, UndirectedGraphWithIntersections.of(graph.getEdges()));
+    }
+
+    @Test
+    public void testParallelConstruction() {
+        final Graph<Integer> graph = new UndirectedGraphWithIntersections<>();
+        TestUtils.generateRandomGraph(graph, 50, 300);
+        assertSameIntersections(graph, UndirectedGraphWithIntersections.parallelOf(graph.getEdges()));
+    }
+
+    @Test
+    public void testBulkInsertion() {
+        final Graph<Integer> graph = new UndirectedGraphWithIntersections<>();
+        TestUtils.generateRandomGraph(graph, 50, 300);
+
+        final List<Edge<Integer>> edges = new ArrayList<>(graph.getEdges());
+        final Graph<Integer> bulkGraph = UndirectedGraphWithIntersections.of(edges.subList(0, edges.size() / 2));
+        bulkGraph.addEdges(edges.subList(edges.size() / 3, edges.size()));
+        assertSameIntersections(graph, bulkGraph);
+    }
+
+    @Test
+    public void testIncrementalEditing() {
+        final Graph<Integer> graph = new UndirectedGraphWithIntersections<>();
+        TestUtils.generateRandomGraph(graph, 50, 300);
+
+        final List<Edge<Integer>> edges = new ArrayList<>(graph.getEdges());
+        final List<Edge<Integer>> removed = edges.subList(0, edges.size() / 2);
+        final List<Edge<Integer>> kept = edges.subList(edges.size() / 2, edges.size());
+
+        for (final Edge<Integer> edge : removed) {
+            final Edge<Integer> idsOnly = graph.edgeOf(
+                    edge.asVerticesPair().left.getId(), 0, 0, edge.asVerticesPair().right.getId(), 0, 0);
+
+            Assert.assertTrue(graph.removeEdge(idsOnly));
+        }
+
+        assertSameIntersections(graphOf(graph.getVertices(), kept), graph);
+        removed.forEach(graph::addEdge);
+        assertSameIntersections(graphOf(graph.getVertices(), edges), graph);
+    }
+
+    @Test
+    public void testEdgeTrail() {
+        final Graph<Integer> graph = new UndirectedGraphWithIntersections<>();
+        TestUtils.generateRandomGraph(graph, 50, 300);
+
+        final Graph<Integer> expected = graph.copy();
+        final EdgeTrail<Integer> trail = new EdgeTrail<>(graph);
+        final List<Edge<Integer>> edges = new ArrayList<>(graph.getEdges());
+        final int mark = trail.mark();
+
+        for (int i = 0; i < edges.size(); i += 10) {
+            if (graph.getEdges().contains(edges.get(i))) {
+                trail.removeIntersecting(edges.get(i));
+                trail.removeEdge(edges.get(i));
+            }
+        }
+
+        final int innerMark = trail.mark();
+        trail.removeIntersecting(graph.getEdges().iterator().next());
+        trail.rollback(innerMark);
+        Assert.assertTrue(graph.getEdgesNumber() < expected.getEdgesNumber());
+        trail.rollback(mark);
+        assertSameIntersections(expected, graph);
+        assertSameIntersections(graphOf(graph.getVertices(), edges), graph);
+    }
+
+    @Test
+    public void testConnectedComponents() {
+        final Graph<Integer> graph = new UndirectedGraphWithIntersections<>();
+        TestUtils.generateRandomGraph(graph, 50, 60);
+
+        for (final Graph<Integer> component : graph.getConnectedComponents()) {
+            assertSameIntersections(graphOf(component.getVertices(), component.getEdges()), component);
+        }
+    }
+
+    @Test
+    public void testCanonicalInstances() {
+        final Graph<Integer> graph = new UndirectedGraphWithIntersections<>();
+        TestUtils.generateRandomGraph(graph, 50, 300);
+        final Graph<Integer> compact = CompactUndirectedGraph.of(graph);
+
+        for (final Edge<Integer> edge : graph.getEdges()) {
+            final Vertex<Integer> vertex1 = edge.getVertex1();
+            final Vertex<Integer> vertex2 = edge.getVertex2();
+            Assert.assertSame(edge, graph.edgeOf(vertex2, vertex1));
+            Assert.assertSame(vertex1, graph.vertexOf(vertex1.getId(), vertex1.getX(), vertex1.getY()));
+            Assert.assertEquals(edge, compact.edgeOf(vertex1, vertex2));
+        }
+
+        final Graph<Integer> copy = graph.copy();
+        copy.addEdge(-1, 2, 2, -2, 3, 3);
+        final Edge<Integer> added = copy.edgeOf(-1, 2, 2, -2, 3, 3);
+        Assert.assertSame(added, copy.edgeOf(-2, 3, 3, -1, 2, 2));
+        Assert.assertNotSame(added, graph.edgeOf(-1, 2, 2, -2, 3, 3));
+        Assert.assertEquals(added, graph.edgeOf(-1, 2, 2, -2, 3, 3));
+        Assert.assertFalse(graph.getEdges().contains(added));
+    }
+
+    @Test
+    public void testMostIntersectingEdge() {
+        final Graph<Integer> graph = new UndirectedGraphWithIntersections<>();
+        TestUtils.generateRandomGraph(graph, 50, 300);
+
+        while (graph.isIntersecting()) {
+            final Graph<Integer> copy = graph.copy();
+            final Edge<Integer> mostIntersecting = graph.getMostIntersectingEdge().get();
+            final int index = graph.getIntersectionIndex();
+            Assert.assertEquals(index, graph.getIntersecting(mostIntersecting).size());
+
+            for (final Edge<Integer> edge : graph.getEdges()) {
+                Assert.assertTrue(graph.getIntersecting(edge).size() <= index);
+            }
+
+            Assert.assertTrue(graph.removeEdge(mostIntersecting));
+            Assert.assertEquals(index, copy.getIntersectionIndex());
+            Assert.assertEquals(mostIntersecting, copy.getMostIntersectingEdge().get());
+        }
+
+        Assert.assertEquals(0, graph.getIntersectionIndex());
+        Assert.assertFalse(graph.getMostIntersectingEdge().isPresent());
+    }
+
+    // segments across a strip cross about a third of each other, so crossings move to the bit matrix
+    @Test
+    public void testDenseIntersections() {
+        final Random random = new Random(1);
+        final List<Edge<Integer>> edges = new ArrayList<>();
+        final Graph<Integer> graph = new UndirectedGraphWithIntersections<>();
+
+        for (int i = 0; i < 400; ++i) {
+            edges.add(graph.edgeOf(2 * i, 0, random.nextDouble(), 2 * i + 1, 1, random.nextDouble()));
+        }
+
+        edges.subList(0, 300).forEach(graph::addEdge);
+        graph.addEdges(edges.subList(300, 400));
+        final Graph<Integer> compact = CompactUndirectedGraph.of(edges);
+        final Graph<Integer> copy = graph.copy();
+
+        while (graph.isIntersecting()) {
+            Assert.assertEquals(compact.getEdges(), graph.getEdges());
+            Assert.assertEquals(compact.getIntersectionIndex(), graph.getIntersectionIndex());
+
+            for (final Edge<Integer> edge : compact.getEdges()) {
+                Assert.assertEquals(
+                        new HashSet<>(compact.getIntersecting(edge)), new HashSet<>(graph.getIntersecting(edge)));
+            }
+
+            final Edge<Integer> mostIntersecting = graph.getMostIntersectingEdge().get();
+            final Edge<Integer> leastIntersecting = graph.getEdges().stream()
+                    .filter(edge -> !graph.getIntersecting(edge).isEmpty())
+                    .min(Comparator.comparingInt(edge -> graph.getIntersecting(edge).size()))
+                    .get();
+
+            graph.removeIntersecting(leastIntersecting);
+            compact.removeIntersecting(leastIntersecting);
+            graph.removeEdge(mostIntersecting);
+            compact.removeEdge(mostIntersecting);
+        }
+
+        Assert.assertFalse(compact.isIntersecting());
+        Assert.assertEquals(compact.getEdges(), graph.getEdges());
+        Assert.assertEquals(CompactUndirectedGraph.of(edges).getIntersectionIndex(), copy.getIntersectionIndex());
+        Assert.assertEquals(edges.size(), copy.getEdgesNumber());
+    }
+
+    private static void assertSameIntersections(
+            final @NotNull Graph<Integer> expected, final @NotNull Graph<Integer> actual) {
+
+        Assert.assertEquals(expected.getEdges(), actual.getEdges());
+        Assert.assertEquals(expected.getIntersectionIndex(), actual.getIntersectionIndex());
+        Assert.assertEquals(expected.toString(), actual.toString());
+
+        for (final Edge<Integer> edge : expected.getEdges()) {
+            final Graph<Integer> expectedCopy = expected.copy();
+            final Graph<Integer> actualCopy = actual.copy();
+            expectedCopy.removeIntersecting(edge);
+            actualCopy.removeIntersecting(edge);
+            Assert.assertEquals(expectedCopy.getEdges(), actualCopy.getEdges());
+        }
+    }
+
+    private static @NotNull Graph<Integer> graphOf(
+            final @NotNull Collection<Vertex<Integer>> vertices, final @NotNull Collection<Edge<Integer>> edges) {
+
+        final Graph<Integer> graph = UndirectedGraphWithIntersections.of(edges);
+        vertices.forEach(graph::addVertex);
+        return graph;
+    }
+}